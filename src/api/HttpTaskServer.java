@@ -6,7 +6,7 @@ import com.google.gson.*;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import exceptions.NoSuchTaskExistsException;
-import managers.InMemoryTaskManager;
+import managers.HistoryManager;
 import managers.TaskManager;
 import model.Epic;
 import model.ItemType;
@@ -16,29 +16,53 @@ import model.Task;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.time.DateTimeException;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class HttpTaskServer {
+    private static final DateTimeFormatter QUERY_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+    private static final int DEFAULT_HOT_TASKS_LIMIT = 10;
     private final TaskManager taskManager;
     private final int PORT = 8080;
     private final HttpServer httpServer;
     private final Gson gson;
+    private final ExecutorService executor;
 
     public HttpTaskServer(TaskManager taskManager) throws IOException {
+        this(taskManager, null);
+    }
+
+    //Запросы обрабатываются пулом потоков - менеджер задач должен быть потокобезопасным (ConcurrentTaskManager)
+    public HttpTaskServer(TaskManager taskManager, int threadsCount) throws IOException {
+        this(taskManager, Executors.newFixedThreadPool(threadsCount));
+    }
+
+    private HttpTaskServer(TaskManager taskManager, ExecutorService executor) throws IOException {
         this.taskManager = taskManager;
+        this.executor = executor;
         httpServer = HttpServer.create(new InetSocketAddress("localhost", PORT), 0);
+        httpServer.setExecutor(executor);
         httpServer.createContext("/api/v1/tasks/", this::handleTasksPath);
         httpServer.createContext("/api/v1/tasks/subtask/", this::handleSubtaskPath);
         httpServer.createContext("/api/v1/tasks/task/", this::handleTaskPath);
         httpServer.createContext("/api/v1/tasks/epic/", this::handleEpicPath);
         httpServer.createContext("/api/v1/tasks/history/", this::handleHistoryPath);
         httpServer.createContext("/api/v1/tasks/priorities/", this::handlePrioritiesPath);
+        httpServer.createContext("/api/v1/tasks/slot/", this::handleSlotPath);
+        httpServer.createContext("/api/v1/tasks/hot/", this::handleHotPath);
         gson = new GsonBuilder()
                 .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
                 .registerTypeAdapter(Duration.class, new DurationAdapter())
@@ -64,6 +88,11 @@ public class HttpTaskServer {
                             "Метод не поддерживается",
                             400);
             }
+        } catch (NumberFormatException e) {
+            //id совпал с шаблоном \d+, но не помещается в int
+            writeResponse(httpExchange,
+                    "Число в параметрах вне допустимого диапазона",
+                    400);
         } catch (IOException e) {
             writeResponse(httpExchange,
                     "Ошибка выполнения запроса",
@@ -101,10 +130,8 @@ public class HttpTaskServer {
         int subtaskId = getIdFromQuery(subtaskQueryId);
         int epicId = getIdFromQuery(epicQueryId);
         try {
-            Subtask subtask = (Subtask) ((InMemoryTaskManager) taskManager)
-                    .getItemByIdWithoutSavingHistory(subtaskId);
-            Epic epic = (Epic) ((InMemoryTaskManager) taskManager)
-                    .getItemByIdWithoutSavingHistory(epicId);
+            Subtask subtask = (Subtask) taskManager.getItemByIdWithoutSavingHistory(subtaskId);
+            Epic epic = (Epic) taskManager.getItemByIdWithoutSavingHistory(epicId);
             taskManager.linkSubtaskToEpic(subtask, epic);
             writeResponse(httpExchange, "", 200);
         } catch (NullPointerException e) {
@@ -180,8 +207,7 @@ public class HttpTaskServer {
     private void sendEpicSubtasksList(HttpExchange httpExchange) throws IOException {
         String query = httpExchange.getRequestURI().getQuery();
         int epicId = getIdFromQuery(query);
-        Task requestedEpic = ((InMemoryTaskManager) taskManager)
-                .getItemByIdWithoutSavingHistory(epicId);
+        Task requestedEpic = taskManager.getItemByIdWithoutSavingHistory(epicId);
         if (requestedEpic != null && requestedEpic.getItemType() == ItemType.EPIC) {
             ArrayList<Subtask> epicSubtasks = taskManager
                     .getEpicSubtasks(epicId);
@@ -221,6 +247,11 @@ public class HttpTaskServer {
                             "Метод не поддерживается",
                             400);
             }
+        } catch (NumberFormatException e) {
+            //id совпал с шаблоном \d+, но не помещается в int
+            writeResponse(httpExchange,
+                    "Число в параметрах вне допустимого диапазона",
+                    400);
         } catch (IOException e) {
             writeResponse(httpExchange,
                     "Ошибка выполнения запроса",
@@ -366,8 +397,7 @@ public class HttpTaskServer {
     }
 
     private void updateItem(JsonObject itemObject, ItemType itemType, int itemId) throws JsonParseException {
-        if (((InMemoryTaskManager) taskManager)
-                .getItemByIdWithoutSavingHistory(itemId) == null) {
+        if (taskManager.getItemByIdWithoutSavingHistory(itemId) == null) {
             throw new NoSuchTaskExistsException("Задачи с id=" + itemId + "не существует");
         }
         switch (itemType) {
@@ -525,10 +555,46 @@ public class HttpTaskServer {
         }
     }
 
+    /*
+     * Без параметров - вся история, от первого просмотра к последнему.
+     * ?after=id&limit=n - n записей от последнего просмотра к первому, начиная с предыдущей
+     * перед задачей id (after можно не указывать)
+     */
     private void sendHistory(HttpExchange httpExchange) throws IOException {
-        List<Task> history = ((InMemoryTaskManager) taskManager)
-                .getHistoryManager()
-                .getHistory();
+        String query = httpExchange.getRequestURI().getRawQuery();
+        HistoryManager historyManager = taskManager.getHistoryManager();
+        List<Task> history;
+
+        if (query == null) {
+            history = historyManager.getHistory();
+        } else if (Pattern.matches("^(after=\\d+&)?limit=\\d+$", query)) {
+            Map<String, String> queryParams = getQueryParams(query);
+            int afterId;
+            int limit;
+            try {
+                afterId = Integer.parseInt(queryParams.getOrDefault("after", "0"));
+                limit = Integer.parseInt(queryParams.get("limit"));
+            } catch (NumberFormatException e) {
+                writeResponse(httpExchange,
+                        "Число в параметрах вне допустимого диапазона",
+                        400);
+                return;
+            }
+            try {
+                history = historyManager.getHistoryPage(afterId, limit);
+            } catch (NoSuchTaskExistsException e) {
+                writeResponse(httpExchange,
+                        "Задача с id " + afterId + " не найдена в истории",
+                        204);
+                return;
+            }
+        } else {
+            writeResponse(httpExchange,
+                    "Неверный формат параметров",
+                    400);
+            return;
+        }
+
         if (history.size() != 0) {
             String response = gson.toJson(history);
             writeResponse(httpExchange,
@@ -559,8 +625,57 @@ public class HttpTaskServer {
         }
     }
 
+    /*
+     * Без параметров - весь список приоритетов.
+     * ?from=dd-MM-yyyy HH:mm&to=dd-MM-yyyy HH:mm - задачи со стартом в интервале [from, to)
+     * ?after=id&limit=n - страница из n задач после задачи с id (after можно не указывать)
+     */
     private void sendPriorityList(HttpExchange httpExchange) throws IOException {
-        List<Task> priorities = taskManager.getPrioritizedTasks();
+        String query = httpExchange.getRequestURI().getRawQuery();
+        List<Task> priorities;
+
+        if (query == null) {
+            priorities = taskManager.getPrioritizedTasks();
+        } else if (Pattern.matches("^from=[^&]+&to=[^&]+$", query)) {
+            Map<String, String> queryParams = getQueryParams(query);
+            try {
+                priorities = taskManager.getPrioritizedTasks(
+                        LocalDateTime.parse(queryParams.get("from"), QUERY_DATE_TIME_FORMATTER),
+                        LocalDateTime.parse(queryParams.get("to"), QUERY_DATE_TIME_FORMATTER));
+            } catch (DateTimeParseException e) {
+                writeResponse(httpExchange,
+                        "Неверный формат даты, ожидается dd-MM-yyyy HH:mm",
+                        400);
+                return;
+            }
+        } else if (Pattern.matches("^(after=\\d+&)?limit=\\d+$", query)) {
+            Map<String, String> queryParams = getQueryParams(query);
+            int afterId;
+            int limit;
+            try {
+                afterId = Integer.parseInt(queryParams.getOrDefault("after", "0"));
+                limit = Integer.parseInt(queryParams.get("limit"));
+            } catch (NumberFormatException e) {
+                writeResponse(httpExchange,
+                        "Число в параметрах вне допустимого диапазона",
+                        400);
+                return;
+            }
+            try {
+                priorities = taskManager.getPrioritizedTasksPage(afterId, limit);
+            } catch (NoSuchTaskExistsException e) {
+                writeResponse(httpExchange,
+                        "Задача с id " + afterId + " не найдена",
+                        204);
+                return;
+            }
+        } else {
+            writeResponse(httpExchange,
+                    "Неверный формат параметров",
+                    400);
+            return;
+        }
+
         if (priorities.size() != 0) {
             String response = gson.toJson(priorities);
             writeResponse(httpExchange,
@@ -573,6 +688,122 @@ public class HttpTaskServer {
         }
     }
 
+    private void handleSlotPath(HttpExchange httpExchange) throws IOException {
+        String method = httpExchange.getRequestMethod();
+
+        if (method.equals("GET")) {
+            try {
+                sendFreeSlot(httpExchange);
+            } catch (IOException e) {
+                writeResponse(httpExchange,
+                        "Ошибка выполнения запроса",
+                        500);
+            }
+        } else {
+            writeResponse(httpExchange,
+                    "Метод не поддерживается",
+                    400);
+        }
+    }
+
+    //?duration=минуты&notBefore=dd-MM-yyyy HH:mm - ближайший свободный интервал заданной длины
+    private void sendFreeSlot(HttpExchange httpExchange) throws IOException {
+        String query = httpExchange.getRequestURI().getRawQuery();
+
+        if (query == null || !Pattern.matches("^duration=\\d+&notBefore=[^&]+$", query)) {
+            writeResponse(httpExchange,
+                    "Неверный формат параметров",
+                    400);
+            return;
+        }
+        Map<String, String> queryParams = getQueryParams(query);
+        LocalDateTime notBefore;
+        try {
+            notBefore = LocalDateTime.parse(queryParams.get("notBefore"), QUERY_DATE_TIME_FORMATTER);
+        } catch (DateTimeParseException e) {
+            writeResponse(httpExchange,
+                    "Неверный формат даты, ожидается dd-MM-yyyy HH:mm",
+                    400);
+            return;
+        }
+        JsonObject slotObject = new JsonObject();
+        try {
+            Duration duration = Duration.ofMinutes(Long.parseLong(queryParams.get("duration")));
+            LocalDateTime startTime = taskManager.findFreeSlot(duration, notBefore);
+            slotObject.addProperty("startTime", startTime.format(QUERY_DATE_TIME_FORMATTER));
+            slotObject.addProperty("endTime", startTime.plus(duration).format(QUERY_DATE_TIME_FORMATTER));
+        } catch (NumberFormatException | ArithmeticException | DateTimeException e) {
+            //продолжительность не помещается в long или интервал выходит за пределы LocalDateTime
+            writeResponse(httpExchange,
+                    "Продолжительность вне допустимого диапазона",
+                    400);
+            return;
+        }
+        writeResponse(httpExchange,
+                gson.toJson(slotObject),
+                200);
+    }
+
+    private void handleHotPath(HttpExchange httpExchange) throws IOException {
+        String method = httpExchange.getRequestMethod();
+
+        if (method.equals("GET")) {
+            try {
+                sendHotTasks(httpExchange);
+            } catch (IOException e) {
+                writeResponse(httpExchange,
+                        "Ошибка выполнения запроса",
+                        500);
+            }
+        } else {
+            writeResponse(httpExchange,
+                    "Метод не поддерживается",
+                    400);
+        }
+    }
+
+    //?limit=n - n самых часто просматриваемых задач (без параметра - DEFAULT_HOT_TASKS_LIMIT)
+    private void sendHotTasks(HttpExchange httpExchange) throws IOException {
+        String query = httpExchange.getRequestURI().getRawQuery();
+        int limit = DEFAULT_HOT_TASKS_LIMIT;
+
+        if (query != null) {
+            if (!Pattern.matches("^limit=\\d+$", query)) {
+                writeResponse(httpExchange,
+                        "Неверный формат параметров",
+                        400);
+                return;
+            }
+            try {
+                limit = Integer.parseInt(getQueryParams(query).get("limit"));
+            } catch (NumberFormatException e) {
+                writeResponse(httpExchange,
+                        "Число в параметрах вне допустимого диапазона",
+                        400);
+                return;
+            }
+        }
+        List<Task> hotTasks = taskManager.getHotTasks(limit);
+        if (hotTasks.size() != 0) {
+            writeResponse(httpExchange,
+                    gson.toJson(hotTasks),
+                    200);
+        } else {
+            writeResponse(httpExchange,
+                    "Нет просмотренных задач",
+                    204);
+        }
+    }
+
+    private Map<String, String> getQueryParams(String rawQuery) {
+        Map<String, String> queryParams = new HashMap<>();
+        for (String param : rawQuery.split("&")) {
+            String[] keyAndValue = param.split("=", 2);
+            queryParams.put(keyAndValue[0], URLDecoder.decode(keyAndValue[1], UTF_8));
+        }
+        return queryParams;
+    }
+
     private int getIdFromQuery(String query) {
         String id = "";
         if (Pattern.matches("^id=\\d+$", query)) {
@@ -593,6 +824,9 @@ public class HttpTaskServer {
 
     public void stop() {
         httpServer.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+        }
         System.out.println("Сервер остановлен");
     }
 
@@ -0,0 +1,152 @@
+package managers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Учет "горячих" задач: частоты обращений оцениваются FrequencySketch, а topSize самых частых id
+ * хранятся в min-куче (в корне - наименее частый из них). Память не зависит от количества задач.
+ * Каждые sampleSize обращений (10 * ширина таблицы) счетчики таблицы и кучи делятся пополам
+ */
+public class AccessFrequencyTracker {
+    public static final int DEFAULT_SKETCH_WIDTH = 4096;
+    public static final int DEFAULT_TOP_SIZE = 32;
+    private static final int NO_POSITION = -1;
+
+    private final FrequencySketch sketch;
+    private final int sampleSize;
+    private int accessesSinceAging;
+    private final int[] heapIds;
+    private final int[] heapCounts;
+    private final IntIntMap heapPositionsById;
+    private int heapSize;
+
+    public AccessFrequencyTracker() {
+        this(DEFAULT_SKETCH_WIDTH, DEFAULT_TOP_SIZE);
+    }
+
+    public AccessFrequencyTracker(int sketchWidth, int topSize) {
+        if (topSize < 1) {
+            throw new IllegalArgumentException("Размер списка горячих задач должен быть положительным");
+        }
+        this.sketch = new FrequencySketch(sketchWidth);
+        this.sampleSize = 10 * sketch.getWidth();
+        this.heapIds = new int[topSize];
+        this.heapCounts = new int[topSize];
+        this.heapPositionsById = new IntIntMap(topSize);
+    }
+
+    public void recordAccess(int id) {
+        int count = sketch.increment(id);
+        int position = heapPositionsById.get(id, NO_POSITION);
+        if (position != NO_POSITION) {
+            //Счетчик только вырос - в min-куче элемент может опуститься
+            heapCounts[position] = count;
+            siftDown(position);
+        } else if (heapSize < heapIds.length) {
+            heapIds[heapSize] = id;
+            heapCounts[heapSize] = count;
+            heapPositionsById.put(id, heapSize);
+            siftUp(heapSize++);
+        } else if (count > heapCounts[0]) {
+            heapPositionsById.remove(heapIds[0]);
+            heapIds[0] = id;
+            heapCounts[0] = count;
+            heapPositionsById.put(id, 0);
+            siftDown(0);
+        }
+        if (++accessesSinceAging >= sampleSize) {
+            age();
+        }
+    }
+
+    //Удаленная задача исключается из горячих; ее частота в таблице затухнет при старении
+    public void remove(int id) {
+        int position = heapPositionsById.get(id, NO_POSITION);
+        if (position == NO_POSITION) {
+            return;
+        }
+        heapPositionsById.remove(id);
+        heapSize--;
+        if (position != heapSize) {
+            move(heapSize, position);
+            siftDown(position);
+            siftUp(position);
+        }
+    }
+
+    public int estimateFrequency(int id) {
+        return sketch.estimate(id);
+    }
+
+    //Не больше limit самых частых id по убыванию частоты
+    public List<Integer> getHotIds(int limit) {
+        Integer[] positions = new Integer[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, Comparator.<Integer>comparingInt(position -> heapCounts[position]).reversed()
+                .thenComparingInt(position -> heapIds[position]));
+        List<Integer> hotIds = new ArrayList<>(Math.min(limit, heapSize));
+        for (int i = 0; i < positions.length && hotIds.size() < limit; i++) {
+            hotIds.add(heapIds[positions[i]]);
+        }
+        return hotIds;
+    }
+
+    //Деление пополам не нарушает порядок в куче
+    private void age() {
+        sketch.halve();
+        for (int i = 0; i < heapSize; i++) {
+            heapCounts[i] >>>= 1;
+        }
+        accessesSinceAging = 0;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heapCounts[parent] <= heapCounts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < heapSize && heapCounts[left] < heapCounts[smallest]) {
+                smallest = left;
+            }
+            if (right < heapSize && heapCounts[right] < heapCounts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(smallest, position);
+            position = smallest;
+        }
+    }
+
+    private void swap(int first, int second) {
+        int id = heapIds[first];
+        int count = heapCounts[first];
+        move(second, first);
+        heapIds[second] = id;
+        heapCounts[second] = count;
+        heapPositionsById.put(id, second);
+    }
+
+    private void move(int from, int to) {
+        heapIds[to] = heapIds[from];
+        heapCounts[to] = heapCounts[from];
+        heapPositionsById.put(heapIds[to], to);
+    }
+}
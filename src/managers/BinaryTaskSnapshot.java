@@ -0,0 +1,375 @@
+package managers;
+
+import model.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Двоичный снимок задач. Файл отображается в память (MappedByteBuffer) и не разбирается при открытии:
+ * поля записи читаются по смещению, строки декодируются только при обращении.
+ * Формат (little-endian):
+ * заголовок - MAGIC, VERSION, число записей, idCounter, длина истории, число строк, длина байтов строк, резерв;
+ * записи по RECORD_SIZE байт - id, тип, статус, 2 байта резерва, начало, продолжительность и окончание
+ * в минутах от 01.01.1970 (UTC), id эпика, номера названия и описания в таблице строк;
+ * история - id задач от давних просмотров к последним;
+ * таблица строк - смещения начала каждой строки и конца последней, затем байты строк в UTF-8
+ */
+public class BinaryTaskSnapshot {
+    public static final int MAGIC = 0x4E424B54; //"TKBN" в little-endian
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 32;
+    public static final int NO_TIME = Integer.MIN_VALUE;
+    public static final int NO_DURATION = -1;
+    public static final int NO_STRING = -1;
+    private static final ItemType[] ITEM_TYPES = ItemType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int idCounter;
+    private final int historySize;
+    private final int stringCount;
+    private final int historyOffset;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+
+    private BinaryTaskSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Файл не является двоичным снимком");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Неподдерживаемая версия снимка: " + buffer.getInt(4));
+        }
+        this.size = buffer.getInt(8);
+        this.idCounter = buffer.getInt(12);
+        this.historySize = buffer.getInt(16);
+        this.stringCount = buffer.getInt(20);
+        int stringDataLength = buffer.getInt(24);
+        this.historyOffset = HEADER_SIZE + size * RECORD_SIZE;
+        this.stringOffsetsOffset = historyOffset + historySize * Integer.BYTES;
+        this.stringDataOffset = stringOffsetsOffset + (stringCount + 1) * Integer.BYTES;
+        if ((long) stringDataOffset + stringDataLength != buffer.capacity()) {
+            throw new IOException("Снимок поврежден: размер файла не совпадает с заголовком");
+        }
+    }
+
+    //Отображает файл в память; записи не читаются до обращения
+    public static BinaryTaskSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Снимок больше 2 ГБ не поддерживается");
+            }
+            return new BinaryTaskSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    //Снимок в двоичном формате определяется по первым байтам файла
+    public static boolean isBinarySnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            int read = 0;
+            while (magic.hasRemaining() && read >= 0) {
+                read = channel.read(magic);
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getIdCounter() {
+        return idCounter;
+    }
+
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    public int getHistoryId(int index) {
+        return buffer.getInt(historyOffset + index * Integer.BYTES);
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    //Поля записи с номером index (не id)
+    public int getId(int index) {
+        return buffer.getInt(recordOffset(index));
+    }
+
+    public byte getItemTypeOrdinal(int index) {
+        return buffer.get(recordOffset(index) + 4);
+    }
+
+    public byte getStatusOrdinal(int index) {
+        return buffer.get(recordOffset(index) + 5);
+    }
+
+    public int getStartMinutes(int index) {
+        return buffer.getInt(recordOffset(index) + 8);
+    }
+
+    public int getDurationMinutes(int index) {
+        return buffer.getInt(recordOffset(index) + 12);
+    }
+
+    public int getEndMinutes(int index) {
+        return buffer.getInt(recordOffset(index) + 16);
+    }
+
+    public int getEpicId(int index) {
+        return buffer.getInt(recordOffset(index) + 20);
+    }
+
+    public int getNameRef(int index) {
+        return buffer.getInt(recordOffset(index) + 24);
+    }
+
+    public int getDescriptionRef(int index) {
+        return buffer.getInt(recordOffset(index) + 28);
+    }
+
+    public String getString(int ref) {
+        if (ref == NO_STRING) {
+            return null;
+        }
+        int start = buffer.getInt(stringOffsetsOffset + ref * Integer.BYTES);
+        int end = buffer.getInt(stringOffsetsOffset + (ref + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        //позиция копии своя, поэтому чтение строк не мешает другим потокам
+        ByteBuffer stringBuffer = buffer.duplicate();
+        stringBuffer.position(stringDataOffset + start);
+        stringBuffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Task getTask(int index) {
+        return readTask(index, null);
+    }
+
+    //Все задачи по порядку записей; строка таблицы декодируется один раз, и задачи разделяют ее экземпляр
+    public void forEachTask(Consumer<Task> action) {
+        String[] decodedStrings = new String[stringCount];
+        for (int index = 0; index < size; index++) {
+            action.accept(readTask(index, decodedStrings));
+        }
+    }
+
+    private Task readTask(int index, String[] decodedStrings) {
+        int id = getId(index);
+        ItemType itemType = ITEM_TYPES[getItemTypeOrdinal(index)];
+        Status status = STATUSES[getStatusOrdinal(index)];
+        String name = getString(getNameRef(index), decodedStrings);
+        String description = getString(getDescriptionRef(index), decodedStrings);
+        int durationMinutes = getDurationMinutes(index);
+        Duration duration = durationMinutes == NO_DURATION ? null : Duration.ofMinutes(durationMinutes);
+        LocalDateTime startTime = fromEpochMinutes(getStartMinutes(index));
+        switch (itemType) {
+            case SUBTASK:
+                return new Subtask(id, name, description, status, itemType, duration, startTime, getEpicId(index));
+            case EPIC:
+                Epic epic = new Epic(id, name, description, status, itemType, duration, startTime);
+                epic.setEndTime(fromEpochMinutes(getEndMinutes(index)));
+                return epic;
+            default:
+                return new Task(id, name, description, status, itemType, duration, startTime);
+        }
+    }
+
+    private String getString(int ref, String[] decodedStrings) {
+        if (decodedStrings == null || ref == NO_STRING) {
+            return getString(ref);
+        }
+        if (decodedStrings[ref] == null) {
+            decodedStrings[ref] = getString(ref);
+        }
+        return decodedStrings[ref];
+    }
+
+    public static int toEpochMinutes(LocalDateTime dateTime) {
+        return dateTime == null ? NO_TIME : Math.toIntExact(dateTime.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    public static LocalDateTime fromEpochMinutes(int minutes) {
+        return minutes == NO_TIME ? null : LocalDateTime.ofEpochSecond(minutes * 60L, 0, ZoneOffset.UTC);
+    }
+
+    private int recordOffset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    /**
+     * Запись снимка потоком: записи, затем история, заголовок пишется при закрытии.
+     * Одинаковые строки попадают в таблицу один раз
+     */
+    public static class Writer implements Closeable {
+        private static final int CHUNK_SIZE = 1 << 16;
+
+        private final FileChannel channel;
+        private final ByteBuffer chunk;
+        private final int idCounter;
+        private final HashMap<String, Integer> refsByString;
+        private final List<byte[]> strings;
+        private int stringDataLength;
+        private int size;
+        private int historySize;
+
+        public Writer(Path path, int idCounter) throws IOException {
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.chunk = ByteBuffer.allocate(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            this.idCounter = idCounter;
+            this.refsByString = new HashMap<>();
+            this.strings = new ArrayList<>();
+            channel.position(HEADER_SIZE);
+        }
+
+        public void writeTask(Task task) throws IOException {
+            writeRecord(task.getId(),
+                    task.getItemType(),
+                    task.getStatus() == null ? Status.NEW : task.getStatus(),
+                    toEpochMinutes(task.getStartTime()),
+                    task.getDurationMinutes() == null
+                            ? NO_DURATION
+                            : Math.toIntExact(task.getDurationMinutes().toMinutes()),
+                    toEpochMinutes(task.getEndTime().orElse(null)),
+                    task.getItemType().equals(ItemType.SUBTASK) ? ((Subtask) task).getEpicId() : 0,
+                    task.getName(),
+                    task.getDescription());
+        }
+
+        public void writeRecord(int id,
+                                ItemType itemType,
+                                Status status,
+                                int startMinutes,
+                                int durationMinutes,
+                                int endMinutes,
+                                int epicId,
+                                String name,
+                                String description) throws IOException {
+            if (historySize > 0) {
+                throw new IllegalStateException("Записи задач должны предшествовать истории");
+            }
+            ensureChunkSpace(RECORD_SIZE);
+            chunk.putInt(id)
+                    .put((byte) itemType.ordinal())
+                    .put((byte) status.ordinal())
+                    .putShort((short) 0)
+                    .putInt(startMinutes)
+                    .putInt(durationMinutes)
+                    .putInt(endMinutes)
+                    .putInt(epicId)
+                    .putInt(intern(name))
+                    .putInt(intern(description));
+            size++;
+        }
+
+        public void writeHistoryId(int id) throws IOException {
+            ensureChunkSpace(Integer.BYTES);
+            chunk.putInt(id);
+            historySize++;
+        }
+
+        //Дописывает таблицу строк и заголовок
+        @Override
+        public void close() throws IOException {
+            try {
+                int offset = 0;
+                for (byte[] string : strings) {
+                    ensureChunkSpace(Integer.BYTES);
+                    chunk.putInt(offset);
+                    offset += string.length;
+                }
+                ensureChunkSpace(Integer.BYTES);
+                chunk.putInt(offset);
+                for (byte[] string : strings) {
+                    flushChunk();
+                    writeFully(ByteBuffer.wrap(string));
+                }
+                flushChunk();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putInt(size)
+                        .putInt(idCounter)
+                        .putInt(historySize)
+                        .putInt(strings.size())
+                        .putInt(stringDataLength)
+                        .putInt(0)
+                        .flip();
+                if (channel.position() > Integer.MAX_VALUE) {
+                    throw new IOException("Снимок больше 2 ГБ не поддерживается");
+                }
+                channel.position(0);
+                writeFully(header);
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private int intern(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer ref = refsByString.get(value);
+            if (ref == null) {
+                ref = strings.size();
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                strings.add(bytes);
+                stringDataLength = Math.addExact(stringDataLength, bytes.length);
+                refsByString.put(value, ref);
+            }
+            return ref;
+        }
+
+        private void ensureChunkSpace(int bytes) throws IOException {
+            if (chunk.remaining() < bytes) {
+                flushChunk();
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            chunk.flip();
+            writeFully(chunk);
+            chunk.clear();
+        }
+
+        private void writeFully(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+    }
+
+    //Снимок задач и истории одним вызовом
+    public static void write(Path path, List<Task> items, List<Integer> historyIds, int idCounter) throws IOException {
+        try (Writer writer = new Writer(path, idCounter)) {
+            for (Task item : items) {
+                writer.writeTask(item);
+            }
+            for (Integer historyId : historyIds) {
+                writer.writeHistoryId(historyId);
+            }
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package managers;
+
+import exceptions.NoSuchTaskExistsException;
+import exceptions.TaskTimeIntersectionException;
+import model.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Менеджер поверх ColumnarTaskStore для досок с миллионами задач: поля задач лежат в колонках,
+ * а не в объектах Task. Приоритеты, занятые интервалы и показатели эпиков ведутся как в InMemoryTaskManager,
+ * но хранят только id и время, взятые из колонок.
+ * Все возвращаемые задачи - копии, собранные при чтении: изменения копии сохраняются только через updateItem,
+ * а история хранит задачу в том виде, в каком ее просмотрели. Копия эпика собирает состав подзадач
+ * из колонок, без чтения их названий и описаний.
+ * Время хранится с точностью до минуты. Обновление эпика меняет только название и описание:
+ * статус и время эпика считаются по подзадачам
+ */
+public class ColumnarTaskManager implements TaskManager {
+    private final ColumnarTaskStore store;
+    private final HistoryManager historyManager;
+    private final TreeSet<PriorityKey> prioritizedIds; //задачи и подзадачи; без времени старта - в конце по id
+    private final IntervalIndex scheduledIntervals;
+    private final IntObjectMap<EpicSubtasksAggregate> aggregatesByEpicId;
+
+    public ColumnarTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public ColumnarTaskManager(HistoryManager historyManager) {
+        this(new ColumnarTaskStore(), historyManager);
+    }
+
+    private ColumnarTaskManager(ColumnarTaskStore store, HistoryManager historyManager) {
+        this.store = store;
+        this.historyManager = historyManager;
+        this.prioritizedIds = new TreeSet<>();
+        this.scheduledIntervals = new IntervalIndex();
+        this.aggregatesByEpicId = new IntObjectMap<>();
+    }
+
+    /*
+     * Загрузка двоичного снимка (в том числе записанного FileBackedTaskManager в формате BINARY):
+     * записи копируются в колонки, строки декодируются при первом чтении задачи.
+     * Индексы строятся по колонкам без создания копий задач, пересечения не проверяются
+     */
+    public static ColumnarTaskManager loadSnapshot(Path path, HistoryManager historyManager) throws IOException {
+        BinaryTaskSnapshot snapshot = BinaryTaskSnapshot.open(path);
+        ColumnarTaskManager manager = new ColumnarTaskManager(ColumnarTaskStore.loadSnapshot(snapshot), historyManager);
+        ColumnarTaskStore store = manager.store;
+        store.forEachId(id -> {
+            if (store.getItemType(id).equals(ItemType.EPIC)) {
+                manager.aggregatesByEpicId.put(id, new EpicSubtasksAggregate());
+            } else {
+                manager.addToSchedule(id);
+            }
+        });
+        store.forEachId(id -> {
+            if (store.getItemType(id).equals(ItemType.SUBTASK)) {
+                manager.addSubtaskToEpicAggregate(id, store.getEpicId(id));
+            }
+        });
+        for (int epicId : manager.aggregatesByEpicId.keys()) {
+            if (!manager.aggregatesByEpicId.get(epicId).isEmpty()) {
+                manager.refreshEpic(epicId);
+            }
+        }
+        for (int index = 0; index < snapshot.getHistorySize(); index++) {
+            Task item = store.get(snapshot.getHistoryId(index));
+            if (item != null) {
+                historyManager.add(item);
+            }
+        }
+        return manager;
+    }
+
+    //Двоичный снимок колонок и истории, который читают loadSnapshot и FileBackedTaskManager
+    public void writeSnapshot(Path path) throws IOException {
+        try (BinaryTaskSnapshot.Writer writer = new BinaryTaskSnapshot.Writer(path, store.getIdCounter())) {
+            store.writeRecords(writer);
+            for (Task item : historyManager.getHistory()) {
+                writer.writeHistoryId(item.getId());
+            }
+        }
+    }
+
+    @Override
+    public HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    @Override
+    public int createItem(Task anyItem) {
+        ItemType anyItemType = anyItem.getItemType();
+        if (!anyItemType.equals(ItemType.EPIC)) {
+            checkIntervalAvailability(anyItem, 0);
+        }
+        int id = store.add(anyItem);
+        if (anyItemType.equals(ItemType.EPIC)) {
+            aggregatesByEpicId.put(id, new EpicSubtasksAggregate());
+        } else {
+            addToSchedule(id);
+        }
+        if (anyItemType.equals(ItemType.SUBTASK) && addSubtaskToEpicAggregate(id, ((Subtask) anyItem).getEpicId())) {
+            refreshEpic(((Subtask) anyItem).getEpicId());
+        }
+        return id;
+    }
+
+    @Override
+    public ArrayList<Integer> createItems(List<? extends Task> items) {
+        InMemoryTaskManager.checkBatchIntervalsAvailability(scheduledIntervals, items, Collections.emptySet());
+
+        ArrayList<Integer> ids = new ArrayList<>(items.size());
+        for (Task anyItem : items) {
+            int id = store.add(anyItem);
+            if (anyItem.getItemType().equals(ItemType.EPIC)) {
+                aggregatesByEpicId.put(id, new EpicSubtasksAggregate());
+            } else {
+                addToSchedule(id);
+            }
+            ids.add(id);
+        }
+        //Связи с эпиками - после записи всего пакета: эпик может стоять в пакете и после своей подзадачи
+        Set<Integer> affectedEpicIds = new LinkedHashSet<>();
+        for (int id : ids) {
+            int epicId = store.getEpicId(id);
+            if (store.getItemType(id).equals(ItemType.SUBTASK) && addSubtaskToEpicAggregate(id, epicId)) {
+                affectedEpicIds.add(epicId);
+            }
+        }
+        for (Integer epicId : affectedEpicIds) {
+            refreshEpic(epicId);
+        }
+        return ids;
+    }
+
+    @Override
+    public int getIdCounter() {
+        return store.getIdCounter();
+    }
+
+    @Override
+    public void setIdCounter(int idCounter) {
+        store.setIdCounter(idCounter);
+    }
+
+    @Override
+    public ArrayList<Task> getAllItemsByType(ItemType itemType) {
+        ArrayList<Task> items = new ArrayList<>();
+        store.forEachId(id -> {
+            if (store.getItemType(id).equals(itemType)) {
+                items.add(getView(id));
+            }
+        });
+        return items;
+    }
+
+    @Override
+    public void updateItem(Task anyItem, int id) throws NoSuchTaskExistsException {
+        checkUpdate(anyItem, id);
+        if (anyItem.getItemType().equals(ItemType.EPIC)) {
+            updateEpicText(anyItem, id);
+            return;
+        }
+        checkIntervalAvailability(anyItem, id);
+        removeFromSchedule(id);
+        Set<Integer> affectedEpicIds = new LinkedHashSet<>();
+        replaceItem(anyItem, id, affectedEpicIds);
+        for (Integer epicId : affectedEpicIds) {
+            refreshEpic(epicId);
+        }
+    }
+
+    @Override
+    public void updateItems(Map<Integer, ? extends Task> items) throws NoSuchTaskExistsException {
+        List<Task> itemsToUpdate = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, ? extends Task> entry : items.entrySet()) {
+            checkUpdate(entry.getValue(), entry.getKey());
+            if (!entry.getValue().getItemType().equals(ItemType.EPIC)) {
+                itemsToUpdate.add(entry.getValue());
+                ids.add(entry.getKey());
+            }
+        }
+        InMemoryTaskManager.checkBatchIntervalsAvailability(scheduledIntervals, itemsToUpdate, items.keySet());
+
+        for (Map.Entry<Integer, ? extends Task> entry : items.entrySet()) {
+            if (entry.getValue().getItemType().equals(ItemType.EPIC)) {
+                updateEpicText(entry.getValue(), entry.getKey());
+            }
+        }
+        //Сначала убираем прежние интервалы, чтобы задачи пакета могли обменяться ими
+        for (Integer id : ids) {
+            removeFromSchedule(id);
+        }
+        Set<Integer> affectedEpicIds = new LinkedHashSet<>();
+        for (int i = 0; i < itemsToUpdate.size(); i++) {
+            replaceItem(itemsToUpdate.get(i), ids.get(i), affectedEpicIds);
+        }
+        for (Integer epicId : affectedEpicIds) {
+            refreshEpic(epicId);
+        }
+    }
+
+    @Override
+    public void removeItemById(int id) throws NoSuchTaskExistsException {
+        ItemType itemType = store.getItemType(id);
+        if (itemType == null) {
+            throw new NoSuchTaskExistsException("Нет задачи с таким id");
+        }
+        if (itemType.equals(ItemType.SUBTASK)) {
+            int epicId = getLinkedEpicId(id);
+            if (epicId != 0) {
+                aggregatesByEpicId.get(epicId).remove(id);
+                refreshEpic(epicId);
+            }
+        } else if (itemType.equals(ItemType.EPIC)) {
+            for (Integer subtaskId : new ArrayList<>(aggregatesByEpicId.get(id).getSubtaskIds())) {
+                removeItemById(subtaskId);
+            }
+            aggregatesByEpicId.remove(id);
+        }
+        historyManager.remove(id);
+        removeFromSchedule(id);
+        store.remove(id);
+    }
+
+    //Тип удаляется целиком, без каскада removeItemById: каждый затронутый эпик пересчитывается один раз
+    @Override
+    public void removeAllItemsByType(ItemType itemType) {
+        List<Integer> removedIds = new ArrayList<>();
+        store.forEachId(id -> {
+            if (store.getItemType(id).equals(itemType)) {
+                removedIds.add(id);
+            }
+        });
+        if (itemType.equals(ItemType.EPIC)) {
+            //Вместе с эпиками удаляются их подзадачи
+            for (int epicId : aggregatesByEpicId.keys()) {
+                removedIds.addAll(aggregatesByEpicId.get(epicId).getSubtaskIds());
+            }
+            aggregatesByEpicId.clear();
+        } else if (itemType.equals(ItemType.SUBTASK)) {
+            for (int epicId : aggregatesByEpicId.keys()) {
+                EpicSubtasksAggregate subtasksAggregate = aggregatesByEpicId.get(epicId);
+                if (!subtasksAggregate.isEmpty()) {
+                    subtasksAggregate.clear();
+                    refreshEpic(epicId);
+                }
+            }
+        }
+        for (int id : removedIds) {
+            historyManager.remove(id);
+            removeFromSchedule(id);
+            store.remove(id);
+        }
+    }
+
+    @Override
+    public Task getItemById(int id) throws NoSuchTaskExistsException {
+        Task item = getItemByIdWithoutSavingHistory(id);
+        if (item == null) {
+            throw new NoSuchTaskExistsException("Нет задачи с таким id");
+        }
+        historyManager.add(item);
+        return item;
+    }
+
+    @Override
+    public Task getItemByIdWithoutSavingHistory(int id) {
+        return store.contains(id) ? getView(id) : null;
+    }
+
+    @Override
+    public ArrayList<Task> getAllItemsOfAllTypes() {
+        ArrayList<Task> items = new ArrayList<>(store.size());
+        store.forEachId(id -> items.add(getView(id)));
+        return items;
+    }
+
+    //Задачи со временем старта по возрастанию времени, затем задачи без времени
+    @Override
+    public ArrayList<Task> getPrioritizedTasks() {
+        return getViews(prioritizedIds, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ArrayList<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        return getViews(prioritizedIds.subSet(PriorityKey.lowerBound(from), PriorityKey.lowerBound(to)),
+                Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ArrayList<Task> getPrioritizedTasksPage(int afterId, int limit) throws NoSuchTaskExistsException {
+        if (afterId == 0) {
+            return getViews(prioritizedIds, limit);
+        }
+        ItemType itemType = store.getItemType(afterId);
+        if (itemType == null || itemType.equals(ItemType.EPIC)) {
+            throw new NoSuchTaskExistsException("Нет задачи с таким id");
+        }
+        return getViews(prioritizedIds.tailSet(new PriorityKey(store.getStartTime(afterId), afterId), false), limit);
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore) {
+        return scheduledIntervals.findFreeSlot(duration, notBefore);
+    }
+
+    @Override
+    public ArrayList<Task> getHotTasks(int limit) {
+        ArrayList<Task> hotTasks = new ArrayList<>();
+        for (Integer id : historyManager.getHotTaskIds(limit)) {
+            Task item = getItemByIdWithoutSavingHistory(id);
+            if (item != null) {
+                hotTasks.add(item);
+            }
+        }
+        return hotTasks;
+    }
+
+    //Связь сохраняется в колонке подзадачи; переданные копии обновляются так же, как объекты InMemoryTaskManager
+    @Override
+    public void linkSubtaskToEpic(Subtask subtask, Epic epic) {
+        int subtaskId = subtask.getId();
+        if (!ItemType.SUBTASK.equals(store.getItemType(subtaskId))
+                || !ItemType.EPIC.equals(store.getItemType(epic.getId()))) {
+            throw new NoSuchTaskExistsException("Нет задачи с таким id");
+        }
+        int previousEpicId = getLinkedEpicId(subtaskId);
+        if (previousEpicId != 0 && previousEpicId != epic.getId()) {
+            aggregatesByEpicId.get(previousEpicId).remove(subtaskId);
+            refreshEpic(previousEpicId);
+        }
+        store.setEpicId(subtaskId, epic.getId());
+        addSubtaskToEpicAggregate(subtaskId, epic.getId());
+        refreshEpic(epic.getId());
+        subtask.setEpicId(epic.getId());
+        epic.addSubtask(getScheduleView(subtaskId));
+    }
+
+    @Override
+    public ArrayList<Subtask> getEpicSubtasks(int epicId) {
+        ArrayList<Subtask> epicSubtasks = new ArrayList<>();
+        EpicSubtasksAggregate subtasksAggregate = aggregatesByEpicId.get(epicId);
+        if (subtasksAggregate == null) {
+            return epicSubtasks;
+        }
+        for (Integer subtaskId : subtasksAggregate.getSubtaskIds()) {
+            epicSubtasks.add((Subtask) store.get(subtaskId));
+        }
+        return epicSubtasks;
+    }
+
+    //Эпик нельзя превратить в задачу и наоборот: у них разные индексы
+    private void checkUpdate(Task anyItem, int id) throws NoSuchTaskExistsException {
+        ItemType storedType = store.getItemType(id);
+        if (storedType == null) {
+            throw new NoSuchTaskExistsException("Задача с указанным Id не существует");
+        }
+        if (storedType.equals(ItemType.EPIC) != anyItem.getItemType().equals(ItemType.EPIC)) {
+            throw new IllegalArgumentException("Тип эпика не меняется при обновлении");
+        }
+    }
+
+    private void checkIntervalAvailability(Task item, int itemId) throws TaskTimeIntersectionException {
+        if (item.getEndTime().isPresent()
+                && scheduledIntervals.hasOverlap(item.getStartTime(), item.getEndTime().get(), itemId)) {
+            throw new TaskTimeIntersectionException("Данное время уже занято задачей " + item);
+        }
+    }
+
+    private void updateEpicText(Task epic, int epicId) {
+        Task storedEpic = store.get(epicId);
+        storedEpic.setName(epic.getName());
+        storedEpic.setDescription(epic.getDescription());
+        store.update(epicId, storedEpic);
+    }
+
+    //Запись новой версии задачи или подзадачи, прежний интервал уже снят; затронутые эпики - в affectedEpicIds
+    private void replaceItem(Task anyItem, int id, Set<Integer> affectedEpicIds) {
+        int previousEpicId = getLinkedEpicId(id);
+        store.update(id, anyItem);
+        addToSchedule(id);
+        int epicId = store.getEpicId(id);
+        if (previousEpicId != 0 && previousEpicId != epicId) {
+            aggregatesByEpicId.get(previousEpicId).remove(id);
+            affectedEpicIds.add(previousEpicId);
+        }
+        //Вклад подзадачи, оставшейся в том же эпике, заменяется на месте
+        if (anyItem.getItemType().equals(ItemType.SUBTASK) && addSubtaskToEpicAggregate(id, epicId)) {
+            affectedEpicIds.add(epicId);
+        }
+    }
+
+    //Интервал и ключ приоритета берутся из колонок, поэтому совпадают с тем, что вернут копии задачи
+    private void addToSchedule(int id) {
+        LocalDateTime startTime = store.getStartTime(id);
+        prioritizedIds.add(new PriorityKey(startTime, id));
+        LocalDateTime endTime = store.getEndTime(id);
+        if (startTime != null && endTime != null) {
+            scheduledIntervals.add(id, startTime, endTime);
+        }
+    }
+
+    private void removeFromSchedule(int id) {
+        prioritizedIds.remove(new PriorityKey(store.getStartTime(id), id));
+        scheduledIntervals.remove(id);
+    }
+
+    private boolean addSubtaskToEpicAggregate(int subtaskId, int epicId) {
+        EpicSubtasksAggregate subtasksAggregate = aggregatesByEpicId.get(epicId);
+        if (subtasksAggregate == null) {
+            return false;
+        }
+        subtasksAggregate.put(getScheduleView(subtaskId));
+        return true;
+    }
+
+    //Эпик, в показателях которого учтена подзадача, или 0
+    private int getLinkedEpicId(int subtaskId) {
+        int epicId = store.getEpicId(subtaskId);
+        EpicSubtasksAggregate subtasksAggregate = aggregatesByEpicId.get(epicId);
+        return subtasksAggregate != null && subtasksAggregate.contains(subtaskId) ? epicId : 0;
+    }
+
+    //Показатели эпика пишутся в его колонки; без подзадач время эпика не меняется, как в InMemoryTaskManager
+    private void refreshEpic(int epicId) {
+        EpicSubtasksAggregate subtasksAggregate = aggregatesByEpicId.get(epicId);
+        store.setStatus(epicId, subtasksAggregate.getStatus());
+        if (!subtasksAggregate.isEmpty()) {
+            store.setTime(epicId, subtasksAggregate.getStartTime(), subtasksAggregate.getDuration(),
+                    subtasksAggregate.getEndTime());
+        }
+    }
+
+    private Task getView(int id) {
+        Task item = store.get(id);
+        if (item.getItemType().equals(ItemType.EPIC)) {
+            for (Integer subtaskId : aggregatesByEpicId.get(id).getSubtaskIds()) {
+                ((Epic) item).addSubtask(getScheduleView(subtaskId));
+            }
+        }
+        return item;
+    }
+
+    //Подзадача только с полями, которые учитывают показатели эпика; строки из пула не читаются
+    private Subtask getScheduleView(int subtaskId) {
+        return new Subtask(subtaskId, null, null, store.getStatus(subtaskId), ItemType.SUBTASK,
+                store.getDuration(subtaskId), store.getStartTime(subtaskId), store.getEpicId(subtaskId));
+    }
+
+    private ArrayList<Task> getViews(Collection<PriorityKey> keys, int limit) {
+        ArrayList<Task> items = new ArrayList<>();
+        Iterator<PriorityKey> iterator = keys.iterator();
+        while (iterator.hasNext() && items.size() < limit) {
+            items.add(store.get(iterator.next().getId()));
+        }
+        return items;
+    }
+}
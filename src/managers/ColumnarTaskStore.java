@@ -0,0 +1,325 @@
+package managers;
+
+import exceptions.NoSuchTaskExistsException;
+import model.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Колоночное хранилище задач для досок с миллионами задач.
+ * Поля задач лежат в параллельных массивах примитивов, индекс в массивах - id задачи;
+ * время хранится в минутах от 01.01.1970 (UTC), строки - ссылками в общий пул.
+ * Объекты Task создаются только при чтении и являются копиями: изменения копии сохраняются через update.
+ * Колонки сохраняются в BinaryTaskSnapshot и загружаются из него без разбора текста.
+ * Хранилище данных ColumnarTaskManager; индексы приоритетов, интервалов и эпиков строит менеджер
+ */
+public class ColumnarTaskStore {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final byte REMOVED = -1;
+    //Совпадают со значениями BinaryTaskSnapshot: колонки переносятся в снимок и обратно без преобразования
+    private static final int NO_TIME = BinaryTaskSnapshot.NO_TIME;
+    private static final int NO_DURATION = BinaryTaskSnapshot.NO_DURATION;
+    private static final int NO_STRING = BinaryTaskSnapshot.NO_STRING;
+    private static final ItemType[] ITEM_TYPES = ItemType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private byte[] itemTypes; //ordinal типа, REMOVED - id свободен
+    private byte[] statuses;
+    private int[] startMinutes;
+    private int[] durationMinutes;
+    private int[] endMinutes; //для эпика окончание не выводится из старта и продолжительности
+    private int[] epicIds;
+    private int[] nameRefs;
+    private int[] descriptionRefs;
+    private StringPool stringPool;
+    private int idCounter = 1;
+    private int size;
+
+    public ColumnarTaskStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ColumnarTaskStore(int expectedSize) {
+        int capacity = Math.max(DEFAULT_CAPACITY, expectedSize + 1);
+        this.itemTypes = new byte[capacity];
+        Arrays.fill(itemTypes, REMOVED);
+        this.statuses = new byte[capacity];
+        this.startMinutes = new int[capacity];
+        this.durationMinutes = new int[capacity];
+        this.endMinutes = new int[capacity];
+        this.epicIds = new int[capacity];
+        this.nameRefs = new int[capacity];
+        this.descriptionRefs = new int[capacity];
+        this.stringPool = new StringPool();
+    }
+
+    //Записи снимка копируются в колонки; строки декодируются из отображенного файла при первом чтении
+    public static ColumnarTaskStore loadSnapshot(Path path) throws IOException {
+        return loadSnapshot(BinaryTaskSnapshot.open(path));
+    }
+
+    public static ColumnarTaskStore loadSnapshot(BinaryTaskSnapshot snapshot) {
+        ColumnarTaskStore store = new ColumnarTaskStore(snapshot.getIdCounter());
+        store.stringPool = new StringPool(snapshot);
+        for (int index = 0; index < snapshot.size(); index++) {
+            int id = snapshot.getId(index);
+            store.itemTypes[id] = snapshot.getItemTypeOrdinal(index);
+            store.statuses[id] = snapshot.getStatusOrdinal(index);
+            store.startMinutes[id] = snapshot.getStartMinutes(index);
+            store.durationMinutes[id] = snapshot.getDurationMinutes(index);
+            store.endMinutes[id] = snapshot.getEndMinutes(index);
+            store.epicIds[id] = snapshot.getEpicId(index);
+            store.nameRefs[id] = snapshot.getNameRef(index);
+            store.descriptionRefs[id] = snapshot.getDescriptionRef(index);
+        }
+        store.idCounter = snapshot.getIdCounter();
+        store.size = snapshot.size();
+        return store;
+    }
+
+    public void writeSnapshot(Path path) throws IOException {
+        try (BinaryTaskSnapshot.Writer writer = new BinaryTaskSnapshot.Writer(path, idCounter)) {
+            writeRecords(writer);
+        }
+    }
+
+    //Записи всех задач в порядке id; историю после них дописывает вызывающий
+    public void writeRecords(BinaryTaskSnapshot.Writer writer) throws IOException {
+        for (int id = 1; id < idCounter; id++) {
+            if (itemTypes[id] != REMOVED) {
+                writer.writeRecord(id,
+                        ITEM_TYPES[itemTypes[id]],
+                        STATUSES[statuses[id]],
+                        startMinutes[id],
+                        durationMinutes[id],
+                        endMinutes[id],
+                        epicIds[id],
+                        stringPool.get(nameRefs[id]),
+                        stringPool.get(descriptionRefs[id]));
+            }
+        }
+    }
+
+    //Присваивает задаче следующий id и сохраняет ее поля
+    public int add(Task anyItem) {
+        int id = idCounter++;
+        ensureCapacity(id + 1);
+        anyItem.setId(id);
+        write(id, anyItem);
+        size++;
+        return id;
+    }
+
+    public void update(int id, Task anyItem) throws NoSuchTaskExistsException {
+        checkContains(id);
+        write(id, anyItem);
+    }
+
+    public boolean remove(int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        itemTypes[id] = REMOVED;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return id > 0 && id < idCounter && itemTypes[id] != REMOVED;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getIdCounter() {
+        return idCounter;
+    }
+
+    //Счетчик нельзя опустить до занятого id: колонки адресуются по id, и новая задача затерла бы старую
+    public void setIdCounter(int idCounter) {
+        int lastId = this.idCounter - 1;
+        while (lastId > 0 && itemTypes[lastId] == REMOVED) {
+            lastId--;
+        }
+        if (idCounter <= lastId) {
+            throw new IllegalArgumentException("Счетчик id должен быть больше занятого id " + lastId);
+        }
+        ensureCapacity(idCounter);
+        this.idCounter = idCounter;
+    }
+
+    //Создает копию задачи по данным колонок; для эпика список подзадач не хранится
+    public Task get(int id) {
+        if (!contains(id)) {
+            return null;
+        }
+        ItemType itemType = ITEM_TYPES[itemTypes[id]];
+        String name = stringPool.get(nameRefs[id]);
+        String description = stringPool.get(descriptionRefs[id]);
+        Status status = STATUSES[statuses[id]];
+        Duration duration = durationMinutes[id] == NO_DURATION ? null : Duration.ofMinutes(durationMinutes[id]);
+        LocalDateTime startTime = fromMinutes(startMinutes[id]);
+        switch (itemType) {
+            case SUBTASK:
+                return new Subtask(id, name, description, status, itemType, duration, startTime, epicIds[id]);
+            case EPIC:
+                Epic epic = new Epic(id, name, description, status, itemType, duration, startTime);
+                epic.setEndTime(fromMinutes(endMinutes[id]));
+                return epic;
+            default:
+                return new Task(id, name, description, status, itemType, duration, startTime);
+        }
+    }
+
+    //Чтение отдельных колонок без создания объекта задачи
+    public ItemType getItemType(int id) {
+        return contains(id) ? ITEM_TYPES[itemTypes[id]] : null;
+    }
+
+    public Status getStatus(int id) {
+        return contains(id) ? STATUSES[statuses[id]] : null;
+    }
+
+    public LocalDateTime getStartTime(int id) {
+        return contains(id) ? fromMinutes(startMinutes[id]) : null;
+    }
+
+    public Duration getDuration(int id) {
+        return !contains(id) || durationMinutes[id] == NO_DURATION ? null : Duration.ofMinutes(durationMinutes[id]);
+    }
+
+    public LocalDateTime getEndTime(int id) {
+        return contains(id) ? fromMinutes(endMinutes[id]) : null;
+    }
+
+    public int getEpicId(int id) {
+        return contains(id) ? epicIds[id] : 0;
+    }
+
+    //Запись отдельных колонок: показатели эпика и связь подзадачи меняются без пересохранения строк
+    public void setStatus(int id, Status status) throws NoSuchTaskExistsException {
+        checkContains(id);
+        statuses[id] = (byte) status.ordinal();
+    }
+
+    public void setTime(int id, LocalDateTime startTime, Duration duration, LocalDateTime endTime)
+            throws NoSuchTaskExistsException {
+        checkContains(id);
+        startMinutes[id] = toMinutes(startTime);
+        durationMinutes[id] = duration == null ? NO_DURATION : Math.toIntExact(duration.toMinutes());
+        endMinutes[id] = toMinutes(endTime);
+    }
+
+    public void setEpicId(int id, int epicId) throws NoSuchTaskExistsException {
+        checkContains(id);
+        epicIds[id] = epicId;
+    }
+
+    public void forEachId(IntConsumer action) {
+        for (int id = 1; id < idCounter; id++) {
+            if (itemTypes[id] != REMOVED) {
+                action.accept(id);
+            }
+        }
+    }
+
+    private void checkContains(int id) throws NoSuchTaskExistsException {
+        if (!contains(id)) {
+            throw new NoSuchTaskExistsException("Задача с указанным Id не существует");
+        }
+    }
+
+    private void write(int id, Task anyItem) {
+        itemTypes[id] = (byte) anyItem.getItemType().ordinal();
+        statuses[id] = (byte) (anyItem.getStatus() == null ? Status.NEW : anyItem.getStatus()).ordinal();
+        startMinutes[id] = toMinutes(anyItem.getStartTime());
+        durationMinutes[id] = anyItem.getDurationMinutes() == null
+                ? NO_DURATION
+                : Math.toIntExact(anyItem.getDurationMinutes().toMinutes());
+        endMinutes[id] = toMinutes(anyItem.getEndTime().orElse(null));
+        epicIds[id] = anyItem.getItemType().equals(ItemType.SUBTASK) ? ((Subtask) anyItem).getEpicId() : 0;
+        nameRefs[id] = stringPool.intern(anyItem.getName());
+        descriptionRefs[id] = stringPool.intern(anyItem.getDescription());
+    }
+
+    private static int toMinutes(LocalDateTime dateTime) {
+        return BinaryTaskSnapshot.toEpochMinutes(dateTime);
+    }
+
+    private static LocalDateTime fromMinutes(int minutes) {
+        return BinaryTaskSnapshot.fromEpochMinutes(minutes);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= itemTypes.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, itemTypes.length + (itemTypes.length >> 1));
+        int oldCapacity = itemTypes.length;
+        itemTypes = Arrays.copyOf(itemTypes, newCapacity);
+        Arrays.fill(itemTypes, oldCapacity, newCapacity, REMOVED);
+        statuses = Arrays.copyOf(statuses, newCapacity);
+        startMinutes = Arrays.copyOf(startMinutes, newCapacity);
+        durationMinutes = Arrays.copyOf(durationMinutes, newCapacity);
+        endMinutes = Arrays.copyOf(endMinutes, newCapacity);
+        epicIds = Arrays.copyOf(epicIds, newCapacity);
+        nameRefs = Arrays.copyOf(nameRefs, newCapacity);
+        descriptionRefs = Arrays.copyOf(descriptionRefs, newCapacity);
+    }
+
+    /**
+     * Пул строк: одинаковые названия и описания хранятся один раз.
+     * Строки из пула не удаляются. Строки загруженного снимка декодируются при первом чтении
+     * и до этого не участвуют в поиске повторов: новая строка, совпавшая с еще не прочитанной, хранится дважды
+     */
+    private static class StringPool {
+        private final HashMap<String, Integer> refsByString = new HashMap<>();
+        private final ArrayList<String> strings;
+        private final BinaryTaskSnapshot snapshot;
+
+        private StringPool() {
+            this.strings = new ArrayList<>();
+            this.snapshot = null;
+        }
+
+        private StringPool(BinaryTaskSnapshot snapshot) {
+            this.strings = new ArrayList<>(Collections.nCopies(snapshot.getStringCount(), (String) null));
+            this.snapshot = snapshot;
+        }
+
+        private int intern(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer ref = refsByString.get(value);
+            if (ref == null) {
+                ref = strings.size();
+                strings.add(value);
+                refsByString.put(value, ref);
+            }
+            return ref;
+        }
+
+        private String get(int ref) {
+            if (ref == NO_STRING) {
+                return null;
+            }
+            String value = strings.get(ref);
+            if (value == null && snapshot != null && ref < snapshot.getStringCount()) {
+                value = snapshot.getString(ref);
+                strings.set(ref, value);
+                refsByString.putIfAbsent(value, ref);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package managers;
+
+import exceptions.NoSuchTaskExistsException;
+import model.Task;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Потокобезопасная история для конкурентного менеджера: просмотр задачи не берет блокировку,
+ * а записывается в один из кольцевых буферов (по потоку) одним CAS. Упорядоченная история
+ * (вложенный HistoryManager) изменяется только под drainLock, куда буферы сливаются пачками:
+ * при заполнении буфера наполовину, перед удалением и перед чтением истории.
+ * Порядок просмотров одного потока сохраняется; просмотры разных потоков,
+ * записанные в разные буферы почти одновременно, могут попасть в историю в любом порядке
+ */
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int BUFFER_SIZE = 128;
+    private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+    private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 2;
+    private static final int ITERATOR_PAGE_SIZE = 256;
+
+    private final HistoryManager historyManager;
+    private final ReadBuffer[] readBuffers;
+    private final int stripeMask;
+    private final ReentrantLock drainLock;
+
+    public ConcurrentHistoryManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1;
+        this.readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+        this.stripeMask = stripes - 1;
+        this.drainLock = new ReentrantLock();
+    }
+
+    @Override
+    public void add(Task anyItem) {
+        if (anyItem == null) {
+            return;
+        }
+        ReadBuffer readBuffer = readBuffers[stripeOfCurrentThread()];
+        int pending = readBuffer.offer(anyItem);
+        //Буфер полон: просмотр не теряется, поток сам сливает буферы и повторяет запись
+        while (pending < 0) {
+            drainLock.lock();
+            try {
+                drainBuffers();
+            } finally {
+                drainLock.unlock();
+            }
+            pending = readBuffer.offer(anyItem);
+        }
+        if (pending >= DRAIN_THRESHOLD && drainLock.tryLock()) {
+            try {
+                drainBuffers();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            return historyManager.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /*
+     * Перед удалением сливаются буферы, чтобы ранний просмотр не вернул задачу в историю.
+     * Слив ждет публикации уже занятых ячеек: иначе просмотр, записанный до удаления, остался бы в буфере
+     * за чужой неопубликованной ячейкой и попал бы в историю после удаления
+     */
+    @Override
+    public void remove(int anyItemId) {
+        drainLock.lock();
+        try {
+            for (ReadBuffer readBuffer : readBuffers) {
+                readBuffer.drainTo(historyManager, true);
+            }
+            historyManager.remove(anyItemId);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistoryPage(int afterId, int limit) throws NoSuchTaskExistsException {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            return historyManager.getHistoryPage(afterId, limit);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Integer> getHotTaskIds(int limit) {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            return historyManager.getHotTaskIds(limit);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /*
+     * Обход страницами по ITERATOR_PAGE_SIZE записей: блокировка держится только на время чтения страницы.
+     * Если задачу, на которой остановилась страница, удалили из истории, обход прерывается
+     */
+    @Override
+    public Iterator<Task> descendingIterator() {
+        return new Iterator<>() {
+            private Iterator<Task> page = Collections.emptyIterator();
+            private int lastId;
+            private boolean isLastPage;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !isLastPage) {
+                    List<Task> nextPage;
+                    try {
+                        nextPage = getHistoryPage(lastId, ITERATOR_PAGE_SIZE);
+                    } catch (NoSuchTaskExistsException e) {
+                        throw new ConcurrentModificationException("Задача " + lastId + " удалена из истории");
+                    }
+                    isLastPage = nextPage.size() < ITERATOR_PAGE_SIZE;
+                    if (!nextPage.isEmpty()) {
+                        lastId = nextPage.get(nextPage.size() - 1).getId();
+                    }
+                    page = nextPage.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+    }
+
+    private int stripeOfCurrentThread() {
+        long threadId = Thread.currentThread().getId();
+        return (int) (threadId ^ (threadId >>> 32)) * 0x9E3779B9 >>> 16 & stripeMask;
+    }
+
+    //Только под drainLock
+    private void drainBuffers() {
+        for (ReadBuffer readBuffer : readBuffers) {
+            readBuffer.drainTo(historyManager, false);
+        }
+    }
+
+    /**
+     * Кольцевой буфер: запись - CAS счетчика writeCounter и публикация ссылки в ячейке,
+     * чтение - только под drainLock, поэтому readCounter меняет один поток
+     */
+    private static class ReadBuffer {
+        private final AtomicReferenceArray<Task> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private volatile long readCounter;
+
+        //Возвращает число записей в буфере после добавления или -1, если буфер полон
+        private int offer(Task item) {
+            while (true) {
+                long write = writeCounter.get();
+                long size = write - readCounter;
+                if (size >= BUFFER_SIZE) {
+                    return -1;
+                }
+                if (writeCounter.compareAndSet(write, write + 1)) {
+                    slots.lazySet((int) (write & BUFFER_MASK), item);
+                    return (int) size + 1;
+                }
+            }
+        }
+
+        /*
+         * Переносит записи, занятые к началу слива. Если счетчик уже увеличен, а ссылка еще не опубликована,
+         * слив либо ждет публикации (запись идет сразу за CAS), либо останавливается до следующего слива
+         */
+        private void drainTo(HistoryManager historyManager, boolean isWaitingForPublication) {
+            long read = readCounter;
+            long write = writeCounter.get();
+            while (read < write) {
+                int slot = (int) (read & BUFFER_MASK);
+                Task item = slots.get(slot);
+                if (item == null) {
+                    if (!isWaitingForPublication) {
+                        break;
+                    }
+                    Thread.onSpinWait();
+                    continue;
+                }
+                slots.lazySet(slot, null);
+                historyManager.add(item);
+                read++;
+            }
+            readCounter = read;
+        }
+    }
+}
@@ -0,0 +1,593 @@
+package managers;
+
+import exceptions.NoSuchTaskExistsException;
+import exceptions.TaskTimeIntersectionException;
+import model.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Потокобезопасный менеджер задач.
+ * Чтение идет без блокировок из ConcurrentHashMap (id -> задача) и ConcurrentSkipListMap (приоритеты).
+ * Изменения блокируют полосы (stripes) по id задачи и id затронутых эпиков, поэтому операции
+ * с несвязанными эпиками не конкурируют. Проверка пересечения по времени и запись интервала
+ * выполняются атомарно под отдельной блокировкой расписания, которая берется последней.
+ * Новая задача получает id только после того, как ее интервал проверен и записан
+ */
+public class ConcurrentTaskManager implements TaskManager {
+    private static final int LOCK_STRIPES = 64;
+
+    private final HistoryManager historyManager;
+    private final AtomicInteger idCounter;
+    private final ConcurrentHashMap<Integer, Task> itemsById;
+    private final ConcurrentHashMap<ItemType, ConcurrentHashMap<Integer, Task>> itemsByType;
+    private final ConcurrentSkipListMap<PriorityKey, Task> prioritizedItems;
+    private final ConcurrentHashMap<Integer, PriorityKey> priorityKeysById;
+    private final ConcurrentHashMap<Integer, Integer> epicIdBySubtaskId;
+    private final IntervalIndex scheduledIntervals; //доступ только под scheduleLock
+    private final ReentrantLock scheduleLock;
+    private final ReentrantLock[] stripes;
+
+    public ConcurrentTaskManager() {
+        this(InMemoryHistoryManager.UNLIMITED_CAPACITY);
+    }
+
+    public ConcurrentTaskManager(int historyCapacity) {
+        this(Managers.getDefaultHistory(historyCapacity));
+    }
+
+    //Переданная история используется только через ConcurrentHistoryManager
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        this.historyManager = new ConcurrentHistoryManager(historyManager);
+        this.idCounter = new AtomicInteger(1);
+        this.itemsById = new ConcurrentHashMap<>();
+        this.itemsByType = new ConcurrentHashMap<>();
+        this.prioritizedItems = new ConcurrentSkipListMap<>();
+        this.priorityKeysById = new ConcurrentHashMap<>();
+        this.epicIdBySubtaskId = new ConcurrentHashMap<>();
+        this.scheduledIntervals = new IntervalIndex();
+        this.scheduleLock = new ReentrantLock();
+        this.stripes = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    @Override
+    public int createItem(Task anyItem) {
+        ItemType anyItemType = anyItem.getItemType();
+        int id = anyItemType.equals(ItemType.EPIC) ? idCounter.getAndIncrement() : reserveNewInterval(anyItem);
+        int epicId = anyItemType.equals(ItemType.SUBTASK) ? ((Subtask) anyItem).getEpicId() : 0;
+
+        //Интервал уже записан под новым id, а сама задача станет видна после блокировки полос
+        List<ReentrantLock> locks = lockStripes(id, epicId);
+        try {
+            anyItem.setId(id);
+            itemsByType.computeIfAbsent(anyItemType, type -> new ConcurrentHashMap<>()).put(id, anyItem);
+            itemsById.put(id, anyItem);
+            if (!anyItemType.equals(ItemType.EPIC)) {
+                addToPrioritizedItems(anyItem, id);
+            }
+            if (epicId != 0) {
+                attachSubtaskToEpic((Subtask) anyItem, epicId);
+            }
+        } finally {
+            unlock(locks);
+        }
+        return id;
+    }
+
+    /*
+     * Пакет применяется целиком или не применяется вовсе: под всеми полосами и блокировкой расписания
+     * интервалы пакета проверяются до изменений, и id выдаются только после проверки.
+     * Чтения без блокировок могут увидеть часть пакета, пока он записывается
+     */
+    @Override
+    public ArrayList<Integer> createItems(List<? extends Task> items) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        List<ReentrantLock> locks = lockAllStripes();
+        try {
+            scheduleLock.lock();
+            try {
+                InMemoryTaskManager.checkBatchIntervalsAvailability(scheduledIntervals, items, Collections.emptySet());
+                //Id пакета идут подряд, как в InMemoryTaskManager
+                int firstId = idCounter.getAndAdd(items.size());
+                for (Task anyItem : items) {
+                    int id = firstId + ids.size();
+                    ids.add(id);
+                    if (!anyItem.getItemType().equals(ItemType.EPIC) && anyItem.getEndTime().isPresent()) {
+                        scheduledIntervals.add(id, anyItem.getStartTime(), anyItem.getEndTime().get());
+                    }
+                }
+            } finally {
+                scheduleLock.unlock();
+            }
+            for (int i = 0; i < items.size(); i++) {
+                Task anyItem = items.get(i);
+                int id = ids.get(i);
+                anyItem.setId(id);
+                itemsByType.computeIfAbsent(anyItem.getItemType(), type -> new ConcurrentHashMap<>()).put(id, anyItem);
+                itemsById.put(id, anyItem);
+                if (!anyItem.getItemType().equals(ItemType.EPIC)) {
+                    addToPrioritizedItems(anyItem, id);
+                }
+            }
+            for (Task anyItem : items) {
+                if (anyItem.getItemType().equals(ItemType.SUBTASK) && ((Subtask) anyItem).getEpicId() != 0) {
+                    attachSubtaskToEpic((Subtask) anyItem, ((Subtask) anyItem).getEpicId());
+                }
+            }
+        } finally {
+            unlock(locks);
+        }
+        return ids;
+    }
+
+    //Как и createItems: все задачи пакета проверяются до изменений, обновление эпика ничего не меняет
+    @Override
+    public void updateItems(Map<Integer, ? extends Task> items) {
+        List<ReentrantLock> locks = lockAllStripes();
+        try {
+            List<Task> itemsToUpdate = new ArrayList<>();
+            List<Integer> ids = new ArrayList<>();
+            for (Map.Entry<Integer, ? extends Task> entry : items.entrySet()) {
+                if (getItemByIdWithoutSavingHistory(entry.getKey()) == null) {
+                    throw new NoSuchTaskExistsException("Задача с указанным Id не существует");
+                }
+                if (!entry.getValue().getItemType().equals(ItemType.EPIC)) {
+                    itemsToUpdate.add(entry.getValue());
+                    ids.add(entry.getKey());
+                }
+            }
+            scheduleLock.lock();
+            try {
+                InMemoryTaskManager.checkBatchIntervalsAvailability(scheduledIntervals, itemsToUpdate, items.keySet());
+                //Прежние интервалы пакета снимаются заранее, чтобы задачи пакета могли обменяться временем
+                for (Integer id : ids) {
+                    scheduledIntervals.remove(id);
+                }
+                for (int i = 0; i < itemsToUpdate.size(); i++) {
+                    Task anyItem = itemsToUpdate.get(i);
+                    if (anyItem.getEndTime().isPresent()) {
+                        scheduledIntervals.add(ids.get(i), anyItem.getStartTime(), anyItem.getEndTime().get());
+                    }
+                }
+            } finally {
+                scheduleLock.unlock();
+            }
+            for (int i = 0; i < itemsToUpdate.size(); i++) {
+                replaceLockedItem(itemsToUpdate.get(i), ids.get(i));
+            }
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    @Override
+    public int getIdCounter() {
+        return idCounter.get();
+    }
+
+    @Override
+    public void setIdCounter(int idCounter) {
+        this.idCounter.set(idCounter);
+    }
+
+    @Override
+    public ArrayList<Task> getAllItemsByType(ItemType itemType) {
+        return new ArrayList<>(itemsByType.get(itemType).values());
+    }
+
+    @Override
+    public void updateItem(Task anyItem, int id) throws NoSuchTaskExistsException {
+        ItemType anyItemType = anyItem.getItemType();
+        int newEpicId = anyItemType.equals(ItemType.SUBTASK) ? ((Subtask) anyItem).getEpicId() : 0;
+
+        while (true) {
+            Task storedItem = getItemByIdWithoutSavingHistory(id);
+            if (storedItem == null) {
+                throw new NoSuchTaskExistsException("Задача с указанным Id не существует");
+            }
+            int previousEpicId = epicIdBySubtaskId.getOrDefault(id, 0);
+            List<ReentrantLock> locks = lockStripes(id, previousEpicId, newEpicId);
+            try {
+                //Пока брали блокировки, подзадачу могли перепривязать к другому эпику
+                if (previousEpicId != epicIdBySubtaskId.getOrDefault(id, 0)) {
+                    continue;
+                }
+                storedItem = getItemByIdWithoutSavingHistory(id);
+                if (storedItem == null) {
+                    throw new NoSuchTaskExistsException("Задача с указанным Id не существует");
+                }
+                if (anyItemType.equals(ItemType.EPIC)) {
+                    return;
+                }
+                reserveInterval(anyItem, id);
+                replaceLockedItem(anyItem, id);
+                return;
+            } finally {
+                unlock(locks);
+            }
+        }
+    }
+
+    @Override
+    public void removeItemById(int id) throws NoSuchTaskExistsException {
+        while (true) {
+            Task currItem = getItemByIdWithoutSavingHistory(id);
+            if (currItem == null) {
+                throw new NoSuchTaskExistsException("Нет задачи с таким id");
+            }
+            int[] lockedIds = getIdsToLockForRemove(currItem);
+            List<ReentrantLock> locks = lockStripes(lockedIds);
+            try {
+                //Пока брали блокировки, набор связанных задач мог измениться
+                if (!Arrays.equals(lockedIds, getIdsToLockForRemove(currItem))) {
+                    continue;
+                }
+                if (getItemByIdWithoutSavingHistory(id) != currItem) {
+                    throw new NoSuchTaskExistsException("Нет задачи с таким id");
+                }
+                if (currItem.getItemType().equals(ItemType.EPIC)) {
+                    for (int subtaskId : lockedIds) {
+                        if (subtaskId != id) {
+                            removeSubtask(subtaskId);
+                        }
+                    }
+                    removeLockedItem(currItem);
+                } else if (currItem.getItemType().equals(ItemType.SUBTASK)) {
+                    removeSubtask(id);
+                } else {
+                    removeLockedItem(currItem);
+                }
+                return;
+            } finally {
+                unlock(locks);
+            }
+        }
+    }
+
+    @Override
+    public void removeAllItemsByType(ItemType itemType) {
+        for (Integer id : new ArrayList<>(itemsByType.get(itemType).keySet())) {
+            try {
+                removeItemById(id);
+            } catch (NoSuchTaskExistsException e) {
+                //Задачу уже удалил другой поток (или она удалена вместе с эпиком)
+            }
+        }
+    }
+
+    @Override
+    public ArrayList<Task> getPrioritizedTasks() {
+        return new ArrayList<>(prioritizedItems.values());
+    }
+
+    @Override
+    public ArrayList<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(prioritizedItems.subMap(PriorityKey.lowerBound(from),
+                PriorityKey.lowerBound(to)).values());
+    }
+
+    @Override
+    public ArrayList<Task> getPrioritizedTasksPage(int afterId, int limit) throws NoSuchTaskExistsException {
+        Collection<Task> tail;
+        if (afterId == 0) {
+            tail = prioritizedItems.values();
+        } else {
+            PriorityKey cursorKey = priorityKeysById.get(afterId);
+            if (cursorKey == null) {
+                throw new NoSuchTaskExistsException("Нет задачи с таким id");
+            }
+            tail = prioritizedItems.tailMap(cursorKey, false).values();
+        }
+        ArrayList<Task> page = new ArrayList<>();
+        Iterator<Task> iterator = tail.iterator();
+        while (iterator.hasNext() && page.size() < limit) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    //Найденное время может быть занято другим потоком до создания задачи - тогда createItem выбросит исключение
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore) {
+        scheduleLock.lock();
+        try {
+            return scheduledIntervals.findFreeSlot(duration, notBefore);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    /*
+     * Просмотр читается без блокировки. Если задачу удалили между чтением и записью в историю,
+     * удаление могло уже пройти по истории - тогда запись отменяется. Id не используются повторно,
+     * поэтому проверяется только наличие id, а не та же версия задачи
+     */
+    @Override
+    public Task getItemById(int id) throws NoSuchTaskExistsException {
+        Task item = getItemByIdWithoutSavingHistory(id);
+        if (item == null) {
+            throw new NoSuchTaskExistsException("Нет задачи с таким id");
+        }
+        historyManager.add(item);
+        if (!itemsById.containsKey(id)) {
+            historyManager.remove(id);
+        }
+        return item;
+    }
+
+    @Override
+    public Task getItemByIdWithoutSavingHistory(int id) {
+        return itemsById.get(id);
+    }
+
+    @Override
+    public ArrayList<Task> getHotTasks(int limit) {
+        ArrayList<Task> hotTasks = new ArrayList<>();
+        for (Integer id : historyManager.getHotTaskIds(limit)) {
+            Task item = getItemByIdWithoutSavingHistory(id);
+            if (item != null) {
+                hotTasks.add(item);
+            }
+        }
+        return hotTasks;
+    }
+
+    @Override
+    public ArrayList<Subtask> getEpicSubtasks(int epicId) {
+        ArrayList<Subtask> epicSubtasks = new ArrayList<>();
+        List<ReentrantLock> locks = lockStripes(epicId);
+        try {
+            Task epic = getItemByIdWithoutSavingHistory(epicId);
+            if (!(epic instanceof Epic)) {
+                return epicSubtasks;
+            }
+            for (Integer subtaskId : ((Epic) epic).getSubtasksAggregate().getSubtaskIds()) {
+                epicSubtasks.add((Subtask) getItemByIdWithoutSavingHistory(subtaskId));
+            }
+        } finally {
+            unlock(locks);
+        }
+        return epicSubtasks;
+    }
+
+    @Override
+    public ArrayList<Task> getAllItemsOfAllTypes() {
+        return new ArrayList<>(itemsById.values());
+    }
+
+    @Override
+    public void linkSubtaskToEpic(Subtask subtask, Epic epic) {
+        int subtaskId = subtask.getId();
+        while (true) {
+            int previousEpicId = epicIdBySubtaskId.getOrDefault(subtaskId, 0);
+            List<ReentrantLock> locks = lockStripes(subtaskId, previousEpicId, epic.getId());
+            try {
+                if (previousEpicId != epicIdBySubtaskId.getOrDefault(subtaskId, 0)) {
+                    continue;
+                }
+                if (previousEpicId != 0 && previousEpicId != epic.getId()) {
+                    detachSubtaskFromEpic(subtaskId);
+                }
+                epic.addSubtask(subtask);
+                subtask.setEpicId(epic.getId());
+                attachSubtaskToEpic(subtask, epic.getId());
+                return;
+            } finally {
+                unlock(locks);
+            }
+        }
+    }
+
+    //Вызывается под блокировками полос задачи и обоих эпиков подзадачи, интервал уже записан
+    private void replaceLockedItem(Task anyItem, int id) {
+        ItemType anyItemType = anyItem.getItemType();
+        Task storedItem = getItemByIdWithoutSavingHistory(id);
+        int previousEpicId = epicIdBySubtaskId.getOrDefault(id, 0);
+        int newEpicId = anyItemType.equals(ItemType.SUBTASK) ? ((Subtask) anyItem).getEpicId() : 0;
+        if (!storedItem.getItemType().equals(anyItemType)) {
+            itemsByType.get(storedItem.getItemType()).remove(id);
+        }
+        itemsByType.computeIfAbsent(anyItemType, type -> new ConcurrentHashMap<>()).put(id, anyItem);
+        itemsById.put(id, anyItem);
+        removeFromPrioritizedItems(id);
+        addToPrioritizedItems(anyItem, id);
+        if (previousEpicId != 0 && previousEpicId != newEpicId) {
+            detachSubtaskFromEpic(id);
+        }
+        if (newEpicId != 0) {
+            attachSubtaskToEpic((Subtask) anyItem, newEpicId);
+        }
+    }
+
+    //Вызывается под блокировкой полосы задачи
+    private void reserveInterval(Task item, int id) throws TaskTimeIntersectionException {
+        scheduleLock.lock();
+        try {
+            Optional<LocalDateTime> endTime = item.getEndTime();
+            if (endTime.isPresent()) {
+                if (scheduledIntervals.hasOverlap(item.getStartTime(), endTime.get(), id)) {
+                    throw new TaskTimeIntersectionException("Данное время уже занято задачей " + item);
+                }
+                scheduledIntervals.add(id, item.getStartTime(), endTime.get());
+            } else {
+                scheduledIntervals.remove(id);
+            }
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    //Задача с пересечением не получает id: он выдается под блокировкой расписания после проверки
+    private int reserveNewInterval(Task item) throws TaskTimeIntersectionException {
+        Optional<LocalDateTime> endTime = item.getEndTime();
+        if (endTime.isEmpty()) {
+            return idCounter.getAndIncrement();
+        }
+        scheduleLock.lock();
+        try {
+            if (scheduledIntervals.hasOverlap(item.getStartTime(), endTime.get(), 0)) {
+                throw new TaskTimeIntersectionException("Данное время уже занято задачей " + item);
+            }
+            int id = idCounter.getAndIncrement();
+            scheduledIntervals.add(id, item.getStartTime(), endTime.get());
+            return id;
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void releaseInterval(int id) {
+        scheduleLock.lock();
+        try {
+            scheduledIntervals.remove(id);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void addToPrioritizedItems(Task item, int id) {
+        PriorityKey key = new PriorityKey(item.getStartTime(), id);
+        priorityKeysById.put(id, key);
+        prioritizedItems.put(key, item);
+    }
+
+    private void removeFromPrioritizedItems(int id) {
+        PriorityKey key = priorityKeysById.remove(id);
+        if (key != null) {
+            prioritizedItems.remove(key);
+        }
+    }
+
+    //Вызывается под блокировками полос подзадачи и ее эпика
+    private void removeSubtask(int subtaskId) {
+        Task subtask = getItemByIdWithoutSavingHistory(subtaskId);
+        if (subtask == null) {
+            return;
+        }
+        if (epicIdBySubtaskId.containsKey(subtaskId)) {
+            detachSubtaskFromEpic(subtaskId);
+            ((Subtask) subtask).setEpicId(0);
+        }
+        removeLockedItem(subtask);
+    }
+
+    //Задача убирается из индекса раньше, чем из истории: так getItemById видит удаление и отменяет свой просмотр
+    private void removeLockedItem(Task item) {
+        int id = item.getId();
+        itemsByType.get(item.getItemType()).remove(id);
+        itemsById.remove(id);
+        historyManager.remove(id);
+        removeFromPrioritizedItems(id);
+        releaseInterval(id);
+    }
+
+    //Вызывается под блокировкой полосы эпика
+    private void attachSubtaskToEpic(Subtask subtask, int epicId) {
+        Task epic = getItemByIdWithoutSavingHistory(epicId);
+        if (epic instanceof Epic) {
+            ((Epic) epic).addSubtask(subtask);
+            epicIdBySubtaskId.put(subtask.getId(), epicId);
+            refreshEpic((Epic) epic);
+        }
+    }
+
+    private void detachSubtaskFromEpic(int subtaskId) {
+        Integer epicId = epicIdBySubtaskId.remove(subtaskId);
+        if (epicId == null) {
+            return;
+        }
+        Epic epic = (Epic) getItemByIdWithoutSavingHistory(epicId);
+        epic.deleteSubtaskById(subtaskId);
+        refreshEpic(epic);
+    }
+
+    private void refreshEpic(Epic epic) {
+        EpicSubtasksAggregate subtasksAggregate = epic.getSubtasksAggregate();
+        epic.setStatus(subtasksAggregate.getStatus());
+        if (!subtasksAggregate.isEmpty()) {
+            epic.setStartTime(subtasksAggregate.getStartTime());
+            epic.setDurationMinutes(subtasksAggregate.getDuration());
+            epic.setEndTime(subtasksAggregate.getEndTime());
+        }
+    }
+
+    //Id, полосы которых нужно заблокировать для удаления: сама задача, эпик подзадачи или подзадачи эпика
+    private int[] getIdsToLockForRemove(Task item) {
+        int id = item.getId();
+        if (item.getItemType().equals(ItemType.SUBTASK)) {
+            return new int[]{id, epicIdBySubtaskId.getOrDefault(id, 0)};
+        } else if (item.getItemType().equals(ItemType.EPIC)) {
+            ReentrantLock epicLock = stripeFor(id);
+            epicLock.lock();
+            try {
+                Set<Integer> subtaskIds = ((Epic) item).getSubtasksAggregate().getSubtaskIds();
+                int[] ids = new int[subtaskIds.size() + 1];
+                ids[0] = id;
+                int i = 1;
+                for (Integer subtaskId : subtaskIds) {
+                    ids[i++] = subtaskId;
+                }
+                return ids;
+            } finally {
+                epicLock.unlock();
+            }
+        } else {
+            return new int[]{id};
+        }
+    }
+
+    private ReentrantLock stripeFor(int id) {
+        return stripes[Math.floorMod(id, LOCK_STRIPES)];
+    }
+
+    //Полосы блокируются в порядке возрастания номера, чтобы исключить взаимную блокировку
+    private List<ReentrantLock> lockStripes(int... ids) {
+        boolean[] isStripeNeeded = new boolean[LOCK_STRIPES];
+        for (int id : ids) {
+            if (id != 0) {
+                isStripeNeeded[Math.floorMod(id, LOCK_STRIPES)] = true;
+            }
+        }
+        List<ReentrantLock> locks = new ArrayList<>();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            if (isStripeNeeded[i]) {
+                stripes[i].lock();
+                locks.add(stripes[i]);
+            }
+        }
+        return locks;
+    }
+
+    //Пакетные операции блокируют все полосы: затронутые id и эпики заранее неизвестны
+    private List<ReentrantLock> lockAllStripes() {
+        List<ReentrantLock> locks = new ArrayList<>(LOCK_STRIPES);
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+            locks.add(stripe);
+        }
+        return locks;
+    }
+
+    private void unlock(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+}
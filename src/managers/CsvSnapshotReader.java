@@ -0,0 +1,174 @@
+package managers;
+
+import model.Task;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Чтение CSV-снимка за один проход. Строки различаются по положению в файле, а не по содержимому:
+ * заголовок, строки задач до пустой строки, после нее - строка истории.
+ * Файл отображается в память, область задач делится на куски по границам строк,
+ * и куски разбираются параллельно в ForkJoinPool; задачи возвращаются в порядке файла
+ */
+public class CsvSnapshotReader {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final List<Task> tasks;
+    private final String historyLine;
+
+    private CsvSnapshotReader(List<Task> tasks, String historyLine) {
+        this.tasks = tasks;
+        this.historyLine = historyLine;
+    }
+
+    public static CsvSnapshotReader read(Path path, Function<String, Task> lineParser) throws IOException {
+        return read(path, lineParser, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static CsvSnapshotReader read(Path path, Function<String, Task> lineParser, int chunkSize)
+            throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                //больше 2 ГБ в память одним куском не отображается
+                return readSequentially(path, lineParser);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int length = buffer.capacity();
+        int tasksStart = Math.min(nextLineStart(buffer, 0, length), length);
+        int blankLine = findLastBlankLine(buffer, tasksStart, length);
+        int tasksEnd = blankLine < 0 ? length : blankLine;
+        String historyLine = blankLine < 0 ? "" : decode(buffer, blankLine + 1, length).strip();
+
+        List<ChunkParser> chunkParsers = new ArrayList<>();
+        int chunkStart = tasksStart;
+        while (chunkStart < tasksEnd) {
+            int chunkEnd = Math.min(nextLineStart(buffer, Math.min(chunkStart + chunkSize, tasksEnd) - 1, tasksEnd),
+                    tasksEnd);
+            chunkParsers.add(new ChunkParser(buffer, chunkStart, chunkEnd, lineParser));
+            chunkStart = chunkEnd;
+        }
+        ForkJoinTask.invokeAll(chunkParsers);
+
+        int tasksCount = 0;
+        for (ChunkParser chunkParser : chunkParsers) {
+            tasksCount += chunkParser.join().size();
+        }
+        List<Task> tasks = new ArrayList<>(tasksCount);
+        for (ChunkParser chunkParser : chunkParsers) {
+            tasks.addAll(chunkParser.join());
+        }
+        return new CsvSnapshotReader(tasks, historyLine);
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public String getHistoryLine() {
+        return historyLine;
+    }
+
+    private static CsvSnapshotReader readSequentially(Path path, Function<String, Task> lineParser)
+            throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        StringBuilder historyLineBuilder = new StringBuilder();
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            reader.readLine();
+            String line = reader.readLine();
+            while (line != null && !line.isEmpty()) {
+                tasks.add(lineParser.apply(line));
+                line = reader.readLine();
+            }
+            while (line != null) {
+                historyLineBuilder.append(line.strip());
+                line = reader.readLine();
+            }
+        }
+        return new CsvSnapshotReader(tasks, historyLineBuilder.toString());
+    }
+
+    //Начало строки, следующей за позицией from; to, если перевода строки нет
+    private static int nextLineStart(ByteBuffer buffer, int from, int to) {
+        for (int i = Math.max(from, 0); i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return to;
+    }
+
+    /*
+     * Позиция перевода строки, которым заканчивается пустая строка перед историей; -1, если ее нет.
+     * Поиск идет с конца: после пустой строки в файле только строка истории
+     */
+    private static int findLastBlankLine(ByteBuffer buffer, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer.get(i) == '\n' && (i == from || buffer.get(i - 1) == '\n')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        return new String(copyBytes(buffer, from, to), StandardCharsets.UTF_8);
+    }
+
+    //Копирование через duplicate: у каждого куска своя позиция, общий буфер не меняется
+    private static byte[] copyBytes(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        ByteBuffer chunkBuffer = buffer.duplicate();
+        chunkBuffer.position(from);
+        chunkBuffer.get(bytes);
+        return bytes;
+    }
+
+    //Разбирает строки задач в границах [from, to); кусок начинается с начала строки
+    private static class ChunkParser extends RecursiveTask<List<Task>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int from;
+        private final int to;
+        private final Function<String, Task> lineParser;
+
+        ChunkParser(ByteBuffer buffer, int from, int to, Function<String, Task> lineParser) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.lineParser = lineParser;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            byte[] bytes = copyBytes(buffer, from, to);
+            List<Task> chunkTasks = new ArrayList<>();
+            int lineStart = 0;
+            for (int i = 0; i <= bytes.length; i++) {
+                if (i == bytes.length || bytes[i] == '\n') {
+                    int lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+                    if (lineEnd > lineStart) {
+                        chunkTasks.add(lineParser.apply(
+                                new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8)));
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            return chunkTasks;
+        }
+    }
+}
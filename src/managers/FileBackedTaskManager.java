@@ -3,38 +3,92 @@ package managers;
 import exceptions.ManagerSaveException;
 import model.*;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Stream;
-
-public class FileBackedTaskManager extends InMemoryTaskManager {
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Менеджер сохраняет состояние в файл одним из двух способов:
+ * без журнала каждое изменение перезаписывает снимок целиком;
+ * с журналом изменение дописывается в TaskJournal, а снимок пишется в checkpoint и в фоне:
+ * когда в текущем сегменте журнала набирается snapshotThreshold записей, ссылки на задачи и историю
+ * копируются, сегмент закрывается, а снимок пишет отдельный поток, пока менеджер принимает изменения.
+ * Задачи, измененные во время записи снимка, могут попасть в него в новом состоянии,
+ * но их изменения есть и в новом сегменте, поэтому восстановление (снимок + сегменты) дает точное состояние.
+ * Записанный снимок покрывает закрытые сегменты, и они удаляются.
+ * Снимок пишется в CSV или в BinaryTaskSnapshot (SnapshotFormat); при загрузке формат определяется по файлу.
+ * Без журнала просмотр задачи не перезаписывает снимок: id дописывается в файл истории рядом со снимком
+ * (<снимок>.history), который сжимается до текущей истории по мере роста и очищается следующим снимком
+ */
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
     private final Path backupFilePath;
+    public static final int DEFAULT_SNAPSHOT_THRESHOLD = 100_000;
+    public static final int MIN_HISTORY_LOG_COMPACTION_THRESHOLD = 1_024;
+
+    public enum SnapshotFormat {
+        CSV,
+        BINARY //загружается без разбора текста, см. BinaryTaskSnapshot
+    }
+
+    private final TaskJournal journal; //null - без журнала
+    private int snapshotThreshold = DEFAULT_SNAPSHOT_THRESHOLD;
+    private volatile SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+    private boolean isWaitingForJournalCommit = true; //при SYNC_PER_BATCH операция ждет force своей пачки
+    private ExecutorService snapshotExecutor; //снимки пишутся по одному в порядке закрытия сегментов
+    private CompletableFuture<Void> runningSnapshot = CompletableFuture.completedFuture(null);
+    private int historyLogRecords; //записей в файле истории после последнего снимка или сжатия
+    private int historyLogCompactionThreshold = MIN_HISTORY_LOG_COMPACTION_THRESHOLD;
 
     public FileBackedTaskManager(Path backupFilePath) {
         super();
         this.backupFilePath = backupFilePath;
+        this.journal = null;
     }
 
-    private FileBackedTaskManager(int idCounter,
-                                  HashMap<ItemType, HashMap<Integer, Task>> allItems,
-                                  HistoryManager historyManager,
-                                  TreeSet<Task> prioritizedItems,
-                                  Path backupFilePath) {
-        super(idCounter, allItems, historyManager, prioritizedItems);
+    public FileBackedTaskManager(Path backupFilePath, Path journalFilePath) {
+        this(backupFilePath, journalFilePath, TaskJournal.Durability.NONE);
+    }
+
+    //Новый менеджер с журналом начинает с пустого снимка и пустого журнала
+    public FileBackedTaskManager(Path backupFilePath, Path journalFilePath, TaskJournal.Durability durability) {
+        super();
+        this.backupFilePath = backupFilePath;
+        this.journal = openJournal(journalFilePath, durability);
+        save();
+        try {
+            journal.truncate();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при очистке журнала");
+        }
+    }
+
+    //Пустой менеджер, в индексы которого restore загружает задачи
+    private FileBackedTaskManager(Path backupFilePath, TaskJournal journal, int expectedItems) {
+        super(Managers.getDefaultHistory(), expectedItems);
         this.backupFilePath = backupFilePath;
+        this.journal = journal;
     }
 
     protected FileBackedTaskManager() {
         super();
         backupFilePath = Path.of("project_files/autosave.txt");
+        journal = null;
     }
 
     protected FileBackedTaskManager(int idCounter,
@@ -43,134 +97,196 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                                     TreeSet<Task> prioritizedItems) {
         super(idCounter, allItems, historyManager, prioritizedItems);
         backupFilePath = Path.of("project_files/autosave.txt");
+        journal = null;
     }
 
     public static FileBackedTaskManager loadFromFile(Path file) {
-        List<Task> tasksFromFile = new ArrayList<>(); //временное хранилище всех items из файла
-        String historyIdsLine = "";
-        int restoredIdCounter;
-        HashMap<ItemType, HashMap<Integer, Task>> restoredAllItems;
-        TreeSet<Task> restoredPrioritizedItems = new TreeSet<>(new TaskStartTimeComparator());
-        HistoryManager restoredHistoryManager;
-
-        //вычитываем данные из файла
+        return restore(file, null, TaskJournal.Durability.NONE);
+    }
+
+    //Снимок из file, поверх него - записи журнала; дальнейшие изменения дописываются в тот же журнал
+    public static FileBackedTaskManager loadFromFile(Path file, Path journalFile) {
+        return restore(file, journalFile, TaskJournal.Durability.NONE);
+    }
+
+    public static FileBackedTaskManager loadFromFile(Path file, Path journalFile, TaskJournal.Durability durability) {
+        return restore(file, journalFile, durability);
+    }
+
+    /*
+     * Записи снимка (двоичного или CSV) и журнала пишутся прямо в индексы нового менеджера:
+     * журнал заменяет и удаляет задачи уже в них, а связи эпиков и их показатели собираются один раз в конце
+     */
+    private static FileBackedTaskManager restore(Path file, Path journalFile, TaskJournal.Durability durability) {
+        BinaryTaskSnapshot binarySnapshot = null;
+        CsvSnapshotReader csvSnapshot = null;
+        int expectedItems = 0;
         try {
-            tasksFromFile = loadTasksFromFile(file);
-            historyIdsLine = loadHistoryLineFromFile(file);
+            if (BinaryTaskSnapshot.isBinarySnapshot(file)) {
+                binarySnapshot = BinaryTaskSnapshot.open(file);
+                expectedItems = binarySnapshot.size();
+            } else {
+                csvSnapshot = CsvSnapshotReader.read(file, FileBackedTaskManager::fromString);
+                expectedItems = csvSnapshot.getTasks().size();
+            }
         } catch (IOException e) {
             System.out.println("Ошибка чтения файла");
         }
-        //Восстанавливаем структуру и список приоритетов
-        restoredAllItems = restoreAllItemsWithPriorities(tasksFromFile, restoredPrioritizedItems);
-        //Восстанавливаем подзадачи для эпиков
-        restoreSubtasksForEpics(restoredAllItems);
-        //Актуализируем idCounter
-        restoredIdCounter = restoreIdCounter(restoredAllItems);
-        //Восстанавливаем HistoryManager
-        restoredHistoryManager = restoreHistoryManager(historyIdsLine, restoredAllItems);
-        //Конструируем FileBackedTaskManager
-        FileBackedTaskManager restoredFileManager = new FileBackedTaskManager(restoredIdCounter,
-                restoredAllItems,
-                restoredHistoryManager,
-                restoredPrioritizedItems,
-                file);
-        //Восстанавливаем startTime / duration / EndTime для Epic
-        if (restoredAllItems.get(ItemType.EPIC) != null) {
-            restoredAllItems.get(ItemType.EPIC).values().stream()
-                    .map(Epic.class::cast)
-                    .mapToInt(Epic::getId)
-                    .forEach(restoredFileManager::updateEpicStartTimeDurationEndTime);
-        }
-        return restoredFileManager;
+        FileBackedTaskManager restoredManager = new FileBackedTaskManager(file,
+                journalFile == null ? null : openJournal(journalFile, durability),
+                expectedItems);
+
+        LinkedHashSet<Integer> historyIds = new LinkedHashSet<>();
+        int snapshotIdCounter = 1;
+        if (binarySnapshot != null) {
+            binarySnapshot.forEachTask(restoredManager::putRestoredItem);
+            for (int index = 0; index < binarySnapshot.getHistorySize(); index++) {
+                historyIds.add(binarySnapshot.getHistoryId(index));
+            }
+            snapshotIdCounter = binarySnapshot.getIdCounter();
+        } else if (csvSnapshot != null) {
+            for (Task item : csvSnapshot.getTasks()) {
+                restoredManager.putRestoredItem(item);
+            }
+            if (!csvSnapshot.getHistoryLine().equals("")) {
+                for (String id : csvSnapshot.getHistoryLine().split(",")) {
+                    historyIds.add(Integer.parseInt(id));
+                }
+            }
+        }
+        //Применяем просмотры после снимка и изменения из журнала
+        try {
+            restoredManager.historyLogRecords = replayHistoryLog(getHistoryLogPath(file), historyIds);
+        } catch (IOException e) {
+            System.out.println("Ошибка чтения файла истории");
+        }
+        if (journalFile != null) {
+            try {
+                for (Path segment : TaskJournal.getSegments(journalFile)) {
+                    restoredManager.replayJournal(segment, historyIds);
+                }
+            } catch (IOException e) {
+                System.out.println("Ошибка чтения журнала");
+            }
+        }
+        //Подзадачи эпиков и их показатели, затем история и idCounter
+        restoredManager.finishRestore();
+        for (Integer id : historyIds) {
+            Task item = restoredManager.getItemByIdWithoutSavingHistory(id);
+            if (item != null) {
+                restoredManager.historyManager.add(item);
+            }
+        }
+        restoredManager.idCounter = Math.max(restoreIdCounter(restoredManager.itemsById.keys()), snapshotIdCounter);
+        return restoredManager;
     }
 
     protected static int restoreIdCounter(HashMap<ItemType, HashMap<Integer, Task>> restoredAllItems) {
-        OptionalInt id = restoredAllItems.values().stream()
+        return restoreIdCounter(restoredAllItems.values().stream()
                 .flatMap(hashmap -> hashmap.keySet().stream())
                 .mapToInt(Integer::intValue)
-                .max();
-        if (id.isPresent()) {
-            return id.getAsInt();
-        } else {
-            return 1;
-        }
+                .toArray());
     }
 
-    private static List<Task> loadTasksFromFile(Path path) throws IOException {
-        List<Task> tasksFromFile = new ArrayList<>();
-
-        try (Stream<String> lines = Files.lines(path)) {
-            lines.filter(line -> line.contains("TASK") || line.contains("SUBTASK") || line.contains("EPIC"))
-                    .forEach(line -> tasksFromFile.add(fromString(line)));
+    //Следующий свободный id: новая задача после восстановления не должна занять id восстановленной
+    private static int restoreIdCounter(int[] restoredIds) {
+        int maxId = 0;
+        for (int id : restoredIds) {
+            maxId = Math.max(maxId, id);
         }
-
-        return tasksFromFile;
+        return maxId + 1;
     }
 
-    private static String loadHistoryLineFromFile(Path path) throws IOException {
-        StringBuilder historyLineBuilder = new StringBuilder();
-
-        try (Stream<String> lines = Files.lines(path)) {
-            lines.skip(1)
-                    .filter(line -> !line.contains("TASK")
-                            && !line.contains("SUBTASK")
-                            && !line.contains("EPIC")
-                            && !line.equals(""))
-                    .forEach(historyLineBuilder::append);
+    /*
+     * P заменяет задачу, R удаляет ее из задач и истории, V переносит задачу в конец истории.
+     * Запись без перевода строки в конце файла оборвана сбоем во время записи и пропускается
+     */
+    private void replayJournal(Path journalFile, LinkedHashSet<Integer> historyIds) throws IOException {
+        if (!Files.exists(journalFile)) {
+            return;
         }
-        return historyLineBuilder.toString();
-    }
-
-    private static HashMap<ItemType, HashMap<Integer, Task>> restoreAllItemsWithPriorities(List<Task> tasksFromFile,
-                                                                                           TreeSet<Task> restoredPrioritizedItems) {
-        HashMap<ItemType, HashMap<Integer, Task>> restoredAllItems = new HashMap<>();
-        HashMap<Integer, Task> items;
-        for (Task item : tasksFromFile) {
-            ItemType currentItemType = item.getItemType();
-
-            //Восстанавливаем структуру allItems
-            if (restoredAllItems.get(currentItemType) != null) {
-                items = restoredAllItems.get(currentItemType);
-            } else {
-                items = new HashMap<>();
+        boolean isLastRecordComplete = endsWithLineBreak(journalFile);
+        try (BufferedReader reader = Files.newBufferedReader(journalFile)) {
+            String record = reader.readLine();
+            while (record != null) {
+                String nextRecord = reader.readLine();
+                if (nextRecord == null && !isLastRecordComplete) {
+                    return;
+                }
+                int separator = record.indexOf(',');
+                String recordType = record.substring(0, separator);
+                String recordData = record.substring(separator + 1);
+                switch (recordType) {
+                    case TaskJournal.PUT:
+                        putRestoredItem(fromString(recordData));
+                        break;
+                    case TaskJournal.REMOVE:
+                        removeRestoredItem(Integer.parseInt(recordData));
+                        historyIds.remove(Integer.parseInt(recordData));
+                        break;
+                    case TaskJournal.VIEW:
+                        historyIds.remove(Integer.parseInt(recordData));
+                        historyIds.add(Integer.parseInt(recordData));
+                        break;
+                }
+                record = nextRecord;
             }
-            items.put(item.getId(), item);
-            restoredAllItems.put(currentItemType, items);
-            //восстанавливаем prioritizedItems
-            restoredPrioritizedItems.add(item);
         }
-        return restoredAllItems;
     }
 
-    private static void restoreSubtasksForEpics(HashMap<ItemType, HashMap<Integer, Task>> restoredAllItems) {
-        if (restoredAllItems.get(ItemType.SUBTASK) == null) {
-            return;
+    /*
+     * Каждая запись файла истории - id просмотренной задачи, который переносится в конец истории.
+     * Повторное применение уже учтенных в снимке просмотров не меняет порядок, поэтому сбой
+     * между записью снимка и очисткой файла истории безопасен
+     */
+    private static int replayHistoryLog(Path historyLogFile, LinkedHashSet<Integer> historyIds) throws IOException {
+        if (!Files.exists(historyLogFile)) {
+            return 0;
         }
-        for (Task subtask : restoredAllItems.get(ItemType.SUBTASK).values()) {
-            restoredAllItems.get(ItemType.EPIC).values().stream()
-                    .map(Epic.class::cast)
-                    .forEach(epic -> epic.addSubtask((Subtask) subtask));
+        boolean isLastRecordComplete = endsWithLineBreak(historyLogFile);
+        int records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(historyLogFile)) {
+            String record = reader.readLine();
+            while (record != null) {
+                String nextRecord = reader.readLine();
+                if (nextRecord == null && !isLastRecordComplete) {
+                    break;
+                }
+                if (!record.isEmpty()) {
+                    historyIds.remove(Integer.parseInt(record));
+                    historyIds.add(Integer.parseInt(record));
+                    records++;
+                }
+                record = nextRecord;
+            }
         }
+        return records;
     }
 
-    private static HistoryManager restoreHistoryManager(String historyIdsLine,
-                                                        HashMap<ItemType, HashMap<Integer, Task>> restoredAllItems) {
-        HistoryManager restoredHistoryManager = Managers.getDefaultHistory();
+    private static Path getHistoryLogPath(Path snapshotPath) {
+        return snapshotPath.resolveSibling(snapshotPath.getFileName() + ".history");
+    }
 
-        String[] historyIdsFromLine = historyIdsLine.split(",");
-        if (!historyIdsLine.equals("")) {
-            for (String id : historyIdsFromLine) {
-                for (HashMap<Integer, Task> entrySet : restoredAllItems.values()) {
-                    restoredHistoryManager.add(entrySet.get(Integer.parseInt(id)));
-                }
+    private static boolean endsWithLineBreak(Path file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "r")) {
+            if (randomAccessFile.length() == 0) {
+                return true;
             }
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            return randomAccessFile.read() == '\n';
+        }
+    }
+
+    private static TaskJournal openJournal(Path journalFilePath, TaskJournal.Durability durability) {
+        try {
+            return new TaskJournal(journalFilePath, durability);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось открыть журнал");
         }
-        return restoredHistoryManager;
     }
 
-    private static String historyToString(HistoryManager historyManager) {
+    private static String historyToString(List<Task> historyList) {
         StringBuilder historyIdBuilder = new StringBuilder();
-        List<Task> historyList = historyManager.getHistory();
         for (int i = 0; i < historyList.size(); i++) {
             if (i < historyList.size() - 1) {
                 historyIdBuilder.append(historyList.get(i).getId())
@@ -184,8 +300,8 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
 
     private static Task fromString(String value) {
         String[] taskParams = value.split(",");
-        LocalDateTime startTime = taskParams[5].equals("") ? null : LocalDateTime.parse(taskParams[5], formatter);
-        Duration duration = taskParams[6].equals("") ? null : Duration.parse(taskParams[6]);
+        LocalDateTime startTime = taskParams[5].equals("") ? null : parseStartTime(taskParams[5]);
+        Duration duration = taskParams[6].equals("") ? null : parseDuration(taskParams[6]);
         // [0]:id,
         // [1]:type,
         // [2]:name,
@@ -225,8 +341,114 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         }
     }
 
+    //Разбор "dd-MM-yyyy HH:mm" по позициям; строка в другом виде разбирается форматтером
+    private static LocalDateTime parseStartTime(String value) {
+        if (value.length() == 16 && value.charAt(2) == '-' && value.charAt(5) == '-'
+                && value.charAt(10) == ' ' && value.charAt(13) == ':') {
+            int day = parseDigits(value, 0, 2);
+            int month = parseDigits(value, 3, 5);
+            int year = parseDigits(value, 6, 10);
+            int hour = parseDigits(value, 11, 13);
+            int minute = parseDigits(value, 14, 16);
+            if (day >= 0 && month >= 0 && year >= 0 && hour >= 0 && minute >= 0) {
+                return LocalDateTime.of(year, month, day, hour, minute);
+            }
+        }
+        return LocalDateTime.parse(value, formatter);
+    }
+
+    //Duration.toString пишет целые минуты как "PT<часы>H<минуты>M"; остальное разбирает Duration.parse
+    private static Duration parseDuration(String value) {
+        if (value.startsWith("PT") && value.endsWith("M")) {
+            int hoursEnd = value.indexOf('H');
+            int hours = hoursEnd < 0 ? 0 : parseDigits(value, 2, hoursEnd);
+            int minutes = parseDigits(value, hoursEnd < 0 ? 2 : hoursEnd + 1, value.length() - 1);
+            if (hours >= 0 && minutes >= 0) {
+                return Duration.ofMinutes(hours * 60L + minutes);
+            }
+        }
+        return Duration.parse(value);
+    }
+
+    //Число из цифр в границах [from, to); -1, если там не только цифры или их больше 9
+    private static int parseDigits(String value, int from, int to) {
+        if (from >= to || to - from > 9) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char digit = value.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            result = result * 10 + (digit - '0');
+        }
+        return result;
+    }
+
     private void save() throws ManagerSaveException {
-        try (BufferedWriter fileWriter = new BufferedWriter(new FileWriter(backupFilePath.toFile()))) {
+        writeSnapshot(super.getAllItemsOfAllTypes(), historyManager.getHistory(), idCounter);
+        historyLogRecords = 0;
+    }
+
+    //Снимок пишется во временный файл и заменяет прежний целиком: сбой при записи не портит последний снимок
+    private void writeSnapshot(List<Task> items, List<Task> history, int snapshotIdCounter) throws ManagerSaveException {
+        Path tempFilePath = backupFilePath.resolveSibling(backupFilePath.getFileName() + ".tmp");
+        if (snapshotFormat == SnapshotFormat.BINARY) {
+            writeBinarySnapshot(tempFilePath, items, history, snapshotIdCounter);
+        } else {
+            writeCsvSnapshot(tempFilePath, items, history);
+        }
+        try {
+            Files.move(tempFilePath, backupFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            //история в снимке уже учитывает все просмотры из файла истории
+            Files.deleteIfExists(getHistoryLogPath(backupFilePath));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при записи в файл");
+        }
+    }
+
+    //Дописывает просмотр в файл истории; разросшийся файл заменяется текущей историей
+    private void appendToHistoryLog(int id) throws ManagerSaveException {
+        Path historyLogPath = getHistoryLogPath(backupFilePath);
+        try {
+            if (historyLogRecords >= historyLogCompactionThreshold) {
+                List<Task> history = historyManager.getHistory();
+                Path tempFilePath = historyLogPath.resolveSibling(historyLogPath.getFileName() + ".tmp");
+                try (BufferedWriter historyWriter = Files.newBufferedWriter(tempFilePath, StandardCharsets.UTF_8)) {
+                    for (Task item : history) {
+                        historyWriter.write(item.getId() + "\n");
+                    }
+                }
+                Files.move(tempFilePath, historyLogPath,
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                historyLogRecords = history.size();
+                historyLogCompactionThreshold = Math.max(MIN_HISTORY_LOG_COMPACTION_THRESHOLD, 2 * history.size());
+            } else {
+                Files.writeString(historyLogPath, id + "\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                historyLogRecords++;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при записи в файл истории");
+        }
+    }
+
+    private static void writeBinarySnapshot(Path path, List<Task> items, List<Task> history, int snapshotIdCounter)
+            throws ManagerSaveException {
+        List<Integer> historyIds = new ArrayList<>(history.size());
+        for (Task item : history) {
+            historyIds.add(item.getId());
+        }
+        try {
+            BinaryTaskSnapshot.write(path, items, historyIds, snapshotIdCounter);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при записи в файл");
+        }
+    }
+
+    private void writeCsvSnapshot(Path tempFilePath, List<Task> items, List<Task> history) throws ManagerSaveException {
+        try (BufferedWriter fileWriter = Files.newBufferedWriter(tempFilePath, StandardCharsets.UTF_8)) {
             String header = String.join(",",
                     "id",
                     "type",
@@ -238,16 +460,195 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                     "epic\n");
 
             fileWriter.write(header);
-            for (Task task : super.getAllItemsOfAllTypes()) {
+            for (Task task : items) {
                 fileWriter.write(toString((task)));
             }
             fileWriter.write("\n");
-            fileWriter.write(historyToString(historyManager));
+            fileWriter.write(historyToString(history));
         } catch (IOException e) {
             throw new ManagerSaveException("Произошла ошибка при записи в файл");
         }
     }
 
+    //Записывает снимок всего состояния и ждет записи; сегменты журнала, вошедшие в снимок, удаляются
+    public void checkpoint() throws ManagerSaveException {
+        CompletableFuture<Void> snapshot = checkpointAsync();
+        try {
+            snapshot.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание записи снимка прервано");
+        } catch (ExecutionException e) {
+            //ошибка сообщена здесь, следующей операции сообщать о ней не нужно
+            if (runningSnapshot == snapshot) {
+                runningSnapshot = CompletableFuture.completedFuture(null);
+            }
+            throw new ManagerSaveException("Произошла ошибка при записи снимка");
+        }
+    }
+
+    //Без журнала снимок пишется сразу, с журналом - в фоне; результат завершается после записи снимка
+    public CompletableFuture<Void> checkpointAsync() throws ManagerSaveException {
+        if (journal == null) {
+            save();
+            return CompletableFuture.completedFuture(null);
+        }
+        return startSnapshot();
+    }
+
+    //Формат следующих снимков; прежний снимок любого формата загружается loadFromFile
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    /*
+     * Менеджер изменяется одним потоком, поэтому при SYNC_PER_BATCH с ожиданием в пачку попадает одна операция.
+     * Без ожидания операции отдаются потоку записи одна за другой, и пока идет force, следующие копятся
+     * в одну пачку; их сохранность подтверждает syncJournal
+     */
+    public void setWaitingForJournalCommit(boolean isWaitingForJournalCommit) {
+        this.isWaitingForJournalCommit = isWaitingForJournalCommit;
+    }
+
+    //Количество записей в текущем сегменте журнала, после которого начинается фоновый снимок
+    public void setSnapshotThreshold(int snapshotThreshold) {
+        if (snapshotThreshold < 1) {
+            throw new IllegalArgumentException("Порог снимка должен быть положительным");
+        }
+        this.snapshotThreshold = snapshotThreshold;
+    }
+
+    //Состояние копируется по ссылкам в текущем потоке, строки снимка формируются и пишутся в потоке снимков
+    private CompletableFuture<Void> startSnapshot() throws ManagerSaveException {
+        List<Task> items = super.getAllItemsOfAllTypes();
+        List<Task> history = historyManager.getHistory();
+        int snapshotIdCounter = idCounter;
+        int sealedSegment;
+        try {
+            sealedSegment = journal.rotate();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при закрытии сегмента журнала");
+        }
+        if (snapshotExecutor == null) {
+            snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        runningSnapshot = CompletableFuture.runAsync(() -> {
+            writeSnapshot(items, history, snapshotIdCounter);
+            try {
+                journal.deleteSealedSegments(sealedSegment);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка при удалении сегментов журнала");
+            }
+        }, snapshotExecutor);
+        return runningSnapshot;
+    }
+
+    /*
+     * Результат завершается, когда все сохраненные до вызова изменения сброшены на диск.
+     * Нужен при ASYNC_INTERVAL, если изменение должно пережить сбой питания
+     */
+    public CompletableFuture<Void> syncJournal() throws ManagerSaveException {
+        if (journal == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return journal.sync();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при записи в журнал");
+        }
+    }
+
+    //Дожидается записи начатых снимков и закрывает журнал; о несообщенной ошибке снимка сообщает после закрытия
+    @Override
+    public void close() throws ManagerSaveException {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdown();
+            try {
+                snapshotExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка при закрытии журнала");
+            }
+        }
+        if (runningSnapshot.isCompletedExceptionally()) {
+            runningSnapshot = CompletableFuture.completedFuture(null);
+            throw new ManagerSaveException("Произошла ошибка при записи фонового снимка");
+        }
+    }
+
+    //Без журнала перезаписывается весь снимок, с журналом - дописывается текущее состояние затронутых задач
+    private void persist(Collection<Integer> affectedIds) throws ManagerSaveException {
+        if (journal == null) {
+            save();
+            return;
+        }
+        try {
+            for (Integer id : affectedIds) {
+                Task item = getItemByIdWithoutSavingHistory(id);
+                if (item != null) {
+                    journal.appendPut(toString(item));
+                } else {
+                    journal.appendRemove(id);
+                }
+            }
+            commitJournal();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при записи в журнал");
+        }
+    }
+
+    /*
+     * При SYNC_PER_BATCH операция завершается только после force пачки, в которую попали ее записи,
+     * если ожидание не отключено в setWaitingForJournalCommit.
+     * Заполненный сегмент запускает фоновый снимок, если предыдущий уже записан.
+     * Ошибка фонового снимка сообщается один раз - следующей операции после записи ее изменений в журнал;
+     * сегменты, которые должен был покрыть снимок, остаются и применяются при восстановлении
+     */
+    private void commitJournal() throws IOException {
+        CompletableFuture<Void> commit = journal.commit();
+        boolean isSnapshotFailed = runningSnapshot.isCompletedExceptionally();
+        if (isSnapshotFailed) {
+            runningSnapshot = CompletableFuture.completedFuture(null);
+        } else if (journal.getActiveSegmentRecords() >= snapshotThreshold && runningSnapshot.isDone()) {
+            startSnapshot();
+        }
+        if (journal.getDurability() == TaskJournal.Durability.SYNC_PER_BATCH && isWaitingForJournalCommit) {
+            try {
+                commit.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Ожидание записи журнала прервано", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Ошибка записи журнала", e.getCause());
+            }
+        }
+        if (isSnapshotFailed) {
+            throw new ManagerSaveException("Произошла ошибка при записи фонового снимка");
+        }
+    }
+
+    //Задача и эпик, в показатели которого она входит: изменение подзадачи меняет и эпик
+    private void collectAffectedIds(Set<Integer> affectedIds, int id) {
+        affectedIds.add(id);
+        Task item = getItemByIdWithoutSavingHistory(id);
+        if (item instanceof Subtask) {
+            Integer epicId = epicIdBySubtaskId.get(id);
+            if (epicId != null) {
+                affectedIds.add(epicId);
+            }
+        }
+    }
+
     private String toString(Task task) {
         String[] lineElements =
                 {
@@ -279,38 +680,97 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
 
     public int createItem(Task anyItem) {
         int itemId = super.createItem(anyItem);
-        save();
+        Set<Integer> affectedIds = new LinkedHashSet<>();
+        collectAffectedIds(affectedIds, itemId);
+        persist(affectedIds);
         return itemId;
     }
 
+    //Пакет сохраняется в файл один раз
+    @Override
+    public ArrayList<Integer> createItems(List<? extends Task> items) {
+        ArrayList<Integer> itemIds = super.createItems(items);
+        Set<Integer> affectedIds = new LinkedHashSet<>();
+        for (Integer itemId : itemIds) {
+            collectAffectedIds(affectedIds, itemId);
+        }
+        persist(affectedIds);
+        return itemIds;
+    }
+
+    //Сохраняются и эпик, из которого подзадача ушла, и эпик, в который перешла
     @Override
     public void updateItem(Task anyItem, int id) {
+        Set<Integer> affectedIds = new LinkedHashSet<>();
+        collectAffectedIds(affectedIds, id);
         super.updateItem(anyItem, id);
-        save();
+        collectAffectedIds(affectedIds, id);
+        persist(affectedIds);
+    }
+
+    @Override
+    public void updateItems(Map<Integer, ? extends Task> items) {
+        Set<Integer> affectedIds = new LinkedHashSet<>();
+        for (Integer id : items.keySet()) {
+            collectAffectedIds(affectedIds, id);
+        }
+        super.updateItems(items);
+        for (Integer id : items.keySet()) {
+            collectAffectedIds(affectedIds, id);
+        }
+        persist(affectedIds);
     }
 
     @Override
     public void removeItemById(int id) {
+        Set<Integer> affectedIds = new LinkedHashSet<>();
+        collectAffectedIds(affectedIds, id);
+        Task item = getItemByIdWithoutSavingHistory(id);
+        if (item instanceof Epic) {
+            affectedIds.addAll(((Epic) item).getSubtasksAggregate().getSubtaskIds());
+        }
         super.removeItemById(id);
-        save();
+        persist(affectedIds);
     }
 
     @Override
     public void removeAllItemsByType(ItemType itemType) {
+        Set<Integer> affectedIds = new LinkedHashSet<>();
+        if (allItems.containsKey(itemType)) {
+            for (Task item : allItems.get(itemType).values()) {
+                collectAffectedIds(affectedIds, item.getId());
+                if (item instanceof Epic) {
+                    affectedIds.addAll(((Epic) item).getSubtasksAggregate().getSubtaskIds());
+                }
+            }
+        }
         super.removeAllItemsByType(itemType);
-        save();
+        persist(affectedIds);
     }
 
     @Override
     public Task getItemById(int id) {
         Task task = super.getItemById(id);
-        save();
+        if (journal == null) {
+            appendToHistoryLog(id);
+            return task;
+        }
+        try {
+            journal.appendView(id);
+            commitJournal();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при записи в журнал");
+        }
         return task;
     }
 
     @Override
     public void linkSubtaskToEpic(Subtask subtask, Epic epic) {
+        Set<Integer> affectedIds = new LinkedHashSet<>();
+        collectAffectedIds(affectedIds, subtask.getId());
         super.linkSubtaskToEpic(subtask, epic);
-        save();
+        collectAffectedIds(affectedIds, subtask.getId());
+        affectedIds.add(epic.getId());
+        persist(affectedIds);
     }
 }
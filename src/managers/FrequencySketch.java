@@ -0,0 +1,85 @@
+package managers;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch: приблизительная частота обращений к id в памяти фиксированного размера.
+ * Каждый id попадает в одну ячейку в каждой из DEPTH строк; оценка - минимум по строкам,
+ * поэтому она может быть завышена коллизиями, но не занижена.
+ * При увеличении растут только минимальные ячейки (conservative update), что уменьшает завышение.
+ * Ячейки одного id лежат в одном блоке из 16 счетчиков (64 байта, одна строка кеша):
+ * в блоке на каждую строку таблицы приходится по 4 счетчика, из которых id выбирает один
+ */
+public class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int ROW_CELLS_IN_BLOCK = 4;
+    private static final int BLOCK_SIZE = DEPTH * ROW_CELLS_IN_BLOCK;
+
+    private final int[] counters;
+    private final int width;
+    private final int blockMask;
+
+    public FrequencySketch(int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("Ширина таблицы должна быть положительной");
+        }
+        //Степень двойки не меньше width и не меньше числа счетчиков строки в блоке
+        this.width = Math.max(ROW_CELLS_IN_BLOCK, Integer.highestOneBit(width - 1) << 1);
+        this.blockMask = this.width / ROW_CELLS_IN_BLOCK - 1;
+        this.counters = new int[DEPTH * this.width];
+    }
+
+    //Возвращает оценку частоты после увеличения
+    public int increment(int key) {
+        int hash = hash(key);
+        int estimate = estimateByHash(hash);
+        for (int row = 0; row < DEPTH; row++) {
+            int cell = cellOf(hash, row);
+            if (counters[cell] == estimate) {
+                counters[cell]++;
+            }
+        }
+        return estimate + 1;
+    }
+
+    public int estimate(int key) {
+        return estimateByHash(hash(key));
+    }
+
+    private int estimateByHash(int hash) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[cellOf(hash, row)]);
+        }
+        return estimate;
+    }
+
+    //Старение: все счетчики делятся пополам, давние обращения постепенно перестают влиять на оценку
+    public void halve() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= 1;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(counters, 0);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    //Перемешивание murmur3: и соседние, и далекие id расходятся по разным блокам
+    private static int hash(int key) {
+        int hash = key * 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+
+    //Младшие 8 бит хеша выбирают счетчики в строках блока (по 2 бита на строку), остальные - блок
+    private int cellOf(int hash, int row) {
+        int block = (hash >>> 8) & blockMask;
+        return block * BLOCK_SIZE + row * ROW_CELLS_IN_BLOCK + ((hash >>> (row * 2)) & (ROW_CELLS_IN_BLOCK - 1));
+    }
+}
@@ -0,0 +1,57 @@
+package managers;
+
+import exceptions.NoSuchTaskExistsException;
+import model.Task;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Слой над историей, который дополнительно учитывает частоту просмотров в AccessFrequencyTracker.
+ * Учет стоит нескольких обращений к памяти на каждый просмотр, поэтому подключается отдельно:
+ * Managers.getFrequencyTrackingHistory
+ */
+public class FrequencyTrackingHistoryManager implements HistoryManager {
+
+    private final HistoryManager historyManager;
+    private final AccessFrequencyTracker frequencyTracker;
+
+    public FrequencyTrackingHistoryManager(HistoryManager historyManager, AccessFrequencyTracker frequencyTracker) {
+        this.historyManager = historyManager;
+        this.frequencyTracker = frequencyTracker;
+    }
+
+    @Override
+    public void add(Task anyItem) {
+        historyManager.add(anyItem);
+        if (anyItem != null) {
+            frequencyTracker.recordAccess(anyItem.getId());
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public void remove(int anyItemId) {
+        historyManager.remove(anyItemId);
+        frequencyTracker.remove(anyItemId);
+    }
+
+    @Override
+    public Iterator<Task> descendingIterator() {
+        return historyManager.descendingIterator();
+    }
+
+    @Override
+    public List<Task> getHistoryPage(int afterId, int limit) throws NoSuchTaskExistsException {
+        return historyManager.getHistoryPage(afterId, limit);
+    }
+
+    @Override
+    public List<Integer> getHotTaskIds(int limit) {
+        return frequencyTracker.getHotIds(limit);
+    }
+}
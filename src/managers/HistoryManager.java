@@ -1,7 +1,9 @@
 package managers;
 
+import exceptions.NoSuchTaskExistsException;
 import model.Task;
 
+import java.util.Iterator;
 import java.util.List;
 
 public interface HistoryManager {
@@ -11,4 +13,13 @@ public interface HistoryManager {
     List<Task> getHistory();
 
     void remove(int anyItemId);
+
+    //Обход от последнего просмотра к первому без копирования истории
+    Iterator<Task> descendingIterator();
+
+    //Не больше limit записей, начиная с предыдущей перед задачей afterId (0 - с последнего просмотра)
+    List<Task> getHistoryPage(int afterId, int limit) throws NoSuchTaskExistsException;
+
+    //Не больше limit id самых часто просматриваемых задач, по убыванию частоты (если частота учитывается)
+    List<Integer> getHotTaskIds(int limit);
 }
@@ -17,14 +17,17 @@ import java.io.IOException;
 import java.lang.reflect.Type;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.TreeSet;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Менеджер сохраняет состояние на сервере по ключам в enum Keys:
  * три ключа для разных типов задач
  * один ключ для истории
+ * История при просмотрах отправляется не чаще раза в historyFlushDelayMillis: первый просмотр
+ * планирует отправку, следующие до нее только меняют историю в памяти (0 - отправка при каждом просмотре)
  */
 
 public class HttpTaskManager extends FileBackedTaskManager {
@@ -33,11 +36,22 @@ public class HttpTaskManager extends FileBackedTaskManager {
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
             .create();
+    public static final long DEFAULT_HISTORY_FLUSH_DELAY_MILLIS = 100;
     private final KVTaskClient kvTaskClient;
+    private final long historyFlushDelayMillis;
+    private ScheduledExecutorService historyFlushExecutor; //создается при первой отложенной отправке
+    private boolean isHistoryChanged;
+    private boolean isHistoryFlushScheduled;
+    private ManagerSaveException historyFlushFailure; //ошибка фоновой отправки, до успешной отправки истории
 
     public HttpTaskManager(String host) throws InterruptedException, IOException {
+        this(host, DEFAULT_HISTORY_FLUSH_DELAY_MILLIS);
+    }
+
+    public HttpTaskManager(String host, long historyFlushDelayMillis) throws InterruptedException, IOException {
         super();
         kvTaskClient = new KVTaskClient(host);
+        this.historyFlushDelayMillis = historyFlushDelayMillis;
     }
 
     private HttpTaskManager(int idCounter,
@@ -47,6 +61,7 @@ public class HttpTaskManager extends FileBackedTaskManager {
                             String host) throws IOException, InterruptedException {
         super(idCounter, allItems, historyManager, prioritizedItems);
         kvTaskClient = new KVTaskClient(host);
+        historyFlushDelayMillis = DEFAULT_HISTORY_FLUSH_DELAY_MILLIS;
     }
 
     public static HttpTaskManager loadFromServer(String host) throws InterruptedException, IOException {
@@ -153,18 +168,25 @@ public class HttpTaskManager extends FileBackedTaskManager {
     }
 
     @Override
-    public int createItem(Task anyItem) {
+    public synchronized int createItem(Task anyItem) {
         int id = super.createItem(anyItem);
         try {
             saveItemsToServer(anyItem.getItemType());
         } catch (IOException | InterruptedException e) {
-            System.out.println(Arrays.toString(e.getStackTrace()));
+            throw new ManagerSaveException("Ошибка сохранения задач на сервер");
         }
         return id;
     }
 
     @Override
-    public void updateItem(Task anyItem, int id) {
+    public synchronized ArrayList<Integer> createItems(List<? extends Task> items) {
+        ArrayList<Integer> ids = super.createItems(items);
+        saveBatchToServer(items);
+        return ids;
+    }
+
+    @Override
+    public synchronized void updateItem(Task anyItem, int id) {
         super.updateItem(anyItem, id);
         try {
             saveItemsToServer(anyItem.getItemType());
@@ -174,7 +196,13 @@ public class HttpTaskManager extends FileBackedTaskManager {
     }
 
     @Override
-    public void removeItemById(int id) {
+    public synchronized void updateItems(Map<Integer, ? extends Task> items) {
+        super.updateItems(items);
+        saveBatchToServer(items.values());
+    }
+
+    @Override
+    public synchronized void removeItemById(int id) {
         if (getItemByIdWithoutSavingHistory(id) == null) {
             throw new NoSuchTaskExistsException("Нет задачи с таким id");
         }
@@ -187,29 +215,91 @@ public class HttpTaskManager extends FileBackedTaskManager {
         }
     }
 
+    //Удаление подзадач меняет эпики, удаление эпиков - подзадачи; удаленные задачи уходят и из истории
     @Override
-    public void removeAllItemsByType(ItemType itemType) {
+    public synchronized void removeAllItemsByType(ItemType itemType) {
         super.removeAllItemsByType(itemType);
         try {
             saveItemsToServer(itemType);
+            if (itemType.equals(ItemType.SUBTASK) && allItems.containsKey(ItemType.EPIC)) {
+                saveItemsToServer(ItemType.EPIC);
+            } else if (itemType.equals(ItemType.EPIC) && allItems.containsKey(ItemType.SUBTASK)) {
+                saveItemsToServer(ItemType.SUBTASK);
+            }
+            saveHistoryToServer();
+            isHistoryChanged = false;
         } catch (IOException | InterruptedException e) {
             System.out.println(Arrays.toString(e.getStackTrace()));
         }
     }
 
     @Override
-    public Task getItemById(int id) {
+    public synchronized Task getItemById(int id) {
         Task task = super.getItemById(id);
+        isHistoryChanged = true;
+        if (historyFlushDelayMillis <= 0) {
+            flushHistory();
+        } else if (!isHistoryFlushScheduled) {
+            if (historyFlushExecutor == null) {
+                historyFlushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "history-flush");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            isHistoryFlushScheduled = true;
+            historyFlushExecutor.schedule(this::flushHistoryInBackground, historyFlushDelayMillis, TimeUnit.MILLISECONDS);
+        }
+        return task;
+    }
+
+    //Отправляет историю на сервер, если она менялась после последней отправки
+    public synchronized void flushHistory() throws ManagerSaveException {
+        isHistoryFlushScheduled = false;
+        if (!isHistoryChanged) {
+            return;
+        }
         try {
             saveHistoryToServer();
+            isHistoryChanged = false;
+            historyFlushFailure = null;
         } catch (IOException | InterruptedException e) {
-            System.out.println(Arrays.toString(e.getStackTrace()));
+            throw new ManagerSaveException("Ошибка сохранения истории на сервер");
         }
-        return task;
+    }
+
+    /*
+     * В потоке отправки исключение некому передать: ошибка запоминается, история остается измененной,
+     * и отправку повторяет следующий просмотр, flushHistory или close()
+     */
+    private synchronized void flushHistoryInBackground() {
+        try {
+            flushHistory();
+        } catch (ManagerSaveException e) {
+            historyFlushFailure = e;
+        }
+    }
+
+    //Отправляет отложенную историю и останавливает поток отправки; история, которую не удалось отправить, - ошибка
+    @Override
+    public synchronized void close() throws ManagerSaveException {
+        try {
+            flushHistory();
+        } finally {
+            if (historyFlushExecutor != null) {
+                historyFlushExecutor.shutdownNow();
+            }
+            super.close();
+        }
+    }
+
+    //Ошибка последней фоновой отправки истории; null, если история отправлена
+    public synchronized ManagerSaveException getHistoryFlushFailure() {
+        return historyFlushFailure;
     }
 
     @Override
-    public void linkSubtaskToEpic(Subtask subtask, Epic epic) {
+    public synchronized void linkSubtaskToEpic(Subtask subtask, Epic epic) {
         super.linkSubtaskToEpic(subtask, epic);
         try {
             saveItemsToServer(ItemType.SUBTASK);
@@ -219,6 +309,24 @@ public class HttpTaskManager extends FileBackedTaskManager {
         }
     }
 
+    //Каждый затронутый пакетом тип отправляется на сервер один раз; подзадачи меняют и эпики
+    private void saveBatchToServer(Collection<? extends Task> items) {
+        EnumSet<ItemType> affectedItemTypes = EnumSet.noneOf(ItemType.class);
+        for (Task item : items) {
+            affectedItemTypes.add(item.getItemType());
+            if (item.getItemType().equals(ItemType.SUBTASK)) {
+                affectedItemTypes.add(ItemType.EPIC);
+            }
+        }
+        try {
+            for (ItemType itemType : affectedItemTypes) {
+                saveItemsToServer(itemType);
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new ManagerSaveException("Ошибка сохранения задач на сервер");
+        }
+    }
+
     private void saveHistoryToServer() throws IOException, InterruptedException {
         String json = "";
         if (historyManager.getHistory() != null) {
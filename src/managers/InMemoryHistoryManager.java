@@ -1,36 +1,48 @@
 package managers;
 
-import model.HistoryRecord;
+import exceptions.NoSuchTaskExistsException;
 import model.Task;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
+/**
+ * История просмотров без повторов. При заданной емкости хранится не больше capacity записей:
+ * при переполнении за O(1) вытесняется запись, просмотренная раньше всех (голова списка)
+ */
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int UNLIMITED_CAPACITY = Integer.MAX_VALUE;
 
     private final HistoryRecordsLinkedList historyList;
+    private final int capacity;
     private List<Task> allItemsHistory;
 
     public InMemoryHistoryManager() {
+        this(UNLIMITED_CAPACITY);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Емкость истории должна быть положительной");
+        }
+        this.capacity = capacity;
         this.allItemsHistory = new ArrayList<>();
-        this.historyList = new HistoryRecordsLinkedList();
+        this.historyList = new HistoryRecordsLinkedList(capacity);
     }
 
     @Override
     public void add(Task anyItem) {
         if (anyItem != null) {
-            Map<Integer, HistoryRecord<Task>> taskIdMap = historyList.getTaskIdMap();
-
-            if (taskIdMap.keySet() != null && taskIdMap.containsKey(anyItem.getId())) {
-                HistoryRecord<Task> oldHistoryRecord = taskIdMap.get(anyItem.getId());
-                historyList.removeNode(oldHistoryRecord);
-            }
             historyList.linkLast(anyItem);
+            if (historyList.size() > capacity) {
+                historyList.removeFirst();
+            }
         }
     }
 
+    public int getCapacity() {
+        return capacity;
+    }
+
     @Override
     public List<Task> getHistory() {
         allItemsHistory = historyList.getItems();
@@ -39,73 +51,181 @@ public class InMemoryHistoryManager implements HistoryManager {
 
     @Override
     public void remove(int anyItemId) {
-        HistoryRecord<Task> currRecord = historyList.getTaskIdMap().get(anyItemId);
-        historyList.removeNode(currRecord);
+        historyList.remove(anyItemId);
     }
 
-    private class HistoryRecordsLinkedList {
-        private final Map<Integer, HistoryRecord<Task>> taskIdMap;
-        private HistoryRecord<Task> head;
-        private HistoryRecord<Task> tail;
+    //Частота просмотров учитывается только в FrequencyTrackingHistoryManager
+    @Override
+    public List<Integer> getHotTaskIds(int limit) {
+        return Collections.emptyList();
+    }
 
-        public HistoryRecordsLinkedList() {
-            this.head = null;
-            this.tail = null;
-            this.taskIdMap = new HashMap<>();
-        }
+    @Override
+    public Iterator<Task> descendingIterator() {
+        return historyList.descendingIterator();
+    }
+
+    @Override
+    public List<Task> getHistoryPage(int afterId, int limit) throws NoSuchTaskExistsException {
+        return historyList.getItemsBefore(afterId, limit);
+    }
 
-        public void linkLast(Task item) {
-            HistoryRecord<Task> historyRecord = new HistoryRecord<>(item);
+    /**
+     * Двусвязный список записей истории в параллельных массивах: запись - это номер ячейки,
+     * ссылки prev/next - номера соседних ячеек. Освободившиеся ячейки связываются в список свободных
+     * и занимаются повторно, поэтому добавление, удаление и перенос в конец не создают объектов
+     */
+    private static class HistoryRecordsLinkedList {
+        private static final int INITIAL_CAPACITY = 16;
+        private static final int NO_SLOT = -1;
+
+        private final IntIntMap slotsByTaskId;
+        private Task[] items;
+        private int[] taskIds;
+        private int[] prevSlots;
+        private int[] nextSlots; //для свободной ячейки - следующая свободная
+        private int head = NO_SLOT;
+        private int tail = NO_SLOT;
+        private int freeHead = NO_SLOT;
+        private int usedSlots; //ячейки с номерами меньше usedSlots хотя бы раз занимались
+        private int modCount; //изменения порядка записей, для обнаружения изменений во время обхода
+
+        private HistoryRecordsLinkedList(int capacity) {
+            int initialCapacity = Math.min(capacity, INITIAL_CAPACITY);
+            this.slotsByTaskId = new IntIntMap();
+            this.items = new Task[initialCapacity];
+            this.taskIds = new int[initialCapacity];
+            this.prevSlots = new int[initialCapacity];
+            this.nextSlots = new int[initialCapacity];
+        }
 
-            if (head == null) {
-                head = historyRecord;
+        //Повторно просмотренная задача переносится в конец в своей же ячейке
+        private void linkLast(Task item) {
+            int slot = slotsByTaskId.get(item.getId(), NO_SLOT);
+            if (slot == NO_SLOT) {
+                slot = allocateSlot();
+                taskIds[slot] = item.getId();
+                slotsByTaskId.put(item.getId(), slot);
+            } else {
+                unlink(slot);
+            }
+            modCount++;
+            items[slot] = item;
+            prevSlots[slot] = tail;
+            nextSlots[slot] = NO_SLOT;
+            if (tail == NO_SLOT) {
+                head = slot;
             } else {
-                tail.setNextRecord(historyRecord);
-                historyRecord.setPrevRecord(tail);
+                nextSlots[tail] = slot;
             }
-            tail = historyRecord;
-            taskIdMap.put(item.getId(), historyRecord);
+            tail = slot;
         }
 
-        private List<Task> getItems() {
-            List<Task> updatedAllItemsHistory = new ArrayList<>();
-            HistoryRecord<Task> currentRecord = historyList.head;
+        private void remove(int taskId) {
+            int slot = slotsByTaskId.get(taskId, NO_SLOT);
+            if (slot != NO_SLOT) {
+                slotsByTaskId.remove(taskId);
+                modCount++;
+                unlink(slot);
+                releaseSlot(slot);
+            }
+        }
 
-            while (currentRecord != null) {
-                updatedAllItemsHistory.add(currentRecord.getItem());
-                currentRecord = currentRecord.getNextRecord();
+        private void removeFirst() {
+            if (head != NO_SLOT) {
+                remove(taskIds[head]);
             }
+        }
+
+        private int size() {
+            return slotsByTaskId.size();
+        }
 
+        private List<Task> getItems() {
+            List<Task> updatedAllItemsHistory = new ArrayList<>(size());
+            for (int slot = head; slot != NO_SLOT; slot = nextSlots[slot]) {
+                updatedAllItemsHistory.add(items[slot]);
+            }
             return updatedAllItemsHistory;
         }
 
-        private void removeNode(HistoryRecord<Task> record) {
-            if (taskIdMap.containsValue(record)) {
-                if (record.equals(this.head) && !record.equals(this.tail)) {
-                    record.getNextRecord().setPrevRecord(null);
-                    this.head = record.getNextRecord();
-                    record.setNextRecord(null);
-                } else if (record.equals(this.tail) && !record.equals(this.head)) {
-                    record.getPrevRecord().setNextRecord(null);
-                    this.tail = record.getPrevRecord();
-                    record.setPrevRecord(null);
-                } else if (record.equals(this.head) && record.equals(this.tail)) {
-                    this.head = null;
-                    this.tail = null;
-                } else {
-                    record.getPrevRecord().setNextRecord(record.getNextRecord());
-                    record.getNextRecord().setPrevRecord(record.getPrevRecord());
-                    record.setPrevRecord(null);
-                    record.setNextRecord(null);
+        private List<Task> getItemsBefore(int afterId, int limit) throws NoSuchTaskExistsException {
+            int slot = tail;
+            if (afterId != 0) {
+                int afterSlot = slotsByTaskId.get(afterId, NO_SLOT);
+                if (afterSlot == NO_SLOT) {
+                    throw new NoSuchTaskExistsException("Нет задачи с таким id в истории");
                 }
-                taskIdMap.remove(record.getItem().getId());
+                slot = prevSlots[afterSlot];
             }
+            List<Task> page = new ArrayList<>(Math.min(limit, size()));
+            for (; slot != NO_SLOT && page.size() < limit; slot = prevSlots[slot]) {
+                page.add(items[slot]);
+            }
+            return page;
+        }
+
+        private Iterator<Task> descendingIterator() {
+            return new Iterator<>() {
+                private int nextSlot = tail;
+                private final int expectedModCount = modCount;
+
+                @Override
+                public boolean hasNext() {
+                    return nextSlot != NO_SLOT;
+                }
 
+                @Override
+                public Task next() {
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (nextSlot == NO_SLOT) {
+                        throw new NoSuchElementException();
+                    }
+                    Task item = items[nextSlot];
+                    nextSlot = prevSlots[nextSlot];
+                    return item;
+                }
+            };
+        }
+
+        private void unlink(int slot) {
+            int prevSlot = prevSlots[slot];
+            int nextSlot = nextSlots[slot];
+            if (prevSlot == NO_SLOT) {
+                head = nextSlot;
+            } else {
+                nextSlots[prevSlot] = nextSlot;
+            }
+            if (nextSlot == NO_SLOT) {
+                tail = prevSlot;
+            } else {
+                prevSlots[nextSlot] = prevSlot;
+            }
         }
 
-        private Map<Integer, HistoryRecord<Task>> getTaskIdMap() {
-            return taskIdMap;
+        private int allocateSlot() {
+            if (freeHead != NO_SLOT) {
+                int slot = freeHead;
+                freeHead = nextSlots[slot];
+                return slot;
+            }
+            if (usedSlots == items.length) {
+                int newCapacity = items.length + Math.max(1, items.length >> 1);
+                items = Arrays.copyOf(items, newCapacity);
+                taskIds = Arrays.copyOf(taskIds, newCapacity);
+                prevSlots = Arrays.copyOf(prevSlots, newCapacity);
+                nextSlots = Arrays.copyOf(nextSlots, newCapacity);
+            }
+            return usedSlots++;
         }
 
+        //Ссылка на задачу обнуляется, чтобы удаленная из истории задача не оставалась достижимой
+        private void releaseSlot(int slot) {
+            items[slot] = null;
+            nextSlots[slot] = freeHead;
+            freeHead = slot;
+        }
     }
 }
@@ -6,19 +6,37 @@ import model.*;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 public class InMemoryTaskManager implements TaskManager {
-    protected final HashMap<ItemType, HashMap<Integer, Task>> allItems;
+    protected final EnumMap<ItemType, IntObjectMap<Task>> allItems;
+    protected final IntObjectMap<Task> itemsById; //основной индекс: id -> задача любого типа
     protected final HistoryManager historyManager;
     protected int idCounter = 1;
-    protected TreeSet<Task> prioritizedItems;
+    protected final TreeMap<PriorityKey, Task> prioritizedItems; //только задачи со временем старта
+    protected final IntObjectMap<PriorityKey> priorityKeysById; //ключ, под которым задача лежит в приоритетах
+    protected final TreeMap<Integer, Task> unscheduledItems; //задачи без времени старта в порядке id
+    protected final IntervalIndex scheduledIntervals; //занятые задачами и подзадачами интервалы времени
+    protected final HashMap<Integer, Integer> epicIdBySubtaskId; //к какому эпику учтена подзадача
 
     public InMemoryTaskManager() {
-        this.allItems = new HashMap<>();
-        this.historyManager = Managers.getDefaultHistory();
-        this.prioritizedItems = new TreeSet<>(new TaskStartTimeComparator());
+        this(Managers.getDefaultHistory());
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this(historyManager, 0);
+    }
+
+    //expectedItems - сколько задач будет восстановлено, чтобы индекс id не перестраивался по мере загрузки
+    protected InMemoryTaskManager(HistoryManager historyManager, int expectedItems) {
+        this.allItems = new EnumMap<>(ItemType.class);
+        this.itemsById = new IntObjectMap<>(expectedItems);
+        this.historyManager = historyManager;
+        this.prioritizedItems = new TreeMap<>();
+        this.priorityKeysById = new IntObjectMap<>();
+        this.unscheduledItems = new TreeMap<>();
+        this.scheduledIntervals = new IntervalIndex();
+        this.epicIdBySubtaskId = new HashMap<>();
     }
 
     public InMemoryTaskManager(int idCounter,
@@ -26,95 +44,250 @@ public class InMemoryTaskManager implements TaskManager {
                                HistoryManager historyManager,
                                TreeSet<Task> prioritizedItems) {
         this.idCounter = idCounter;
-        this.allItems = allItems;
+        this.allItems = new EnumMap<>(ItemType.class);
+        this.itemsById = new IntObjectMap<>();
         this.historyManager = historyManager;
-        this.prioritizedItems = prioritizedItems;
+        this.prioritizedItems = new TreeMap<>();
+        this.priorityKeysById = new IntObjectMap<>();
+        this.unscheduledItems = new TreeMap<>();
+        this.scheduledIntervals = new IntervalIndex();
+        this.epicIdBySubtaskId = new HashMap<>();
+        for (Map.Entry<ItemType, HashMap<Integer, Task>> itemsByType : allItems.entrySet()) {
+            IntObjectMap<Task> items = new IntObjectMap<>(itemsByType.getValue().size());
+            for (Task item : itemsByType.getValue().values()) {
+                items.put(item.getId(), item);
+                itemsById.put(item.getId(), item);
+            }
+            this.allItems.put(itemsByType.getKey(), items);
+        }
+        //Переданный список приоритетов раскладывается заново: эпики в него не входят, задачи без времени - отдельно
+        for (Task prioritizedItem : prioritizedItems) {
+            if (!prioritizedItem.getItemType().equals(ItemType.EPIC)) {
+                addToPrioritizedItems(prioritizedItem, prioritizedItem.getId());
+                addToScheduledIntervals(prioritizedItem, prioritizedItem.getId());
+            }
+        }
+        restoreEpicsFromSubtasks();
     }
 
+    /*
+     * Связи эпиков с подзадачами и накопительные показатели эпиков не сохраняются и собираются заново:
+     * один проход по подзадачам раскладывает их по epicId, затем каждый эпик берет статус и время
+     * только из своих подзадач. Всего O(S + E); вклад подзадачи в показатели эпика - O(log k)
+     */
+    private void restoreEpicsFromSubtasks() {
+        HashMap<Integer, List<Subtask>> subtasksByEpicId = new HashMap<>();
+        IntObjectMap<Task> subtasks = allItems.get(ItemType.SUBTASK);
+        if (subtasks != null) {
+            for (Task item : subtasks.values()) {
+                Subtask subtask = (Subtask) item;
+                if (itemsById.get(subtask.getEpicId()) instanceof Epic) {
+                    subtasksByEpicId.computeIfAbsent(subtask.getEpicId(), epicId -> new ArrayList<>()).add(subtask);
+                }
+            }
+        }
+        IntObjectMap<Task> epics = allItems.get(ItemType.EPIC);
+        if (epics == null) {
+            return;
+        }
+        for (Task item : epics.values()) {
+            Epic epic = (Epic) item;
+            EpicSubtasksAggregate subtasksAggregate = epic.getSubtasksAggregate();
+            subtasksAggregate.clear();
+            List<Subtask> epicSubtasks = subtasksByEpicId.getOrDefault(epic.getId(), Collections.emptyList());
+            //подзадачи обходятся почти по порядку id, и сортировка такого списка линейна
+            epicSubtasks.sort(Comparator.comparingInt(Subtask::getId));
+            for (Subtask subtask : epicSubtasks) {
+                epic.addSubtask(subtask);
+                epicIdBySubtaskId.put(subtask.getId(), epic.getId());
+            }
+            if (!subtasksAggregate.isEmpty()) {
+                epic.setStatus(subtasksAggregate.getStatus());
+                epic.setStartTime(subtasksAggregate.getStartTime());
+                epic.setDurationMinutes(subtasksAggregate.getDuration());
+                epic.setEndTime(subtasksAggregate.getEndTime());
+            }
+        }
+    }
+
+    /*
+     * Восстановление без промежуточных коллекций: задача из снимка или журнала пишется прямо в индексы,
+     * прежняя версия с тем же id из них убирается. Пересечения не проверяются, а связи эпиков
+     * с подзадачами и показатели эпиков собирает finishRestore() один раз после загрузки всех задач
+     */
+    protected void putRestoredItem(Task item) {
+        removeRestoredItem(item.getId());
+        putItem(item, item.getId());
+    }
+
+    protected void removeRestoredItem(int id) {
+        Task item = itemsById.remove(id);
+        if (item != null) {
+            allItems.get(item.getItemType()).remove(id);
+            removeFromPrioritizedItems(item, id);
+            scheduledIntervals.remove(id);
+        }
+    }
+
+    protected void finishRestore() {
+        restoreEpicsFromSubtasks();
+    }
+
+    @Override
     public HistoryManager getHistoryManager() {
         return historyManager;
     }
 
     @Override
     public int createItem(Task anyItem) {
-        HashMap<Integer, Task> items;
         ItemType anyItemType = anyItem.getItemType();
         boolean isItemTaskOrSubtask = anyItemType.equals(ItemType.TASK) || anyItemType.equals(ItemType.SUBTASK);
 
         if (isItemTaskOrSubtask) {
-            checkIntervalAvailability(anyItem);
+            checkIntervalAvailability(anyItem, idCounter);
         }
-        items = allItems.getOrDefault(anyItemType, new HashMap<>());
-        items.put(idCounter, anyItem);
-        allItems.put(anyItemType, items);
+        allItems.computeIfAbsent(anyItemType, type -> new IntObjectMap<>()).put(idCounter, anyItem);
+        itemsById.put(idCounter, anyItem);
         if (isItemTaskOrSubtask) {
-            prioritizedItems.add(anyItem);
+            addToPrioritizedItems(anyItem, idCounter);
+            addToScheduledIntervals(anyItem, idCounter);
         }
+        anyItem.setId(idCounter);
         if (anyItemType.equals(ItemType.SUBTASK) && ((Subtask) anyItem).getEpicId() != 0) {
-            updateEpicStatus(((Subtask) anyItem).getEpicId());
-            updateEpicStartTimeDurationEndTime(((Subtask) anyItem).getEpicId());
+            attachSubtaskToEpic((Subtask) anyItem, ((Subtask) anyItem).getEpicId());
         }
-        anyItem.setId(idCounter);
         return idCounter++;
     }
 
+    @Override
+    public ArrayList<Integer> createItems(List<? extends Task> items) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            ids.add(idCounter + i);
+        }
+        checkBatchIntervalsAvailability(scheduledIntervals, items, Collections.emptySet());
+
+        for (Task anyItem : items) {
+            int id = idCounter++;
+            anyItem.setId(id);
+            putItem(anyItem, id);
+        }
+        //Связи с эпиками - после записи всего пакета: эпик может стоять в пакете и после своей подзадачи
+        Set<Integer> affectedEpicIds = new LinkedHashSet<>();
+        for (Task anyItem : items) {
+            if (anyItem.getItemType().equals(ItemType.SUBTASK)) {
+                int epicId = ((Subtask) anyItem).getEpicId();
+                if (epicId != 0 && addSubtaskToEpicAggregate((Subtask) anyItem, epicId)) {
+                    affectedEpicIds.add(epicId);
+                }
+            }
+        }
+        //Показатели каждого затронутого эпика пересчитываются один раз на пакет
+        for (Integer epicId : affectedEpicIds) {
+            refreshEpic(epicId);
+        }
+        return ids;
+    }
+
     @Override
     public int getIdCounter() {
         return idCounter;
     }
 
+    @Override
     public void setIdCounter(int idCounter) {
         this.idCounter = idCounter;
     }
 
     @Override
     public ArrayList<Task> getAllItemsByType(ItemType itemType) {
-        return new ArrayList<>(allItems.get(itemType).values());
+        return allItems.get(itemType).values();
     }
 
     @Override
     public void updateItem(Task anyItem, int id) throws NoSuchTaskExistsException {
-        HashMap<Integer, Task> items;
         ItemType anyItemType = anyItem.getItemType();
         boolean isItemTaskOrSubtask = anyItemType.equals(ItemType.TASK) || anyItemType.equals(ItemType.SUBTASK);
         if (getItemByIdWithoutSavingHistory(id) == null) {
             throw new NoSuchTaskExistsException("Задача с указанным Id не существует");
         }
+        if (isItemTaskOrSubtask) {
+            checkIntervalAvailability(anyItem, id);
+        }
         Task itemToChange = getItemByIdWithoutSavingHistory(anyItem.getId());
-        prioritizedItems.remove(itemToChange);
+        removeFromPrioritizedItems(itemToChange, id);
 
         if (isItemTaskOrSubtask) {
-            checkIntervalAvailability(anyItem);
-            if (anyItemType.equals(ItemType.SUBTASK) && ((Subtask) anyItem).getEpicId() != 0) {
-                int epicId = ((Subtask) anyItem).getEpicId();
-                updateEpicStatus(epicId);
-                updateEpicStartTimeDurationEndTime(epicId);
+            if (anyItemType.equals(ItemType.SUBTASK)) {
+                updateSubtaskInEpic((Subtask) anyItem, id);
             }
-            items = allItems.get(anyItemType);
-            items.put(id, anyItem);
-            allItems.put(anyItemType, items);
-            prioritizedItems.add(anyItem);
+            allItems.get(anyItemType).put(id, anyItem);
+            itemsById.put(id, anyItem);
+            addToPrioritizedItems(anyItem, id);
+            addToScheduledIntervals(anyItem, id);
+        }
+    }
+
+    @Override
+    public void updateItems(Map<Integer, ? extends Task> items) throws NoSuchTaskExistsException {
+        List<Task> itemsToUpdate = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, ? extends Task> entry : items.entrySet()) {
+            if (getItemByIdWithoutSavingHistory(entry.getKey()) == null) {
+                throw new NoSuchTaskExistsException("Задача с указанным Id не существует");
+            }
+            //Обновление эпика, как и в updateItem, ничего не меняет
+            if (!entry.getValue().getItemType().equals(ItemType.EPIC)) {
+                itemsToUpdate.add(entry.getValue());
+                ids.add(entry.getKey());
+            }
+        }
+        checkBatchIntervalsAvailability(scheduledIntervals, itemsToUpdate, items.keySet());
+
+        //Сначала убираем прежние версии из списка приоритетов, чтобы задачи пакета могли обменяться интервалами
+        for (Integer id : ids) {
+            removeFromPrioritizedItems(getItemByIdWithoutSavingHistory(id), id);
+        }
+        Set<Integer> affectedEpicIds = new LinkedHashSet<>();
+        for (int i = 0; i < itemsToUpdate.size(); i++) {
+            Task anyItem = itemsToUpdate.get(i);
+            int id = ids.get(i);
+            Task itemToChange = getItemByIdWithoutSavingHistory(id);
+            if (!itemToChange.getItemType().equals(anyItem.getItemType())) {
+                allItems.get(itemToChange.getItemType()).remove(id);
+            }
+            if (anyItem.getItemType().equals(ItemType.SUBTASK)) {
+                int newEpicId = ((Subtask) anyItem).getEpicId();
+                Integer previousEpicId = epicIdBySubtaskId.get(id);
+                if (previousEpicId != null && previousEpicId != newEpicId) {
+                    affectedEpicIds.add(removeSubtaskFromEpicAggregate(id));
+                }
+                if (newEpicId != 0 && addSubtaskToEpicAggregate((Subtask) anyItem, newEpicId)) {
+                    affectedEpicIds.add(newEpicId);
+                }
+            }
+            putItem(anyItem, id);
+        }
+        for (Integer epicId : affectedEpicIds) {
+            refreshEpic(epicId);
         }
     }
 
     @Override
     public void removeItemById(int id) throws NoSuchTaskExistsException {
-        if (getItemByIdWithoutSavingHistory(id) == null) {
+        Task currItem = getItemByIdWithoutSavingHistory(id);
+        if (currItem == null) {
             throw new NoSuchTaskExistsException("Нет задачи с таким id");
         }
-        Task currItem = getItemByIdWithoutSavingHistory(id);
         if (currItem.getClass() == Subtask.class) {
             Subtask currSubtask = (Subtask) currItem;
             if (currSubtask.getEpicId() != 0) {
-                Epic currEpic = (Epic) getItemByIdWithoutSavingHistory(currSubtask.getEpicId());
-                currEpic.deleteSubtaskById(id);
+                detachSubtaskFromEpic(id);
                 currSubtask.setEpicId(0);
-                updateEpicStatus(currEpic.getId());
-                updateEpicStartTimeDurationEndTime(currEpic.getId());
             }
         } else if (currItem.getClass() == Epic.class) {
             Epic currEpic = (Epic) currItem;
-            List<Integer> currEpicSubtasksIds = new ArrayList<>(currEpic.getEpicSubtaskIds());
+            List<Integer> currEpicSubtasksIds = new ArrayList<>(currEpic.getSubtasksAggregate().getSubtaskIds());
             if (currEpicSubtasksIds.size() > 0) {
                 for (Integer epicSubtaskId : currEpicSubtasksIds) {
                     removeItemById(epicSubtaskId);
@@ -123,137 +296,311 @@ public class InMemoryTaskManager implements TaskManager {
         }
         historyManager.remove(id);
         allItems.get(currItem.getItemType()).remove(id);
-        prioritizedItems.remove(currItem);
+        itemsById.remove(id);
+        removeFromPrioritizedItems(currItem, id);
+        scheduledIntervals.remove(id);
     }
 
+    //Тип удаляется целиком, без каскада removeItemById: каждый затронутый эпик пересчитывается один раз
     @Override
     public void removeAllItemsByType(ItemType itemType) {
-        int[] ids = allItems.get(itemType).keySet().stream().mapToInt(key -> key).toArray();
-        for (int id : ids) {
-            removeItemById(id);
+        IntObjectMap<Task> removedItems = allItems.get(itemType);
+        allItems.put(itemType, new IntObjectMap<>());
+        if (itemType.equals(ItemType.EPIC)) {
+            //Вместе с эпиками удаляются их подзадачи
+            for (Task epic : new ArrayList<>(removedItems.values())) {
+                for (Integer subtaskId : ((Epic) epic).getSubtasksAggregate().getSubtaskIds()) {
+                    Subtask subtask = (Subtask) allItems.get(ItemType.SUBTASK).remove(subtaskId);
+                    epicIdBySubtaskId.remove(subtaskId);
+                    subtask.setEpicId(0);
+                    removedItems.put(subtaskId, subtask);
+                }
+            }
+        } else if (itemType.equals(ItemType.SUBTASK)) {
+            Set<Integer> affectedEpicIds = new HashSet<>(epicIdBySubtaskId.values());
+            epicIdBySubtaskId.clear();
+            for (Integer epicId : affectedEpicIds) {
+                Epic epic = (Epic) getItemByIdWithoutSavingHistory(epicId);
+                epic.getSubtasksAggregate().clear();
+                refreshEpic(epicId);
+            }
+            removedItems.forEachValue(subtask -> ((Subtask) subtask).setEpicId(0));
         }
+        for (int id : removedItems.keys()) {
+            historyManager.remove(id);
+            itemsById.remove(id);
+        }
+        removeAllFromSchedule(removedItems);
     }
 
+    //Задачи со временем старта по возрастанию времени, затем задачи без времени
     @Override
     public ArrayList<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedItems);
+        ArrayList<Task> prioritizedTasks = new ArrayList<>(prioritizedItems.size() + unscheduledItems.size());
+        prioritizedTasks.addAll(prioritizedItems.values());
+        prioritizedTasks.addAll(unscheduledItems.values());
+        return prioritizedTasks;
     }
 
-    private void checkIntervalAvailability(Task item) throws TaskTimeIntersectionException {
-        List<Task> prioritizedTasksList = getPrioritizedTasks();
+    @Override
+    public ArrayList<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(prioritizedItems.subMap(PriorityKey.lowerBound(from), true,
+                PriorityKey.lowerBound(to), false).values());
+    }
 
-        if (item.getEndTime().isPresent()) {
-            for (Task prioritizedTask : prioritizedTasksList) {
-                if (prioritizedTask.getStartTime() != null && prioritizedTask.getDurationMinutes() != null) {
-                    if (item.getStartTime().isAfter(prioritizedTask.getStartTime())
-                            && item.getStartTime().isBefore(prioritizedTask.getEndTime().get())) {
-                        throw new TaskTimeIntersectionException("Данное время уже занято задачей " + item);
-                    }
-                    if (item.getEndTime().get().isAfter(prioritizedTask.getStartTime())
-                            && item.getEndTime().get().isBefore(prioritizedTask.getEndTime().get())) {
-                        throw new TaskTimeIntersectionException("Данное время уже занято задачей " + item);
-                    }
-                }
+    @Override
+    public ArrayList<Task> getPrioritizedTasksPage(int afterId, int limit) throws NoSuchTaskExistsException {
+        Collection<Task> scheduledTail;
+        Collection<Task> unscheduledTail;
+        if (afterId == 0) {
+            scheduledTail = prioritizedItems.values();
+            unscheduledTail = unscheduledItems.values();
+        } else if (unscheduledItems.containsKey(afterId)) {
+            scheduledTail = Collections.emptySet();
+            unscheduledTail = unscheduledItems.tailMap(afterId, false).values();
+        } else {
+            PriorityKey cursorKey = priorityKeysById.get(afterId);
+            if (cursorKey == null) {
+                throw new NoSuchTaskExistsException("Нет задачи с таким id");
+            }
+            scheduledTail = prioritizedItems.tailMap(cursorKey, false).values();
+            unscheduledTail = unscheduledItems.values();
+        }
+        ArrayList<Task> page = new ArrayList<>();
+        addToPage(page, scheduledTail, limit);
+        addToPage(page, unscheduledTail, limit);
+        return page;
+    }
+
+    private static void addToPage(ArrayList<Task> page, Collection<Task> items, int limit) {
+        Iterator<Task> iterator = items.iterator();
+        while (iterator.hasNext() && page.size() < limit) {
+            page.add(iterator.next());
+        }
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore) {
+        return scheduledIntervals.findFreeSlot(duration, notBefore);
+    }
+
+    private void checkIntervalAvailability(Task item, int itemId) throws TaskTimeIntersectionException {
+        if (item.getEndTime().isPresent()
+                && scheduledIntervals.hasOverlap(item.getStartTime(), item.getEndTime().get(), itemId)) {
+            throw new TaskTimeIntersectionException("Данное время уже занято задачей " + item);
+        }
+    }
+
+    /*
+     * Проверка интервалов пакета за один проход: каждый интервал сверяется с индексом
+     * (без учета заменяемых пакетом задач), а интервалы самого пакета сортируются по началу
+     * и сверяются с максимальным окончанием предыдущих. Используется и ConcurrentTaskManager
+     */
+    static void checkBatchIntervalsAvailability(IntervalIndex scheduledIntervals,
+                                                List<? extends Task> items,
+                                                Set<Integer> replacedIds) throws TaskTimeIntersectionException {
+        List<Task> scheduledBatchItems = new ArrayList<>();
+        for (Task item : items) {
+            if (item.getItemType().equals(ItemType.EPIC) || item.getEndTime().isEmpty()) {
+                continue;
+            }
+            if (scheduledIntervals.hasOverlap(item.getStartTime(), item.getEndTime().get(), replacedIds::contains)) {
+                throw new TaskTimeIntersectionException("Данное время уже занято задачей " + item);
+            }
+            scheduledBatchItems.add(item);
+        }
+        scheduledBatchItems.sort(Comparator.comparing(Task::getStartTime));
+        Task latestEndingItem = null;
+        for (Task item : scheduledBatchItems) {
+            if (latestEndingItem != null
+                    && item.getStartTime().isBefore(latestEndingItem.getEndTime().get())) {
+                throw new TaskTimeIntersectionException("Данное время уже занято задачей " + latestEndingItem);
+            }
+            if (latestEndingItem == null || item.getEndTime().get().isAfter(latestEndingItem.getEndTime().get())) {
+                latestEndingItem = item;
             }
         }
     }
 
+    //Запись задачи во все индексы, без пересчета эпика
+    private void putItem(Task anyItem, int id) {
+        ItemType anyItemType = anyItem.getItemType();
+        allItems.computeIfAbsent(anyItemType, type -> new IntObjectMap<>()).put(id, anyItem);
+        itemsById.put(id, anyItem);
+        if (!anyItemType.equals(ItemType.EPIC)) {
+            addToPrioritizedItems(anyItem, id);
+            addToScheduledIntervals(anyItem, id);
+        }
+    }
+
+    //Задачи без времени старта не сравнимы по времени и хранятся отдельно, по id
+    private void addToPrioritizedItems(Task item, int itemId) {
+        if (item.getStartTime() == null) {
+            unscheduledItems.put(itemId, item);
+        } else {
+            PriorityKey key = new PriorityKey(item.getStartTime(), itemId);
+            prioritizedItems.put(key, item);
+            priorityKeysById.put(itemId, key);
+        }
+    }
+
+    //Задача ищется по сохраненному ключу: время старта у объекта могло быть уже изменено на месте
+    private void removeFromPrioritizedItems(Task item, int itemId) {
+        if (unscheduledItems.remove(itemId) == null) {
+            PriorityKey key = priorityKeysById.remove(itemId);
+            if (key != null) {
+                prioritizedItems.remove(key);
+            }
+        }
+    }
+
+    //Небольшую часть задач дешевле удалить по одной, большую - одним проходом по списку приоритетов и индексу
+    private void removeAllFromSchedule(IntObjectMap<Task> removedItems) {
+        if (removedItems.size() < (prioritizedItems.size() + unscheduledItems.size()) / 4) {
+            for (int id : removedItems.keys()) {
+                removeFromPrioritizedItems(removedItems.get(id), id);
+                scheduledIntervals.remove(id);
+            }
+            return;
+        }
+        prioritizedItems.keySet().removeIf(key -> removedItems.containsKey(key.getId()));
+        unscheduledItems.keySet().removeIf(removedItems::containsKey);
+        for (int id : removedItems.keys()) {
+            priorityKeysById.remove(id);
+        }
+        scheduledIntervals.removeIf(removedItems::containsKey);
+    }
+
+    private void addToScheduledIntervals(Task item, int itemId) {
+        if (item.getEndTime().isPresent()) {
+            scheduledIntervals.add(itemId, item.getStartTime(), item.getEndTime().get());
+        } else {
+            scheduledIntervals.remove(itemId);
+        }
+    }
+
     @Override
     public Task getItemById(int id) throws NoSuchTaskExistsException {
-        if (getItemByIdWithoutSavingHistory(id) == null) {
+        Task item = getItemByIdWithoutSavingHistory(id);
+        if (item == null) {
             throw new NoSuchTaskExistsException("Нет задачи с таким id");
         }
-        Task item = getItemByIdWithoutSavingHistory(id);
         historyManager.add(item);
         return item;
     }
 
+    @Override
     public Task getItemByIdWithoutSavingHistory(int id) throws NoSuchTaskExistsException {
-        Task item = null;
-        for (HashMap<Integer, Task> hashmap : allItems.values()) {
-            if (hashmap.get(id) != null) {
-                item = hashmap.get(id);
+        return itemsById.get(id);
+    }
+
+    @Override
+    public ArrayList<Task> getHotTasks(int limit) {
+        ArrayList<Task> hotTasks = new ArrayList<>();
+        for (Integer id : historyManager.getHotTaskIds(limit)) {
+            Task item = getItemByIdWithoutSavingHistory(id);
+            if (item != null) {
+                hotTasks.add(item);
             }
         }
-        return item;
+        return hotTasks;
     }
 
     @Override
     public ArrayList<Subtask> getEpicSubtasks(int epicId) {
         ArrayList<Subtask> epicSubtasks = new ArrayList<>();
-        if (allItems.get(ItemType.SUBTASK) == null) {
+        Task epic = getItemByIdWithoutSavingHistory(epicId);
+        if (!(epic instanceof Epic)) {
             return epicSubtasks;
         }
-        for (Object item : allItems.get(ItemType.SUBTASK).values()) {
-            Subtask subtask = (Subtask) item;
-            if (subtask.getEpicId() == epicId) {
-                epicSubtasks.add(subtask);
-            }
+        for (Integer subtaskId : ((Epic) epic).getSubtasksAggregate().getSubtaskIds()) {
+            epicSubtasks.add((Subtask) getItemByIdWithoutSavingHistory(subtaskId));
         }
         return epicSubtasks;
     }
 
-    private void updateEpicStatus(int epicId) {
-        Epic currEpic = (Epic) getItemByIdWithoutSavingHistory(epicId);
-        if (getEpicSubtasks(epicId).isEmpty()) {
-            currEpic.setStatus(Status.NEW);
-        } else {
-            for (Subtask epicSubtask : getEpicSubtasks(epicId)) {
-                if (epicSubtask.getStatus().equals(Status.NEW)) {
-                    currEpic.setStatus((Status.NEW));
-                } else if (epicSubtask.getStatus().equals(Status.DONE)) {
-                    currEpic.setStatus((Status.DONE));
-                }
-            }
-            for (Subtask epicSubtask : getEpicSubtasks(epicId)) {
-                if (!currEpic.getStatus().equals(epicSubtask.getStatus())) {
-                    currEpic.setStatus(Status.IN_PROGRESS);
-                    break;
-                }
-            }
+    //Связь эпик -> подзадачи хранится в показателях эпика, обратная - в epicIdBySubtaskId
+    private void attachSubtaskToEpic(Subtask subtask, int epicId) {
+        if (addSubtaskToEpicAggregate(subtask, epicId)) {
+            refreshEpic(epicId);
         }
     }
 
-    protected void updateEpicStartTimeDurationEndTime(int epicId) {
-        Epic currEpic = (Epic) getItemByIdWithoutSavingHistory(epicId);
-        if (!getEpicSubtasks(epicId).isEmpty()) {
-            //Обновляем startTime
-            getEpicSubtasks(epicId).stream()
-                    .map(Task::getStartTime)
-                    .filter(Objects::nonNull)
-                    .min(LocalDateTime::compareTo)
-                    .ifPresent(currEpic::setStartTime);
+    private void detachSubtaskFromEpic(int subtaskId) {
+        Integer epicId = removeSubtaskFromEpicAggregate(subtaskId);
+        if (epicId != null) {
+            refreshEpic(epicId);
+        }
+    }
 
-            //Обновляем duration
-            long epicDuration = getEpicSubtasks(epicId).stream()
-                    .filter(subtask -> subtask.getDurationMinutes() != null)
-                    .mapToLong(subtask -> subtask.getDurationMinutes().toMinutes())
-                    .sum();
-            currEpic.setDurationMinutes(Duration.of(epicDuration, ChronoUnit.MINUTES));
+    private boolean addSubtaskToEpicAggregate(Subtask subtask, int epicId) {
+        Task epic = getItemByIdWithoutSavingHistory(epicId);
+        if (!(epic instanceof Epic)) {
+            return false;
+        }
+        ((Epic) epic).addSubtask(subtask);
+        epicIdBySubtaskId.put(subtask.getId(), epicId);
+        return true;
+    }
 
-            //Обновляем endTime;
-            getEpicSubtasks(epicId).stream()
-                    .filter(subtask -> subtask.getEndTime().isPresent())
-                    .map(subtask -> subtask.getEndTime().get())
-                    .max(LocalDateTime::compareTo)
-                    .ifPresent(currEpic::setEndTime);
+    private Integer removeSubtaskFromEpicAggregate(int subtaskId) {
+        Integer epicId = epicIdBySubtaskId.remove(subtaskId);
+        if (epicId == null) {
+            return null;
         }
+        Epic epic = (Epic) getItemByIdWithoutSavingHistory(epicId);
+        epic.deleteSubtaskById(subtaskId);
+        return epicId;
+    }
+
+    private void refreshEpic(int epicId) {
+        updateEpicStatus(epicId);
+        updateEpicStartTimeDurationEndTime(epicId);
+    }
+
+    private void updateSubtaskInEpic(Subtask subtask, int subtaskId) {
+        Integer previousEpicId = epicIdBySubtaskId.get(subtaskId);
+        if (previousEpicId != null && previousEpicId != subtask.getEpicId()) {
+            detachSubtaskFromEpic(subtaskId);
+        }
+        if (subtask.getEpicId() != 0) {
+            attachSubtaskToEpic(subtask, subtask.getEpicId());
+        }
+    }
+
+    //Показатели эпика берутся из накопленных значений по его подзадачам, без обхода всех подзадач
+    private void updateEpicStatus(int epicId) {
+        Epic currEpic = (Epic) getItemByIdWithoutSavingHistory(epicId);
+        currEpic.setStatus(currEpic.getSubtasksAggregate().getStatus());
     }
 
-    protected ArrayList<Task> getAllItemsOfAllTypes() {
-        ArrayList<Task> tasks = new ArrayList<>();
-        for (HashMap<Integer, Task> entrySet : allItems.values()) {
-            tasks.addAll(entrySet.values());
+    protected void updateEpicStartTimeDurationEndTime(int epicId) {
+        Epic currEpic = (Epic) getItemByIdWithoutSavingHistory(epicId);
+        EpicSubtasksAggregate subtasksAggregate = currEpic.getSubtasksAggregate();
+        if (!subtasksAggregate.isEmpty()) {
+            currEpic.setStartTime(subtasksAggregate.getStartTime());
+            currEpic.setDurationMinutes(subtasksAggregate.getDuration());
+            currEpic.setEndTime(subtasksAggregate.getEndTime());
         }
-        return tasks;
+    }
+
+    @Override
+    public ArrayList<Task> getAllItemsOfAllTypes() {
+        return itemsById.values();
     }
 
     @Override
     public void linkSubtaskToEpic(Subtask subtask, Epic epic) {
+        Integer previousEpicId = epicIdBySubtaskId.get(subtask.getId());
+        if (previousEpicId != null && previousEpicId != epic.getId()) {
+            detachSubtaskFromEpic(subtask.getId());
+        }
         epic.addSubtask(subtask);
         subtask.setEpicId(epic.getId());
-        updateEpicStatus(epic.getId());
-        updateEpicStartTimeDurationEndTime(epic.getId());
+        attachSubtaskToEpic(subtask, epic.getId());
     }
 }
 
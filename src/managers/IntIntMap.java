@@ -0,0 +1,146 @@
+package managers;
+
+import java.util.Arrays;
+
+/**
+ * Хеш-таблица int -> int с открытой адресацией (линейное пробирование), устроенная так же, как IntObjectMap.
+ * Ни ключи, ни значения не упаковываются: чтение, запись и удаление не создают объектов
+ */
+public class IntIntMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+    private int maxProbeDistance; //наибольшее смещение записи от ее исходной ячейки, не уменьшается до resize
+
+    public IntIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    //Возвращает defaultValue, если ключа нет в таблице
+    public int get(int key, int defaultValue) {
+        int slot = findSlot(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return findSlot(key) >= 0;
+    }
+
+    public void put(int key, int value) {
+        int slot = hash(key) & mask;
+        int distance = 0;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+            distance++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        maxProbeDistance = Math.max(maxProbeDistance, distance);
+        if (++size > resizeThreshold) {
+            resize(keys.length << 1);
+        }
+    }
+
+    public boolean remove(int key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return false;
+        }
+        shiftBack(slot);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+        maxProbeDistance = 0;
+    }
+
+    private static int hash(int key) {
+        return key ^ (key >>> 16);
+    }
+
+    private int findSlot(int key) {
+        int slot = hash(key) & mask;
+        for (int distance = 0; distance <= maxProbeDistance && used[slot]; distance++) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    //Удаление без "надгробий", как в IntObjectMap
+    private void shiftBack(int freeSlot) {
+        int slot = freeSlot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (!used[slot] || ((slot - freeSlot) & mask) > maxProbeDistance) {
+                break;
+            }
+            int homeSlot = hash(keys[slot]) & mask;
+            if (((slot - homeSlot) & mask) >= ((slot - freeSlot) & mask)) {
+                keys[freeSlot] = keys[slot];
+                values[freeSlot] = values[slot];
+                freeSlot = slot;
+            }
+        }
+        used[freeSlot] = false;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+        maxProbeDistance = 0;
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldUsed.length; slot++) {
+            if (oldUsed[slot]) {
+                int newSlot = hash(oldKeys[slot]) & mask;
+                int distance = 0;
+                while (used[newSlot]) {
+                    newSlot = (newSlot + 1) & mask;
+                    distance++;
+                }
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+                used[newSlot] = true;
+                maxProbeDistance = Math.max(maxProbeDistance, distance);
+            }
+        }
+    }
+}
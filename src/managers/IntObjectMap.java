@@ -0,0 +1,189 @@
+package managers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Хеш-таблица int -> объект с открытой адресацией (линейное пробирование) для хранения задач по id.
+ * Ключи хранятся в int[] без упаковки в Integer и без отдельного узла на каждую запись.
+ * Последовательные id попадают в соседние ячейки, поэтому при id меньше емкости обход идет по возрастанию id,
+ * как и у HashMap<Integer, V>. Значение null не хранится: пустая ячейка - это ячейка с null
+ */
+public class IntObjectMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+    private int maxProbeDistance; //наибольшее смещение записи от ее исходной ячейки, не уменьшается до resize
+
+    public IntObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return findSlot(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Значение не может быть null");
+        }
+        int slot = hash(key) & mask;
+        int distance = 0;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previousValue = (V) values[slot];
+                values[slot] = value;
+                return previousValue;
+            }
+            slot = (slot + 1) & mask;
+            distance++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        maxProbeDistance = Math.max(maxProbeDistance, distance);
+        if (++size > resizeThreshold) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previousValue = (V) values[slot];
+        shiftBack(slot);
+        size--;
+        return previousValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+        maxProbeDistance = 0;
+    }
+
+    public int[] keys() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                result[i++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public ArrayList<V> values() {
+        ArrayList<V> result = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null) {
+                result.add((V) value);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (Object value : values) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    //Перемешивание старших битов, как в HashMap; последовательные id остаются в соседних ячейках
+    private static int hash(int key) {
+        return key ^ (key >>> 16);
+    }
+
+    //Дальше maxProbeDistance от исходной ячейки ключа быть не может
+    private int findSlot(int key) {
+        int slot = hash(key) & mask;
+        for (int distance = 0; distance <= maxProbeDistance && values[slot] != null; distance++) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    //Удаление без "надгробий": записи цепочки за освободившейся ячейкой сдвигаются назад.
+    //Последовательные id образуют одну длинную цепочку, поэтому просмотр ограничен maxProbeDistance:
+    //запись дальше от свободной ячейки, чем любая запись от своей исходной, сдвигать не нужно
+    private void shiftBack(int freeSlot) {
+        int slot = freeSlot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null || ((slot - freeSlot) & mask) > maxProbeDistance) {
+                break;
+            }
+            int homeSlot = hash(keys[slot]) & mask;
+            //Запись можно перенести, если ее исходная ячейка не лежит циклически между freeSlot и slot
+            if (((slot - homeSlot) & mask) >= ((slot - freeSlot) & mask)) {
+                keys[freeSlot] = keys[slot];
+                values[freeSlot] = values[slot];
+                freeSlot = slot;
+            }
+        }
+        values[freeSlot] = null;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        maxProbeDistance = 0;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            if (oldValues[slot] != null) {
+                int newSlot = hash(oldKeys[slot]) & mask;
+                int distance = 0;
+                while (values[newSlot] != null) {
+                    newSlot = (newSlot + 1) & mask;
+                    distance++;
+                }
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+                maxProbeDistance = Math.max(maxProbeDistance, distance);
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package managers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Индекс занятых интервалов времени [startTime, endTime) задач.
+ * Сбалансированное (AVL) дерево по ключу (startTime, id), каждый узел которого хранит
+ * максимальный endTime своего поддерева - это позволяет искать пересечения за O(log n + k).
+ * Узел также хранит минимальный startTime и наибольший промежуток между соседними интервалами поддерева,
+ * поэтому свободный интервал нужной длины ищется за O(log n)
+ */
+public class IntervalIndex {
+
+    private final IntObjectMap<Node> nodesById;
+    private Node root;
+
+    public IntervalIndex() {
+        this.nodesById = new IntObjectMap<>();
+    }
+
+    public void add(int id, LocalDateTime startTime, LocalDateTime endTime) {
+        remove(id);
+        Node node = new Node(id, toSeconds(startTime), toSeconds(endTime));
+        root = insert(root, node);
+        nodesById.put(id, node);
+    }
+
+    public boolean remove(int id) {
+        Node node = nodesById.remove(id);
+        if (node == null) {
+            return false;
+        }
+        root = delete(root, node.start, node.id);
+        return true;
+    }
+
+    //Удаление многих интервалов за один проход: оставшиеся узлы уже упорядочены, дерево строится заново за O(n)
+    public void removeIf(IntPredicate isRemoved) {
+        List<Node> remainingNodes = new ArrayList<>(nodesById.size());
+        collectRemaining(root, isRemoved, remainingNodes);
+        nodesById.clear();
+        for (Node node : remainingNodes) {
+            nodesById.put(node.id, node);
+        }
+        root = build(remainingNodes, 0, remainingNodes.size() - 1);
+    }
+
+    public boolean contains(int id) {
+        return nodesById.containsKey(id);
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    public void clear() {
+        nodesById.clear();
+        root = null;
+    }
+
+    //Пересечением считается общий отрезок ненулевой длины: задачи "встык" не пересекаются
+    public boolean hasOverlap(LocalDateTime startTime, LocalDateTime endTime, int excludedId) {
+        return hasOverlap(startTime, endTime, id -> id == excludedId);
+    }
+
+    //Интервалы, для которых isExcluded возвращает true, не учитываются (например, заменяемые пакетом задачи)
+    public boolean hasOverlap(LocalDateTime startTime, LocalDateTime endTime, IntPredicate isExcluded) {
+        List<Integer> overlappingIds = new ArrayList<>();
+        collectOverlapping(root, toSeconds(startTime), toSeconds(endTime), isExcluded, overlappingIds, 1);
+        return !overlappingIds.isEmpty();
+    }
+
+    public List<Integer> findOverlapping(LocalDateTime startTime, LocalDateTime endTime) {
+        List<Integer> overlappingIds = new ArrayList<>();
+        collectOverlapping(root, toSeconds(startTime), toSeconds(endTime), id -> false, overlappingIds,
+                Integer.MAX_VALUE);
+        return overlappingIds;
+    }
+
+    /*
+     * Самое раннее время t >= notBefore, для которого [t, t + duration) не пересекается ни с одним интервалом.
+     * Поддеревья, закончившиеся до текущего кандидата или без достаточно длинных промежутков, пропускаются целиком
+     */
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore) {
+        long[] candidate = {toSeconds(notBefore)};
+        //Если промежуток не найден, кандидат уже сдвинут на окончание последнего интервала
+        findFreeSlot(root, duration.getSeconds(), candidate);
+        return LocalDateTime.ofEpochSecond(candidate[0], 0, ZoneOffset.UTC);
+    }
+
+    private static long toSeconds(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private void collectOverlapping(Node node,
+                                    long start,
+                                    long end,
+                                    IntPredicate isExcluded,
+                                    List<Integer> overlappingIds,
+                                    int limit) {
+        //В поддереве нет интервалов, заканчивающихся позже начала искомого
+        if (node == null || node.maxEnd <= start || overlappingIds.size() >= limit) {
+            return;
+        }
+        collectOverlapping(node.left, start, end, isExcluded, overlappingIds, limit);
+        //Правее только интервалы, начинающиеся не раньше текущего
+        if (node.start >= end || overlappingIds.size() >= limit) {
+            return;
+        }
+        if (node.end > start && !isExcluded.test(node.id)) {
+            overlappingIds.add(node.id);
+        }
+        collectOverlapping(node.right, start, end, isExcluded, overlappingIds, limit);
+    }
+
+    //Возвращает true, если свободный интервал найден; candidate[0] - текущий кандидат на время старта
+    private boolean findFreeSlot(Node node, long duration, long[] candidate) {
+        if (node == null || node.maxEnd <= candidate[0]) {
+            return false;
+        }
+        if (node.minStart - candidate[0] >= duration) {
+            return true;
+        }
+        //Начало поддерева слишком близко, а внутри нет промежутков нужной длины
+        if (node.maxGap < duration) {
+            candidate[0] = node.maxEnd;
+            return false;
+        }
+        if (findFreeSlot(node.left, duration, candidate)) {
+            return true;
+        }
+        if (node.start - candidate[0] >= duration) {
+            return true;
+        }
+        candidate[0] = Math.max(candidate[0], node.end);
+        return findFreeSlot(node.right, duration, candidate);
+    }
+
+    private static void collectRemaining(Node node, IntPredicate isRemoved, List<Node> remainingNodes) {
+        if (node == null) {
+            return;
+        }
+        collectRemaining(node.left, isRemoved, remainingNodes);
+        if (!isRemoved.test(node.id)) {
+            remainingNodes.add(node);
+        }
+        collectRemaining(node.right, isRemoved, remainingNodes);
+    }
+
+    //Сбалансированное дерево из узлов, упорядоченных по ключу
+    private static Node build(List<Node> nodes, int from, int to) {
+        if (from > to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node node = nodes.get(middle);
+        node.left = build(nodes, from, middle - 1);
+        node.right = build(nodes, middle + 1, to);
+        update(node);
+        return node;
+    }
+
+    private static int compare(long start1, int id1, long start2, int id2) {
+        int result = Long.compare(start1, start2);
+        return result != 0 ? result : Integer.compare(id1, id2);
+    }
+
+    private Node insert(Node node, Node newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (compare(newNode.start, newNode.id, node.start, node.id) < 0) {
+            node.left = insert(node.left, newNode);
+        } else {
+            node.right = insert(node.right, newNode);
+        }
+        return balance(node);
+    }
+
+    private Node delete(Node node, long start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = compare(start, id, node.start, node.id);
+        if (comparison < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private Node balance(Node node) {
+        update(node);
+        int balanceFactor = height(node.left) - height(node.right);
+        if (balanceFactor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balanceFactor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        long minStart = node.start;
+        long maxGap = Long.MIN_VALUE;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+            minStart = node.left.minStart;
+            maxGap = Math.max(node.left.maxGap, node.start - node.left.maxEnd);
+        }
+        if (node.right != null) {
+            //Промежуток перед правым поддеревом отсчитывается от самого позднего окончания левее него
+            maxGap = Math.max(maxGap, node.right.minStart - maxEnd);
+            maxGap = Math.max(maxGap, node.right.maxGap);
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+        node.minStart = minStart;
+        node.maxGap = maxGap;
+    }
+
+    private static class Node {
+        private final int id;
+        private final long start;
+        private final long end;
+        private long maxEnd;
+        private long minStart;
+        private long maxGap; //наибольший промежуток между соседними интервалами поддерева
+        private int height;
+        private Node left;
+        private Node right;
+
+        private Node(int id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+            this.minStart = start;
+            this.maxGap = Long.MIN_VALUE;
+            this.height = 1;
+        }
+    }
+}
@@ -9,16 +9,80 @@ public class Managers {
         return new InMemoryHistoryManager();
     }
 
+    //История хранит не больше historyCapacity последних просмотренных задач
+    public static InMemoryHistoryManager getDefaultHistory(int historyCapacity) {
+        return new InMemoryHistoryManager(historyCapacity);
+    }
+
+    //История с учетом частоты просмотров для списка горячих задач
+    public static HistoryManager getFrequencyTrackingHistory(int historyCapacity) {
+        return new FrequencyTrackingHistoryManager(getDefaultHistory(historyCapacity), new AccessFrequencyTracker());
+    }
+
     public static TaskManager getDefault() {
         TaskManager defaultManager = new InMemoryTaskManager();
         return defaultManager;
     }
 
+    public static TaskManager getDefault(int historyCapacity) {
+        TaskManager defaultManager = new InMemoryTaskManager(getDefaultHistory(historyCapacity));
+        return defaultManager;
+    }
+
+    public static TaskManager getDefault(HistoryManager historyManager) {
+        TaskManager defaultManager = new InMemoryTaskManager(historyManager);
+        return defaultManager;
+    }
+
+    public static TaskManager getConcurrent() {
+        TaskManager concurrentManager = new ConcurrentTaskManager();
+        return concurrentManager;
+    }
+
+    public static TaskManager getConcurrent(int historyCapacity) {
+        TaskManager concurrentManager = new ConcurrentTaskManager(historyCapacity);
+        return concurrentManager;
+    }
+
+    public static TaskManager getConcurrent(HistoryManager historyManager) {
+        TaskManager concurrentManager = new ConcurrentTaskManager(historyManager);
+        return concurrentManager;
+    }
+
+    //Задачи хранятся в колонках ColumnarTaskStore, менеджер возвращает их копии
+    public static TaskManager getColumnar() {
+        TaskManager columnarManager = new ColumnarTaskManager();
+        return columnarManager;
+    }
+
+    public static TaskManager getColumnar(HistoryManager historyManager) {
+        TaskManager columnarManager = new ColumnarTaskManager(historyManager);
+        return columnarManager;
+    }
+
+    //Колоночный менеджер с задачами и историей из двоичного снимка
+    public static TaskManager getColumnar(Path snapshotPath) throws IOException {
+        TaskManager columnarManager = ColumnarTaskManager.loadSnapshot(snapshotPath, getDefaultHistory());
+        return columnarManager;
+    }
+
     public static TaskManager getDefault(Path path) {
         TaskManager defaultManager = new FileBackedTaskManager(path);
         return defaultManager;
     }
 
+    //Изменения дописываются в журнал journalPath, снимок path пишется только в checkpoint
+    public static TaskManager getJournaled(Path path, Path journalPath) {
+        TaskManager journaledManager = new FileBackedTaskManager(path, journalPath);
+        return journaledManager;
+    }
+
+    //durability - когда изменения из журнала сбрасываются на диск
+    public static TaskManager getJournaled(Path path, Path journalPath, TaskJournal.Durability durability) {
+        TaskManager journaledManager = new FileBackedTaskManager(path, journalPath, durability);
+        return journaledManager;
+    }
+
     public static TaskManager getDefault(String host) throws IOException, InterruptedException {
         TaskManager defaultManager = new HttpTaskManager(host);
         return defaultManager;
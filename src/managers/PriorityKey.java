@@ -0,0 +1,62 @@
+package managers;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ключ приоритета: время старта (задачи без времени - в конце), затем id.
+ * Задачи с одинаковым временем старта различаются по id и не вытесняют друг друга.
+ * Ключ неизменяемый, поэтому задачу можно найти и удалить, даже если ее startTime изменили на месте
+ */
+public final class PriorityKey implements Comparable<PriorityKey> {
+    private final LocalDateTime startTime;
+    private final int id;
+
+    public PriorityKey(LocalDateTime startTime, int id) {
+        this.startTime = startTime;
+        this.id = id;
+    }
+
+    //Граница для выборки по времени: меньше любого ключа с тем же временем старта
+    public static PriorityKey lowerBound(LocalDateTime startTime) {
+        return new PriorityKey(startTime, Integer.MIN_VALUE);
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public int compareTo(PriorityKey other) {
+        if (startTime == null && other.startTime != null) {
+            return 1;
+        } else if (startTime != null && other.startTime == null) {
+            return -1;
+        } else if (startTime != null) {
+            int result = startTime.compareTo(other.startTime);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return compareTo((PriorityKey) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id);
+    }
+}
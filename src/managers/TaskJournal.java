@@ -0,0 +1,404 @@
+package managers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Журнал изменений FileBackedTaskManager: операция дописывает в конец файла записи только о затронутых задачах,
+ * поэтому ее стоимость не зависит от размера доски. Запись - строка "тип,данные":
+ * P,строка задачи в формате снимка - задача создана или изменена;
+ * R,id - задача удалена;
+ * V,id - задача просмотрена.
+ * Записи операции копятся до commit. Как они попадают на диск, задает Durability:
+ * при ASYNC_INTERVAL и SYNC_PER_BATCH записи пишет и сбрасывает на диск (force) отдельный поток,
+ * который объединяет все накопившиеся к этому моменту операции в одну запись и один force (group commit).
+ * Журнал делится на сегменты: rotate закрывает текущий файл под именем "journalPath.номер"
+ * и начинает новый, закрытые сегменты удаляются, когда их покрывает снимок
+ */
+public class TaskJournal implements Closeable {
+    public static final String PUT = "P";
+    public static final String REMOVE = "R";
+    public static final String VIEW = "V";
+    public static final long SYNC_INTERVAL_MILLIS = 10;
+
+    public enum Durability {
+        NONE, //записи передаются ОС сразу при commit, force не вызывается
+        ASYNC_INTERVAL, //force раз в SYNC_INTERVAL_MILLIS, commit не ждет записи
+        /*
+         * commit завершается после force пачки, в которую попала операция. Пачка объединяет операции,
+         * переданные в commit, пока шел предыдущий force: несколько операций на один force бывает,
+         * только если commit вызывают несколько потоков или поток не ждет результата каждого commit
+         */
+        SYNC_PER_BATCH
+    }
+
+    private final Path journalPath;
+    private final Durability durability;
+    private FileChannel channel; //текущий сегмент, заменяется в rotate под ioLock
+    private final ReentrantLock lock; //записи операции и очередь на запись
+    private final Condition hasQueuedRecords;
+    private final ReentrantLock ioLock; //запись в файл, force и очистка файла
+    private StringBuilder operationRecords;
+    private StringBuilder queuedRecords;
+    private List<CompletableFuture<Void>> waitingCommits;
+    private int activeSegmentRecords; //записи, переданные в текущий сегмент
+    private int lastSealedSegment; //только под ioLock
+    private boolean isSyncRequested;
+    private boolean isClosed;
+    private IOException writeFailure; //ошибка фоновой записи, о которой еще не сообщили
+    private volatile long batchCount; //пачки, записанные потоком записи; меняет только он
+    private final Thread writerThread;
+
+    public TaskJournal(Path journalPath) throws IOException {
+        this(journalPath, Durability.NONE);
+    }
+
+    public TaskJournal(Path journalPath, Durability durability) throws IOException {
+        this.journalPath = journalPath;
+        this.durability = durability;
+        this.channel = openActiveSegment();
+        List<Path> sealedSegments = getSealedSegments(journalPath);
+        this.lastSealedSegment = sealedSegments.isEmpty()
+                ? 0 : getSegmentNumber(journalPath, sealedSegments.get(sealedSegments.size() - 1));
+        this.lock = new ReentrantLock();
+        this.hasQueuedRecords = lock.newCondition();
+        this.ioLock = new ReentrantLock();
+        this.operationRecords = new StringBuilder();
+        this.queuedRecords = new StringBuilder();
+        this.waitingCommits = new ArrayList<>();
+        if (durability == Durability.NONE) {
+            this.writerThread = null;
+        } else {
+            this.writerThread = new Thread(this::runWriter, "task-journal-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    public Path getJournalPath() {
+        return journalPath;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    //Закрытые сегменты по возрастанию номера и текущий сегмент - в порядке применения при восстановлении
+    public static List<Path> getSegments(Path journalPath) throws IOException {
+        List<Path> segments = getSealedSegments(journalPath);
+        if (Files.exists(journalPath)) {
+            segments.add(journalPath);
+        }
+        return segments;
+    }
+
+    //Сколько раз поток записи записал и сбросил на диск пачку операций
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public int getActiveSegmentRecords() {
+        lock.lock();
+        try {
+            return activeSegmentRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //taskLine - строка задачи из снимка, уже с переводом строки
+    public void appendPut(String taskLine) {
+        lock.lock();
+        try {
+            operationRecords.append(PUT).append(',').append(taskLine);
+            activeSegmentRecords++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void appendRemove(int id) {
+        appendIdRecord(REMOVE, id);
+    }
+
+    public void appendView(int id) {
+        appendIdRecord(VIEW, id);
+    }
+
+    /*
+     * Передает записи операции на запись целиком. Результат завершается, когда записи переданы ОС (NONE)
+     * или сброшены на диск (ASYNC_INTERVAL, SYNC_PER_BATCH)
+     */
+    public CompletableFuture<Void> commit() throws IOException {
+        lock.lock();
+        try {
+            throwWriteFailure();
+            if (durability == Durability.NONE) {
+                String records = operationRecords.toString();
+                operationRecords.setLength(0);
+                write(records);
+                return CompletableFuture.completedFuture(null);
+            }
+            queuedRecords.append(operationRecords);
+            operationRecords.setLength(0);
+            CompletableFuture<Void> commit = new CompletableFuture<>();
+            waitingCommits.add(commit);
+            hasQueuedRecords.signal();
+            return commit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Результат завершается, когда все переданные в commit записи сброшены на диск
+    public CompletableFuture<Void> sync() throws IOException {
+        if (durability == Durability.NONE) {
+            ioLock.lock();
+            try {
+                channel.force(false);
+            } finally {
+                ioLock.unlock();
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        lock.lock();
+        try {
+            throwWriteFailure();
+            CompletableFuture<Void> sync = new CompletableFuture<>();
+            waitingCommits.add(sync);
+            isSyncRequested = true;
+            hasQueuedRecords.signal();
+            return sync;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Вызывается после записи снимка, который уже содержит все изменения журнала: удаляются все сегменты
+    public void truncate() throws IOException {
+        awaitSync();
+        ioLock.lock();
+        try {
+            channel.truncate(0);
+            channel.force(false);
+            deleteSealedSegments(lastSealedSegment);
+        } finally {
+            ioLock.unlock();
+        }
+        resetActiveSegmentRecords();
+    }
+
+    /*
+     * Закрывает текущий сегмент со всеми переданными в commit записями и начинает новый.
+     * Вызывается потоком, который изменяет менеджер, в точке, где снимается состояние для снимка:
+     * тогда закрытый сегмент содержит только изменения, вошедшие в снимок. Возвращает номер закрытого сегмента
+     */
+    public int rotate() throws IOException {
+        awaitSync();
+        ioLock.lock();
+        try {
+            channel.close();
+            int sealedSegment = lastSealedSegment + 1;
+            Files.move(journalPath, getSealedSegmentPath(sealedSegment), StandardCopyOption.ATOMIC_MOVE);
+            lastSealedSegment = sealedSegment;
+            channel = openActiveSegment();
+            resetActiveSegmentRecords();
+            return sealedSegment;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    //Удаляет закрытые сегменты с номерами до lastCoveredSegment включительно
+    public void deleteSealedSegments(int lastCoveredSegment) throws IOException {
+        for (Path sealedSegment : getSealedSegments(journalPath)) {
+            if (getSegmentNumber(journalPath, sealedSegment) <= lastCoveredSegment) {
+                Files.deleteIfExists(sealedSegment);
+            }
+        }
+    }
+
+    //Поток записи дописывает очередь перед завершением
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            isClosed = true;
+            hasQueuedRecords.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (writerThread != null) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lock.lock();
+        try {
+            throwWriteFailure();
+        } finally {
+            lock.unlock();
+            channel.close();
+        }
+    }
+
+    private void appendIdRecord(String recordType, int id) {
+        lock.lock();
+        try {
+            operationRecords.append(recordType).append(',').append(id).append('\n');
+            activeSegmentRecords++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void resetActiveSegmentRecords() {
+        lock.lock();
+        try {
+            activeSegmentRecords = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private FileChannel openActiveSegment() throws IOException {
+        return FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path getSealedSegmentPath(int segmentNumber) {
+        return journalPath.resolveSibling(journalPath.getFileName() + "." + segmentNumber);
+    }
+
+    private static List<Path> getSealedSegments(Path journalPath) throws IOException {
+        Path directory = journalPath.toAbsolutePath().getParent();
+        String prefix = journalPath.getFileName() + ".";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)
+                            && file.getFileName().toString().substring(prefix.length()).matches("\\d+"))
+                    .sorted(Comparator.comparingInt(file -> getSegmentNumber(journalPath, file)))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static int getSegmentNumber(Path journalPath, Path sealedSegment) {
+        return Integer.parseInt(sealedSegment.getFileName().toString()
+                .substring(journalPath.getFileName().toString().length() + 1));
+    }
+
+    private void awaitSync() throws IOException {
+        try {
+            sync().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Ожидание записи журнала прервано", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Ошибка записи журнала", e.getCause());
+        }
+    }
+
+    //Только под lock
+    private void throwWriteFailure() throws IOException {
+        if (writeFailure != null) {
+            IOException failure = writeFailure;
+            writeFailure = null;
+            throw failure;
+        }
+    }
+
+    private void runWriter() {
+        boolean isLastBatch = false;
+        while (!isLastBatch) {
+            String batch;
+            List<CompletableFuture<Void>> batchCommits;
+            lock.lock();
+            try {
+                awaitBatch();
+                batch = queuedRecords.toString();
+                queuedRecords = new StringBuilder();
+                batchCommits = waitingCommits;
+                waitingCommits = new ArrayList<>();
+                isSyncRequested = false;
+                isLastBatch = isClosed;
+            } finally {
+                lock.unlock();
+            }
+            if (batch.isEmpty() && batchCommits.isEmpty()) {
+                continue;
+            }
+            try {
+                ioLock.lock();
+                try {
+                    write(batch);
+                    channel.force(false);
+                } finally {
+                    ioLock.unlock();
+                }
+                batchCount++;
+                batchCommits.forEach(commit -> commit.complete(null));
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    writeFailure = e;
+                } finally {
+                    lock.unlock();
+                }
+                batchCommits.forEach(commit -> commit.completeExceptionally(e));
+            }
+        }
+    }
+
+    /*
+     * Только под lock. Поток ждет первую операцию; SYNC_PER_BATCH пишет сразу,
+     * ASYNC_INTERVAL еще копит операции SYNC_INTERVAL_MILLIS или до запроса sync
+     */
+    private void awaitBatch() {
+        try {
+            while (waitingCommits.isEmpty() && !isClosed) {
+                hasQueuedRecords.await();
+            }
+            if (durability == Durability.ASYNC_INTERVAL) {
+                long remainingNanos = TimeUnit.MILLISECONDS.toNanos(SYNC_INTERVAL_MILLIS);
+                while (remainingNanos > 0 && !isSyncRequested && !isClosed) {
+                    remainingNanos = hasQueuedRecords.awaitNanos(remainingNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            isClosed = true;
+        }
+    }
+
+    private void write(String records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        ioLock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+}
@@ -6,26 +6,62 @@ import model.Subtask;
 import model.Task;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public interface TaskManager {
 
     int createItem(Task anyItem);
 
+    /*
+     * Пакетное создание: все интервалы проверяются до изменений, при ошибке не создается ни одна задача.
+     * Задачи пакета получают id подряд в порядке списка, а подзадачи связываются с эпиками после записи
+     * всего пакета, поэтому epicId подзадачи может указывать на эпик из того же пакета
+     */
+    ArrayList<Integer> createItems(List<? extends Task> items);
+
     int getIdCounter();
 
+    void setIdCounter(int idCounter);
+
     ArrayList<Task> getAllItemsByType(ItemType itemType);
 
     void updateItem(Task anyItem, int id);
 
+    //Пакетное обновление (id -> новая версия задачи) по тем же правилам, что и createItems
+    void updateItems(Map<Integer, ? extends Task> items);
+
     void removeItemById(int id);
 
     void removeAllItemsByType(ItemType itemType);
 
     Task getItemById(int id);
 
+    //Поиск по id без записи просмотра в историю; null, если задачи нет
+    Task getItemByIdWithoutSavingHistory(int id);
+
+    //Все задачи, подзадачи и эпики без учета типа
+    ArrayList<Task> getAllItemsOfAllTypes();
+
+    HistoryManager getHistoryManager();
+
     ArrayList<Task> getPrioritizedTasks();
 
+    //Задачи со временем старта в интервале [from, to) в порядке приоритета
+    ArrayList<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to);
+
+    //Не более limit задач, следующих в порядке приоритета за задачей afterId (0 - с начала списка)
+    ArrayList<Task> getPrioritizedTasksPage(int afterId, int limit);
+
+    //Самое раннее время старта не раньше notBefore, с которого задача длительностью duration ни с чем не пересечется
+    LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore);
+
+    //Не больше limit самых часто просматриваемых задач, по убыванию частоты
+    ArrayList<Task> getHotTasks(int limit);
+
     void linkSubtaskToEpic(Subtask subtask, Epic epic);
 
     ArrayList<Subtask> getEpicSubtasks(int epicId);
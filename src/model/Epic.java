@@ -6,32 +6,32 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public class Epic extends Task {
-    private List<Integer> epicSubtaskIds;
+    //Единственный источник состава подзадач: id подзадач - ключи накопительных показателей
+    private transient EpicSubtasksAggregate subtasksAggregate = new EpicSubtasksAggregate();
+    //Живое представление id подзадач показателей в порядке добавления; в JSON попадает как список
+    private Set<Integer> epicSubtaskIds = subtasksAggregate.getSubtaskIds();
     private LocalDateTime endTime;
 
     public Epic(int id, String name) {
         super(id, name);
-        this.epicSubtaskIds = new ArrayList<>();
         this.itemType = ItemType.EPIC;
     }
 
     public Epic(String name) {
         super(name);
-        this.epicSubtaskIds = new ArrayList<>();
         this.itemType = ItemType.EPIC;
     }
 
     public Epic(int id, String name, String description) {
         super(id, name, description);
-        this.epicSubtaskIds = new ArrayList<>();
         this.itemType = ItemType.EPIC;
     }
 
     public Epic(String name, String description) {
         super(name, description);
-        this.epicSubtaskIds = new ArrayList<>();
         this.itemType = ItemType.EPIC;
     }
 
@@ -43,12 +43,11 @@ public class Epic extends Task {
                 Duration durationMinutes,
                 LocalDateTime startTime) {
         super(id, name, description, status, itemType, durationMinutes, startTime);
-        this.epicSubtaskIds = new ArrayList<>();
     }
 
     @Override
     public Optional<LocalDateTime> getEndTime() {
-        return Optional.of(this.endTime);
+        return Optional.ofNullable(this.endTime);
     }
 
     public void setEndTime(LocalDateTime endTime) {
@@ -56,19 +55,29 @@ public class Epic extends Task {
     }
 
     public void addSubtask(Subtask subtask) {
-        this.epicSubtaskIds.add(subtask.getId());
+        getSubtasksAggregate().put(subtask);
     }
 
     public void deleteSubtaskById(Integer id) {
-        epicSubtaskIds.remove(id);
+        getSubtasksAggregate().remove(id);
     }
 
+    //Копия в порядке добавления подзадач
     public List<Integer> getEpicSubtaskIds() {
-        return epicSubtaskIds;
+        return new ArrayList<>(epicSubtaskIds);
     }
 
-    public void loadEpicSubtasksIds(List<Integer> epicSubtaskIds) {
-        this.epicSubtaskIds = epicSubtaskIds;
+    public EpicSubtasksAggregate getSubtasksAggregate() {
+        /*
+         * Эпик, созданный Gson, не проходит через конструктор и приносит только список id из JSON.
+         * Менеджер собирает состав подзадач заново из самих подзадач, поэтому список заменяется
+         * представлением пустых показателей
+         */
+        if (subtasksAggregate == null) {
+            subtasksAggregate = new EpicSubtasksAggregate();
+            epicSubtaskIds = subtasksAggregate.getSubtaskIds();
+        }
+        return subtasksAggregate;
     }
 
     @Override
@@ -0,0 +1,137 @@
+package model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Накопительные показатели подзадач эпика: количество подзадач по статусам, суммарная продолжительность,
+ * мультимножества времени старта и окончания (для min / max с поддержкой удаления).
+ * Для каждой подзадачи хранится снимок ее вклада, поэтому изменение или удаление подзадачи
+ * пересчитывает показатели за O(log k), где k - количество подзадач эпика
+ */
+public class EpicSubtasksAggregate {
+    private final Map<Integer, SubtaskContribution> contributions; //в порядке добавления подзадач
+    private final Set<Integer> subtaskIds;
+    private final int[] statusCounts;
+    private final TreeMap<LocalDateTime, Integer> startTimes;
+    private final TreeMap<LocalDateTime, Integer> endTimes;
+    private long durationMinutesSum;
+
+    public EpicSubtasksAggregate() {
+        this.contributions = new LinkedHashMap<>();
+        this.subtaskIds = Collections.unmodifiableSet(contributions.keySet());
+        this.statusCounts = new int[Status.values().length];
+        this.startTimes = new TreeMap<>();
+        this.endTimes = new TreeMap<>();
+    }
+
+    //Повторный put заменяет вклад подзадачи, не меняя ее места в порядке добавления
+    public void put(Subtask subtask) {
+        SubtaskContribution contribution = new SubtaskContribution(subtask);
+        SubtaskContribution previousContribution = contributions.put(subtask.getId(), contribution);
+        if (previousContribution != null) {
+            subtract(previousContribution);
+        }
+        statusCounts[contribution.status.ordinal()]++;
+        durationMinutesSum += contribution.durationMinutes;
+        addTime(startTimes, contribution.startTime);
+        addTime(endTimes, contribution.endTime);
+    }
+
+    public void remove(int subtaskId) {
+        SubtaskContribution contribution = contributions.remove(subtaskId);
+        if (contribution != null) {
+            subtract(contribution);
+        }
+    }
+
+    private void subtract(SubtaskContribution contribution) {
+        statusCounts[contribution.status.ordinal()]--;
+        durationMinutesSum -= contribution.durationMinutes;
+        removeTime(startTimes, contribution.startTime);
+        removeTime(endTimes, contribution.endTime);
+    }
+
+    public void clear() {
+        contributions.clear();
+        startTimes.clear();
+        endTimes.clear();
+        durationMinutesSum = 0;
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = 0;
+        }
+    }
+
+    public boolean contains(int subtaskId) {
+        return contributions.containsKey(subtaskId);
+    }
+
+    public boolean isEmpty() {
+        return contributions.isEmpty();
+    }
+
+    public int size() {
+        return contributions.size();
+    }
+
+    //Живое представление только для чтения: состав меняется через put / remove
+    public Set<Integer> getSubtaskIds() {
+        return subtaskIds;
+    }
+
+    //Все подзадачи NEW (или подзадач нет) -> NEW, все DONE -> DONE, иначе IN_PROGRESS
+    public Status getStatus() {
+        int size = contributions.size();
+        if (size == 0 || statusCounts[Status.NEW.ordinal()] == size) {
+            return Status.NEW;
+        } else if (statusCounts[Status.DONE.ordinal()] == size) {
+            return Status.DONE;
+        } else {
+            return Status.IN_PROGRESS;
+        }
+    }
+
+    public Duration getDuration() {
+        return Duration.of(durationMinutesSum, ChronoUnit.MINUTES);
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTimes.isEmpty() ? null : startTimes.firstKey();
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTimes.isEmpty() ? null : endTimes.lastKey();
+    }
+
+    private static void addTime(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        if (time != null) {
+            times.merge(time, 1, Integer::sum);
+        }
+    }
+
+    private static void removeTime(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        if (time != null) {
+            times.computeIfPresent(time, (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private static class SubtaskContribution {
+        private final Status status;
+        private final long durationMinutes;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+
+        private SubtaskContribution(Subtask subtask) {
+            this.status = subtask.getStatus() == null ? Status.NEW : subtask.getStatus();
+            this.durationMinutes = subtask.getDurationMinutes() == null ? 0 : subtask.getDurationMinutes().toMinutes();
+            this.startTime = subtask.getStartTime();
+            this.endTime = subtask.getEndTime().orElse(null);
+        }
+    }
+}
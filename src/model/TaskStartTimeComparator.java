@@ -2,15 +2,20 @@ package model;
 
 import java.util.Comparator;
 
+//Порядок по времени старта (задачи без времени - в конце), при равенстве - по id, чтобы задачи не считались дублями
 public class TaskStartTimeComparator implements Comparator<Task> {
     @Override
     public int compare(Task task1, Task task2) {
-        if (task1.getStartTime() == null) {
+        if (task1.getStartTime() == null && task2.getStartTime() != null) {
             return 1;
-        } else if (task2.getStartTime() == null) {
+        } else if (task1.getStartTime() != null && task2.getStartTime() == null) {
             return -1;
-        } else {
-            return task1.getStartTime().compareTo(task2.getStartTime());
+        } else if (task1.getStartTime() != null) {
+            int result = task1.getStartTime().compareTo(task2.getStartTime());
+            if (result != 0) {
+                return result;
+            }
         }
+        return Integer.compare(task1.getId(), task2.getId());
     }
 }
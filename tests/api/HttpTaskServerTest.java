@@ -5,6 +5,7 @@ import adapters.LocalDateTimeAdapter;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
 import exceptions.NoSuchTaskExistsException;
+import managers.InMemoryHistoryManager;
 import managers.Managers;
 import managers.TaskManager;
 import model.Epic;
@@ -300,6 +301,20 @@ public class HttpTaskServerTest {
         assertEquals(400, response.statusCode(), "Некорректный код ответа");
     }
 
+    @Test
+    public void shouldReturn400IfIdDoesNotFitInInt() throws InterruptedException, IOException {
+        URI url = URI.create("http://localhost:8080/api/v1/tasks/?id=99999999999");
+        HttpRequest request = HttpRequest.newBuilder()
+                .GET()
+                .uri(url)
+                .header("Accept", "application/json")
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(400, response.statusCode(), "Некорректный код ответа");
+    }
+
     //тесты на контракт GET /api/v1/tasks/subtasks/epic/?id=
     @Test
     public void shouldReturnAllEpicSubtasks() throws InterruptedException, IOException {
@@ -491,6 +506,186 @@ public class HttpTaskServerTest {
         assertEquals(testSubtask, requestedItems.get(1));
     }
 
+    @Test
+    public void shouldReturnPrioritiesInWindowAndByPage() throws InterruptedException, IOException {
+        Task testTask1 = new Task("testTask1");
+        testTask1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        testTask1.setDurationMinutes(Duration.ofMinutes(60));
+        taskManager.createItem(testTask1);
+        Task testTask2 = new Task("testTask2");
+        testTask2.setStartTime(LocalDateTime.parse("02-01-2023 12:00", formatter));
+        testTask2.setDurationMinutes(Duration.ofMinutes(60));
+        taskManager.createItem(testTask2);
+        Task testTask3 = new Task("testTask3");
+        taskManager.createItem(testTask3);
+        Type taskListType = new TypeToken<List<Task>>() {
+        }.getType();
+
+        HttpResponse<String> windowResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/priorities/"
+                                + "?from=01-01-2023%2012:00&to=02-01-2023%2012:00"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> pageResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/priorities/?after="
+                                + testTask1.getId() + "&limit=5"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> wrongDateResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/priorities/?from=2023-01-01&to=2023-01-02"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> tooLargeLimitResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/priorities/?limit=99999999999"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, windowResponse.statusCode(), "Некорректный код ответа");
+        assertEquals(List.of(testTask1), gson.fromJson(windowResponse.body(), taskListType),
+                "Неверный список задач в интервале");
+        assertEquals(200, pageResponse.statusCode(), "Некорректный код ответа");
+        assertEquals(List.of(testTask2, testTask3), gson.fromJson(pageResponse.body(), taskListType),
+                "Неверная страница списка приоритетов");
+        assertEquals(400, wrongDateResponse.statusCode(), "Некорректный код ответа");
+        assertEquals(400, tooLargeLimitResponse.statusCode(), "Некорректный код ответа");
+    }
+
+    //тест на контракт GET /api/v1/tasks/history/?after=id&limit=n
+    @Test
+    public void shouldReturnHistoryPageFromMostRecent() throws InterruptedException, IOException {
+        Task testTask1 = new Task("testTask1");
+        Task testTask2 = new Task("testTask2");
+        Task testTask3 = new Task("testTask3");
+        taskManager.createItems(List.of(testTask1, testTask2, testTask3));
+        taskManager.getItemById(testTask1.getId());
+        taskManager.getItemById(testTask2.getId());
+        taskManager.getItemById(testTask3.getId());
+        Type taskListType = new TypeToken<List<Task>>() {
+        }.getType();
+
+        HttpResponse<String> firstPageResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/history/?limit=2"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> nextPageResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/history/?after="
+                                + testTask2.getId() + "&limit=2"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> unknownCursorResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/history/?after=100&limit=2"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> wrongParamsResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/history/?limit=two"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> tooLargeLimitResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/history/?limit=99999999999"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, firstPageResponse.statusCode(), "Некорректный код ответа");
+        assertEquals(List.of(testTask3, testTask2), gson.fromJson(firstPageResponse.body(), taskListType),
+                "Неверная первая страница истории");
+        assertEquals(200, nextPageResponse.statusCode(), "Некорректный код ответа");
+        assertEquals(List.of(testTask1), gson.fromJson(nextPageResponse.body(), taskListType),
+                "Неверная следующая страница истории");
+        assertEquals(204, unknownCursorResponse.statusCode(), "Некорректный код ответа");
+        assertEquals(400, wrongParamsResponse.statusCode(), "Некорректный код ответа");
+        assertEquals(400, tooLargeLimitResponse.statusCode(), "Некорректный код ответа");
+    }
+
+    //тест на контракт GET /api/v1/tasks/hot/?limit=n
+    @Test
+    public void shouldReturnHotTasks() throws InterruptedException, IOException {
+        httpTaskServer.stop();
+        taskManager = Managers.getDefault(
+                Managers.getFrequencyTrackingHistory(InMemoryHistoryManager.UNLIMITED_CAPACITY));
+        httpTaskServer = new HttpTaskServer(taskManager);
+        httpTaskServer.start();
+        Task testTask1 = new Task("testTask1");
+        Task testTask2 = new Task("testTask2");
+        taskManager.createItems(List.of(testTask1, testTask2));
+        taskManager.getItemById(testTask1.getId());
+        taskManager.getItemById(testTask2.getId());
+        taskManager.getItemById(testTask2.getId());
+        Type taskListType = new TypeToken<List<Task>>() {
+        }.getType();
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/hot/?limit=1"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> wrongParamsResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/hot/?limit=-1"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> tooLargeLimitResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/hot/?limit=99999999999"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), "Некорректный код ответа");
+        assertEquals(List.of(testTask2), gson.fromJson(response.body(), taskListType),
+                "Неверный список горячих задач");
+        assertEquals(400, wrongParamsResponse.statusCode(), "Некорректный код ответа");
+        assertEquals(400, tooLargeLimitResponse.statusCode(), "Некорректный код ответа");
+    }
+
+    //тест на контракт GET /api/v1/tasks/slot/
+    @Test
+    public void shouldReturnFreeSlot() throws InterruptedException, IOException {
+        Task testTask = new Task("testTask");
+        testTask.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        testTask.setDurationMinutes(Duration.ofMinutes(60));
+        taskManager.createItem(testTask);
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/slot/"
+                                + "?duration=30&notBefore=01-01-2023%2011:45"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> wrongParamsResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/slot/?duration=30"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> tooLongDurationResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/slot/"
+                                + "?duration=999999999999999999999&notBefore=01-01-2023%2011:45"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> slotAfterMaxTimeResponse = client.send(HttpRequest.newBuilder()
+                        .GET()
+                        .uri(URI.create("http://localhost:8080/api/v1/tasks/slot/"
+                                + "?duration=999999999999999&notBefore=01-01-2023%2011:45"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        JsonObject slotObject = JsonParser.parseString(response.body()).getAsJsonObject();
+
+        assertEquals(200, response.statusCode(), "Некорректный код ответа");
+        assertEquals("01-01-2023 13:00", slotObject.get("startTime").getAsString(), "Неверное время старта");
+        assertEquals("01-01-2023 13:30", slotObject.get("endTime").getAsString(), "Неверное время окончания");
+        assertEquals(400, wrongParamsResponse.statusCode(), "Некорректный код ответа");
+        assertEquals(400, tooLongDurationResponse.statusCode(), "Некорректный код ответа");
+        assertEquals(400, slotAfterMaxTimeResponse.statusCode(), "Некорректный код ответа");
+    }
+
     @Test
     public void shouldReturn204IfPrioritiesListIsEmpty() throws InterruptedException, IOException {
         URI url = URI.create("http://localhost:8080/api/v1/tasks/priorities/");
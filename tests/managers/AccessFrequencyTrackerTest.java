@@ -0,0 +1,70 @@
+package managers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessFrequencyTrackerTest {
+    private AccessFrequencyTracker tracker;
+
+    @BeforeEach
+    public void beforeEach() {
+        tracker = new AccessFrequencyTracker(1024, 8);
+    }
+
+    @Test
+    public void shouldReturnMostFrequentIdsAmongManyRareOnes() {
+        //Подготовка данных: id 1..5 просматриваются 500, 400, ... 100 раз на фоне 100 000 редких просмотров
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            tracker.recordAccess(100 + random.nextInt(1_000_000));
+            if (i % 200 == 0) {
+                for (int id = 1; id <= 5; id++) {
+                    for (int repeat = 0; repeat < 6 - id; repeat++) {
+                        tracker.recordAccess(id);
+                    }
+                }
+            }
+        }
+
+        //Проверка горячих задач
+        assertEquals(List.of(1, 2, 3, 4, 5), tracker.getHotIds(5), "Неверный список горячих задач");
+    }
+
+    @Test
+    public void shouldNotReturnRemovedId() {
+        //Подготовка данных
+        for (int repeat = 0; repeat < 3; repeat++) {
+            tracker.recordAccess(1);
+            tracker.recordAccess(2);
+        }
+        tracker.recordAccess(3);
+
+        //Тестируемая логика
+        tracker.remove(1);
+
+        //Проверка горячих задач
+        assertEquals(List.of(2, 3), tracker.getHotIds(10), "Удаленная задача осталась в списке");
+    }
+
+    @Test
+    public void shouldForgetOldPopularityAfterAging() {
+        //Подготовка данных: id 1 был популярен раньше, затем популярным стал id 2
+        for (int i = 0; i < 5_000; i++) {
+            tracker.recordAccess(1);
+        }
+
+        //Тестируемая логика: несколько периодов старения (10 * 1024 обращений каждый)
+        for (int i = 0; i < 50_000; i++) {
+            tracker.recordAccess(2);
+        }
+
+        //Проверка оценок частоты
+        assertEquals(List.of(2, 1), tracker.getHotIds(2), "Старая популярность не затухла");
+        assertTrue(tracker.estimateFrequency(1) < 5_000 / 16, "Счетчик не уменьшен при старении");
+    }
+}
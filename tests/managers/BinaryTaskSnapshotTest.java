@@ -0,0 +1,114 @@
+package managers;
+
+import model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryTaskSnapshotTest {
+    private Path snapshotFile;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        snapshotFile = Files.createTempFile("binarySnapshot", ".bin");
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Test
+    public void shouldRestoreTasksAndHistoryFromSnapshot() throws IOException {
+        //Подготовка данных
+        Task task = new Task(1, "задача", null, Status.NEW, ItemType.TASK, null, null);
+        Epic epic = new Epic(2, "epic", "описание", Status.IN_PROGRESS, ItemType.EPIC,
+                Duration.ofMinutes(60), LocalDateTime.of(2023, 1, 1, 10, 0));
+        epic.setEndTime(LocalDateTime.of(2023, 1, 1, 11, 0));
+        Subtask subtask = new Subtask(3, "subtask", "описание", Status.DONE, ItemType.SUBTASK,
+                Duration.ofMinutes(60), LocalDateTime.of(2023, 1, 1, 10, 0), 2);
+
+        //Тестируемая логика
+        BinaryTaskSnapshot.write(snapshotFile, List.of(task, epic, subtask), List.of(3, 1), 4);
+        BinaryTaskSnapshot snapshot = BinaryTaskSnapshot.open(snapshotFile);
+
+        //Проверка содержимого
+        assertTrue(BinaryTaskSnapshot.isBinarySnapshot(snapshotFile), "Снимок не распознан");
+        assertEquals(3, snapshot.size(), "Неверное количество записей");
+        assertEquals(4, snapshot.getIdCounter(), "Неверный счетчик id");
+        assertEquals(4, snapshot.getStringCount(), "Одинаковые строки не объединены");
+        assertEquals(2, snapshot.getHistorySize(), "Неверная длина истории");
+        assertEquals(3, snapshot.getHistoryId(0), "Неверный порядок истории");
+        assertEquals(1, snapshot.getHistoryId(1), "Неверный порядок истории");
+        Task restoredTask = snapshot.getTask(0);
+        assertEquals("задача", restoredTask.getName(), "Неверное название");
+        assertNull(restoredTask.getDescription(), "Описание не должно быть задано");
+        assertNull(restoredTask.getStartTime(), "Время старта не должно быть задано");
+        assertNull(restoredTask.getDurationMinutes(), "Продолжительность не должна быть задана");
+        Task restoredEpic = snapshot.getTask(1);
+        assertEquals(ItemType.EPIC, restoredEpic.getItemType(), "Неверный тип задачи");
+        assertEquals(LocalDateTime.of(2023, 1, 1, 11, 0), restoredEpic.getEndTime().get(),
+                "Неверное время окончания эпика");
+        Subtask restoredSubtask = (Subtask) snapshot.getTask(2);
+        assertEquals(Status.DONE, restoredSubtask.getStatus(), "Неверный статус");
+        assertEquals(Duration.ofMinutes(60), restoredSubtask.getDurationMinutes(), "Неверная продолжительность");
+        assertEquals(2, restoredSubtask.getEpicId(), "Неверный эпик подзадачи");
+    }
+
+    @Test
+    public void shouldShareDecodedStringsBetweenTasksOfBulkRead() throws IOException {
+        //Подготовка данных
+        Task task1 = new Task(1, "name", "описание");
+        Task task2 = new Task(2, "name", "описание");
+        BinaryTaskSnapshot.write(snapshotFile, List.of(task1, task2), List.of(), 3);
+        BinaryTaskSnapshot snapshot = BinaryTaskSnapshot.open(snapshotFile);
+
+        //Тестируемая логика
+        List<Task> tasks = new ArrayList<>();
+        snapshot.forEachTask(tasks::add);
+
+        //Проверка, что задачи прочитаны по порядку и строка декодирована один раз
+        assertEquals(List.of(task1, task2), tasks, "Неверные задачи снимка");
+        assertSame(tasks.get(0).getName(), tasks.get(1).getName(), "Строка декодирована повторно");
+        assertSame(tasks.get(0).getDescription(), tasks.get(1).getDescription(), "Строка декодирована повторно");
+    }
+
+    @Test
+    public void shouldRejectSnapshotWithUnsupportedVersion() throws IOException {
+        //Подготовка данных
+        BinaryTaskSnapshot.write(snapshotFile, List.of(new Task("task")), List.of(), 2);
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(BinaryTaskSnapshot.VERSION + 1).flip(), Integer.BYTES);
+        }
+
+        //Тестируемая логика и проверка
+        Assertions.assertThrows(IOException.class,
+                () -> BinaryTaskSnapshot.open(snapshotFile),
+                "Открыт снимок неподдерживаемой версии");
+    }
+
+    @Test
+    public void shouldNotDetectCsvFileAsBinarySnapshot() throws IOException {
+        //Подготовка данных
+        Files.writeString(snapshotFile, "id,type,name,status,description,duration,startTime,endTime,epic\n");
+
+        //Тестируемая логика и проверка
+        assertFalse(BinaryTaskSnapshot.isBinarySnapshot(snapshotFile), "CSV распознан как двоичный снимок");
+    }
+}
@@ -0,0 +1,343 @@
+package managers;
+
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Общие тесты TaskManagerTest и тесты копий задач. Менеджер возвращает копии, поэтому тесты, которые
+ * читают показатели эпика или порядок приоритетов из переданных менеджеру объектов, переопределены:
+ * те же проверки делаются по задачам, полученным из менеджера
+ */
+public class ColumnarTaskManagerTest extends TaskManagerTest<ColumnarTaskManager> {
+
+    @Override
+    protected void setTaskManager() {
+        taskManager = (ColumnarTaskManager) Managers.getColumnar();
+    }
+
+    //Список типа без задач пуст, а не null
+    @Test
+    @Override
+    public void shouldReturnEmptyListIfTasksDoNotExist() {
+        assertTrue(taskManager.getAllItemsByType(ItemType.TASK).isEmpty(), "Список не пустой");
+    }
+
+    @Test
+    @Override
+    public void shouldReturnEmptyListIfSubtasksDoNotExist() {
+        assertTrue(taskManager.getAllItemsByType(ItemType.SUBTASK).isEmpty(), "Список не пустой");
+    }
+
+    @Test
+    @Override
+    public void shouldReturnEmptyListIfEpicsDoNotExist() {
+        assertTrue(taskManager.getAllItemsByType(ItemType.EPIC).isEmpty(), "Список не пустой");
+    }
+
+    @Test
+    @Override
+    public void shouldReturnEpicSubtasksCreatedWithEpicId() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        taskManager.createItem(epic);
+        Subtask subtask1 = new Subtask("subtask1");
+        subtask1.setEpicId(epic.getId());
+        taskManager.createItem(subtask1);
+        Subtask subtask2 = new Subtask("subtask2");
+        taskManager.createItem(subtask2);
+
+        //Тестируемая логика
+        taskManager.linkSubtaskToEpic(subtask2, epic);
+
+        //Проверка списка подзадач
+        assertEquals(List.of(subtask1, subtask2), taskManager.getEpicSubtasks(epic.getId()),
+                "Неверный список подзадач");
+        assertEquals(List.of(subtask1.getId(), subtask2.getId()), getEpic(epic.getId()).getEpicSubtaskIds(),
+                "Неверный список id подзадач");
+        Subtask savedSubtask2 = (Subtask) taskManager.getItemByIdWithoutSavingHistory(subtask2.getId());
+        assertEquals(epic.getId(), savedSubtask2.getEpicId(), "Связь не сохранена в подзадаче");
+    }
+
+    @Test
+    @Override
+    public void shouldMoveSubtaskToOtherEpicWhenEpicIdIsUpdated() {
+        //Подготовка данных
+        Epic epic1 = new Epic("epic1");
+        taskManager.createItem(epic1);
+        Epic epic2 = new Epic("epic2");
+        taskManager.createItem(epic2);
+        Subtask subtask = new Subtask("subtask");
+        taskManager.createItem(subtask);
+        taskManager.linkSubtaskToEpic(subtask, epic1);
+
+        //Тестируемая логика
+        subtask.setEpicId(epic2.getId());
+        taskManager.updateItem(subtask, subtask.getId());
+
+        //Проверка списков подзадач
+        assertTrue(taskManager.getEpicSubtasks(epic1.getId()).isEmpty(), "Подзадача осталась у эпика");
+        assertTrue(getEpic(epic1.getId()).getEpicSubtaskIds().isEmpty(), "Подзадача осталась у эпика");
+        assertEquals(List.of(subtask), taskManager.getEpicSubtasks(epic2.getId()), "Подзадача не перенесена");
+        assertEquals(List.of(subtask.getId()), getEpic(epic2.getId()).getEpicSubtaskIds(), "Подзадача не перенесена");
+    }
+
+    @Test
+    @Override
+    public void shouldCreateItemsBatchAndRecalculateEpic() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        taskManager.createItem(epic);
+        Subtask subtask1 = new Subtask("subtask1");
+        subtask1.setEpicId(epic.getId());
+        subtask1.setStatus(Status.DONE);
+        subtask1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        subtask1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Subtask subtask2 = new Subtask("subtask2");
+        subtask2.setEpicId(epic.getId());
+        subtask2.setStatus(Status.DONE);
+        subtask2.setStartTime(LocalDateTime.parse("01-01-2023 10:00", formatter));
+        subtask2.setDurationMinutes(Duration.of(60, ChronoUnit.MINUTES));
+        Task task = new Task("task");
+
+        //Тестируемая логика
+        List<Integer> ids = taskManager.createItems(List.of(subtask1, subtask2, task));
+
+        //Проверка созданных задач и показателей эпика
+        Epic savedEpic = getEpic(epic.getId());
+        assertEquals(List.of(2, 3, 4), ids, "Неверные id задач пакета");
+        assertEquals(subtask2, taskManager.getItemById(3), "Задача не найдена");
+        assertEquals(List.of(subtask1, subtask2), taskManager.getEpicSubtasks(epic.getId()),
+                "Неверный список подзадач эпика");
+        assertEquals(Status.DONE, savedEpic.getStatus(), "Неверный статус эпика");
+        assertEquals(LocalDateTime.parse("01-01-2023 10:00", formatter), savedEpic.getStartTime(),
+                "Неверное время старта эпика");
+        assertEquals(Duration.of(90, ChronoUnit.MINUTES), savedEpic.getDurationMinutes(),
+                "Неверная продолжительность эпика");
+        assertEquals(3, taskManager.getPrioritizedTasks().size(), "Неверный список приоритетов");
+    }
+
+    @Test
+    @Override
+    public void shouldLinkBatchSubtasksToEpicFromSameBatch() {
+        //Подготовка данных: эпик пакета получит id 2 и стоит между своими подзадачами
+        Subtask subtask1 = new Subtask("subtask1");
+        subtask1.setEpicId(2);
+        subtask1.setStatus(Status.DONE);
+        Epic epic = new Epic("epic");
+        Subtask subtask2 = new Subtask("subtask2");
+        subtask2.setEpicId(2);
+        subtask2.setStatus(Status.DONE);
+        subtask2.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        subtask2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+
+        //Тестируемая логика
+        List<Integer> ids = taskManager.createItems(List.of(subtask1, epic, subtask2));
+
+        //Проверка связей и показателей эпика
+        Epic savedEpic = getEpic(epic.getId());
+        assertEquals(List.of(1, 2, 3), ids, "Неверные id задач пакета");
+        assertEquals(List.of(subtask1, subtask2), taskManager.getEpicSubtasks(epic.getId()),
+                "Подзадачи пакета не связаны с эпиком пакета");
+        assertEquals(Status.DONE, savedEpic.getStatus(), "Неверный статус эпика");
+        assertEquals(LocalDateTime.parse("01-01-2023 12:00", formatter), savedEpic.getStartTime(),
+                "Неверное время старта эпика");
+    }
+
+    @Test
+    @Override
+    public void shouldUpdateItemsBatch() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        taskManager.createItem(epic);
+        Task task = new Task("task");
+        task.setStartTime(LocalDateTime.parse("01-01-2023 12:30", formatter));
+        task.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Subtask subtask = new Subtask("subtask");
+        subtask.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        subtask.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        subtask.setEpicId(epic.getId());
+        taskManager.createItems(List.of(task, subtask));
+        Task updatedTask = new Task(task.getId(), "updatedTask", "description", Status.DONE, ItemType.TASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 13:00", formatter));
+        Subtask updatedSubtask = new Subtask(subtask.getId(), "updatedSubtask", "description", Status.IN_PROGRESS,
+                ItemType.SUBTASK, Duration.of(30, ChronoUnit.MINUTES),
+                LocalDateTime.parse("01-01-2023 13:30", formatter), epic.getId());
+
+        //Тестируемая логика
+        taskManager.updateItems(Map.of(task.getId(), updatedTask, subtask.getId(), updatedSubtask));
+
+        //Проверка обновленных задач
+        assertEquals("updatedTask", taskManager.getItemById(task.getId()).getName(), "Задача не обновлена");
+        assertEquals("updatedSubtask", taskManager.getItemById(subtask.getId()).getName(), "Подзадача не обновлена");
+        assertEquals(Status.IN_PROGRESS, getEpic(epic.getId()).getStatus(), "Неверный статус эпика");
+        assertEquals(List.of(updatedTask, updatedSubtask), taskManager.getPrioritizedTasks(),
+                "Неверный список приоритетов");
+    }
+
+    @Test
+    @Override
+    public void shouldMoveTaskToScheduledWhenStartTimeIsSetByUpdate() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        Task task2 = new Task("task2");
+        taskManager.createItems(List.of(task1, task2));
+        Task updatedTask2 = new Task(task2.getId(), "task2", "description", Status.NEW, ItemType.TASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 12:00", formatter));
+        Task updatedTask1 = new Task(task1.getId(), "task1", "description", Status.NEW, ItemType.TASK);
+
+        //Тестируемая логика
+        taskManager.updateItem(updatedTask2, task2.getId());
+        taskManager.updateItem(updatedTask1, task1.getId());
+
+        //Проверка списка приоритетов
+        assertEquals(List.of(updatedTask2, updatedTask1), taskManager.getPrioritizedTasks(),
+                "Задача со временем старта должна быть первой, без времени - последней");
+    }
+
+    @Test
+    public void shouldSaveChangesOfReturnedCopyOnlyByUpdate() {
+        //Подготовка данных
+        Task task = new Task("task");
+        taskManager.createItem(task);
+        Task savedTask = taskManager.getItemById(task.getId());
+
+        //Тестируемая логика
+        savedTask.setStatus(Status.DONE);
+        assertEquals(Status.NEW, taskManager.getItemById(task.getId()).getStatus(), "Копия изменила менеджер");
+        taskManager.updateItem(savedTask, task.getId());
+
+        //Проверка обновления
+        assertEquals(Status.DONE, taskManager.getItemById(task.getId()).getStatus(), "Задача не обновлена");
+        assertNotSame(taskManager.getItemById(task.getId()), taskManager.getItemById(task.getId()),
+                "Менеджер должен возвращать новую копию при каждом чтении");
+    }
+
+    @Test
+    public void shouldUpdateOnlyNameAndDescriptionOfEpic() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        taskManager.createItem(epic);
+        Subtask subtask = new Subtask(0, "subtask", "description", Status.DONE, ItemType.SUBTASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 12:00", formatter), epic.getId());
+        taskManager.createItem(subtask);
+        Epic updatedEpic = new Epic(epic.getId(), "updatedEpic", "updatedDescription", Status.NEW, ItemType.EPIC,
+                null, null);
+
+        //Тестируемая логика
+        taskManager.updateItem(updatedEpic, epic.getId());
+
+        //Проверка эпика
+        Epic savedEpic = getEpic(epic.getId());
+        assertEquals("updatedEpic", savedEpic.getName(), "Название эпика не обновлено");
+        assertEquals("updatedDescription", savedEpic.getDescription(), "Описание эпика не обновлено");
+        assertEquals(Status.DONE, savedEpic.getStatus(), "Статус эпика должен считаться по подзадачам");
+        assertEquals(LocalDateTime.parse("01-01-2023 12:00", formatter), savedEpic.getStartTime(),
+                "Время эпика должно считаться по подзадачам");
+        assertEquals(List.of(subtask.getId()), savedEpic.getEpicSubtaskIds(), "Неверный список id подзадач");
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.updateItem(new Task(epic.getId(), "task"), epic.getId()),
+                "Эпик заменен задачей");
+    }
+
+    @Test
+    public void shouldNotLowerIdCounterToOccupiedId() {
+        //Подготовка данных
+        taskManager.createItems(List.of(new Task("task1"), new Task("task2"), new Task("task3")));
+        taskManager.removeItemById(3);
+
+        //Тестируемая логика
+        taskManager.setIdCounter(3);
+
+        //Проверка счетчика
+        assertEquals(3, taskManager.createItem(new Task("task4")), "Неверный id новой задачи");
+        assertThrows(IllegalArgumentException.class, () -> taskManager.setIdCounter(2),
+                "Счетчик опущен до занятого id");
+    }
+
+    @Test
+    public void shouldRestoreTasksIndexesAndHistoryFromSnapshot() throws IOException {
+        //Подготовка данных
+        Path snapshotFile = Files.createTempFile("columnarManagerSnapshot", ".bin");
+        Epic epic = new Epic("epic", "описание эпика");
+        taskManager.createItem(epic);
+        Subtask subtask = new Subtask(0, "subtask", "description", Status.IN_PROGRESS, ItemType.SUBTASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 12:00", formatter), epic.getId());
+        Task task = new Task(0, "task", "description", Status.NEW, ItemType.TASK,
+                Duration.of(60, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 10:00", formatter));
+        Task removedTask = new Task("removedTask");
+        taskManager.createItems(List.of(subtask, task, removedTask));
+        taskManager.removeItemById(removedTask.getId());
+        taskManager.getItemById(task.getId());
+        taskManager.getItemById(epic.getId());
+
+        try {
+            //Тестируемая логика
+            taskManager.writeSnapshot(snapshotFile);
+            TaskManager loadedManager = Managers.getColumnar(snapshotFile);
+
+            //Проверка задач, индексов и истории
+            Epic loadedEpic = (Epic) loadedManager.getItemByIdWithoutSavingHistory(epic.getId());
+            assertEquals("описание эпика", loadedEpic.getDescription(), "Неверное описание эпика");
+            assertEquals(Status.IN_PROGRESS, loadedEpic.getStatus(), "Неверный статус эпика");
+            assertEquals(List.of(subtask.getId()), loadedEpic.getEpicSubtaskIds(), "Неверный список id подзадач");
+            assertEquals(List.of(task, subtask), loadedManager.getPrioritizedTasks(), "Неверный список приоритетов");
+            assertEquals(List.of(task, epic), loadedManager.getHistoryManager().getHistory(), "Неверная история");
+            assertNull(loadedManager.getItemByIdWithoutSavingHistory(removedTask.getId()),
+                    "Удаленная задача попала в снимок");
+            assertEquals(LocalDateTime.parse("01-01-2023 11:00", formatter),
+                    loadedManager.findFreeSlot(Duration.of(60, ChronoUnit.MINUTES),
+                            LocalDateTime.parse("01-01-2023 10:30", formatter)),
+                    "Интервалы задач не восстановлены");
+            assertEquals(5, loadedManager.createItem(new Task("newTask")), "Id новой задачи совпадает с загруженной");
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    @Test
+    public void shouldLoadBinarySnapshotOfFileBackedTaskManager() throws IOException {
+        //Подготовка данных
+        Path snapshotFile = Files.createTempFile("fileBackedSnapshot", ".bin");
+        Path journalFile = Files.createTempFile("fileBackedJournal", ".log");
+        try {
+            FileBackedTaskManager fileBackedManager = new FileBackedTaskManager(snapshotFile, journalFile);
+            fileBackedManager.setSnapshotFormat(FileBackedTaskManager.SnapshotFormat.BINARY);
+            Epic epic = new Epic("epic");
+            fileBackedManager.createItem(epic);
+            Subtask subtask = new Subtask(0, "subtask", "description", Status.DONE, ItemType.SUBTASK,
+                    Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 12:00", formatter),
+                    epic.getId());
+            fileBackedManager.createItem(subtask);
+            fileBackedManager.getItemById(subtask.getId());
+            fileBackedManager.checkpoint();
+            fileBackedManager.close();
+
+            //Тестируемая логика
+            TaskManager loadedManager = Managers.getColumnar(snapshotFile);
+
+            //Проверка задач и истории
+            assertEquals(List.of(subtask), loadedManager.getEpicSubtasks(epic.getId()), "Неверный список подзадач");
+            assertEquals(Status.DONE, loadedManager.getItemByIdWithoutSavingHistory(epic.getId()).getStatus(),
+                    "Неверный статус эпика");
+            assertEquals(List.of(subtask), loadedManager.getHistoryManager().getHistory(), "Неверная история");
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+    private Epic getEpic(int epicId) {
+        return (Epic) taskManager.getItemByIdWithoutSavingHistory(epicId);
+    }
+}
@@ -0,0 +1,139 @@
+package managers;
+
+import exceptions.NoSuchTaskExistsException;
+import model.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarTaskStoreTest {
+    private ColumnarTaskStore store;
+
+    @BeforeEach
+    public void beforeEach() {
+        store = new ColumnarTaskStore();
+    }
+
+    @Test
+    public void shouldRestoreAllFieldsOfSubtask() {
+        //Подготовка данных
+        Subtask subtask = new Subtask(0, "subtask", "description", Status.IN_PROGRESS, ItemType.SUBTASK,
+                Duration.ofMinutes(90), LocalDateTime.of(2023, 1, 1, 12, 30), 7);
+
+        //Тестируемая логика
+        int id = store.add(subtask);
+        Task storedItem = store.get(id);
+
+        //Проверка полей
+        assertEquals(1, id, "Неверный id задачи");
+        assertEquals(id, subtask.getId(), "Id не присвоен задаче");
+        assertTrue(storedItem instanceof Subtask, "Неверный тип задачи");
+        assertEquals("subtask", storedItem.getName(), "Неверное название");
+        assertEquals("description", storedItem.getDescription(), "Неверное описание");
+        assertEquals(Status.IN_PROGRESS, storedItem.getStatus(), "Неверный статус");
+        assertEquals(Duration.ofMinutes(90), storedItem.getDurationMinutes(), "Неверная продолжительность");
+        assertEquals(LocalDateTime.of(2023, 1, 1, 12, 30), storedItem.getStartTime(), "Неверное время старта");
+        assertEquals(7, ((Subtask) storedItem).getEpicId(), "Неверный эпик подзадачи");
+    }
+
+    @Test
+    public void shouldRestoreTaskWithoutTimeAndEpicEndTime() {
+        //Подготовка данных
+        Task task = new Task("task");
+        Epic epic = new Epic("epic");
+        epic.setStartTime(LocalDateTime.of(2023, 1, 1, 10, 0));
+        epic.setDurationMinutes(Duration.ofMinutes(30));
+        epic.setEndTime(LocalDateTime.of(2023, 1, 1, 18, 0));
+
+        //Тестируемая логика
+        Task storedTask = store.get(store.add(task));
+        Task storedEpic = store.get(store.add(epic));
+
+        //Проверка полей
+        assertNull(storedTask.getStartTime(), "Время старта не должно быть задано");
+        assertNull(storedTask.getDurationMinutes(), "Продолжительность не должна быть задана");
+        assertEquals(ItemType.EPIC, storedEpic.getItemType(), "Неверный тип задачи");
+        assertEquals(LocalDateTime.of(2023, 1, 1, 18, 0), storedEpic.getEndTime().get(),
+                "Неверное время окончания эпика");
+    }
+
+    @Test
+    public void shouldReturnCopyThatIsSavedOnlyByUpdate() {
+        //Подготовка данных
+        int id = store.add(new Task("task"));
+        Task storedTask = store.get(id);
+
+        //Тестируемая логика
+        storedTask.setStatus(Status.DONE);
+        assertEquals(Status.NEW, store.getStatus(id), "Копия изменила хранилище");
+        store.update(id, storedTask);
+
+        //Проверка обновления
+        assertEquals(Status.DONE, store.get(id).getStatus(), "Задача не обновлена");
+    }
+
+    @Test
+    public void shouldRemoveTaskAndSkipItWhenIterating() {
+        //Подготовка данных
+        for (int i = 0; i < 100; i++) {
+            store.add(new Task("task"));
+        }
+
+        //Тестируемая логика
+        assertTrue(store.remove(50), "Задача не удалена");
+        assertFalse(store.remove(50), "Задача удалена повторно");
+        List<Integer> ids = new ArrayList<>();
+        store.forEachId(ids::add);
+
+        //Проверка содержимого
+        assertEquals(99, store.size(), "Неверный размер хранилища");
+        assertEquals(99, ids.size(), "Неверное количество задач при обходе");
+        assertFalse(ids.contains(50), "Удаленная задача найдена при обходе");
+        assertNull(store.get(50), "Удаленная задача найдена");
+        Assertions.assertThrows(NoSuchTaskExistsException.class,
+                () -> store.update(50, new Task("task")),
+                "Обновлена удаленная задача");
+    }
+
+    @Test
+    public void shouldLoadSnapshotAndContinueAddingTasks() throws IOException {
+        //Подготовка данных
+        Path snapshotFile = Files.createTempFile("columnarSnapshot", ".bin");
+        Subtask subtask = new Subtask(0, "subtask", "описание", Status.DONE, ItemType.SUBTASK,
+                Duration.ofMinutes(15), LocalDateTime.of(2023, 1, 1, 12, 30), 2);
+        store.add(new Task("task"));
+        store.add(new Epic("epic"));
+        store.add(subtask);
+        store.remove(1);
+
+        //Тестируемая логика
+        try {
+            store.writeSnapshot(snapshotFile);
+            ColumnarTaskStore loadedStore = ColumnarTaskStore.loadSnapshot(snapshotFile);
+            int newId = loadedStore.add(new Task("epic"));
+
+            //Проверка содержимого
+            assertEquals(3, loadedStore.size(), "Неверный размер хранилища");
+            assertFalse(loadedStore.contains(1), "Удаленная задача попала в снимок");
+            assertEquals(4, newId, "Id новой задачи совпадает с загруженной");
+            assertEquals("epic", loadedStore.get(newId).getName(), "Неверное название новой задачи");
+            Task loadedSubtask = loadedStore.get(3);
+            assertEquals("описание", loadedSubtask.getDescription(), "Неверное описание");
+            assertEquals(Status.DONE, loadedSubtask.getStatus(), "Неверный статус");
+            assertEquals(LocalDateTime.of(2023, 1, 1, 12, 30), loadedSubtask.getStartTime(), "Неверное время старта");
+            assertEquals(2, loadedStore.getEpicId(3), "Неверный эпик подзадачи");
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+}
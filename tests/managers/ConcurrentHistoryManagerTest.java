@@ -0,0 +1,146 @@
+package managers;
+
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentHistoryManagerTest {
+    private static final int THREADS_COUNT = 8;
+
+    private ConcurrentHistoryManager historyManager;
+
+    @BeforeEach
+    public void beforeEach() {
+        historyManager = new ConcurrentHistoryManager(Managers.getDefaultHistory());
+    }
+
+    @Test
+    public void shouldKeepOrderOfSingleThreadViews() {
+        //Подготовка данных
+        HistoryManager expectedHistoryManager = Managers.getDefaultHistory();
+        Random random = new Random(42);
+
+        //Тестируемая логика: просмотров больше, чем помещается в буфер
+        for (int i = 0; i < 10_000; i++) {
+            Task task = new Task(random.nextInt(300) + 1, "task");
+            historyManager.add(task);
+            expectedHistoryManager.add(task);
+        }
+
+        //Проверка записей
+        assertEquals(expectedHistoryManager.getHistory(), historyManager.getHistory(), "Неверный порядок истории");
+    }
+
+    @Test
+    public void shouldNotReturnRemovedTaskViewedBeforeRemove() {
+        //Подготовка данных
+        Task task1 = new Task(1, "task1");
+        Task task2 = new Task(2, "task2");
+        historyManager.add(task1);
+        historyManager.add(task2);
+
+        //Тестируемая логика
+        historyManager.remove(task1.getId());
+
+        //Проверка записей
+        assertEquals(List.of(task2), historyManager.getHistory(), "Удаленная задача осталась в истории");
+    }
+
+    @Test
+    public void shouldRecordAllViewsFromConcurrentThreads() throws Exception {
+        //Подготовка данных: каждый поток просматривает свои задачи по возрастанию id
+        int viewsPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //Тестируемая логика
+        for (int thread = 0; thread < THREADS_COUNT; thread++) {
+            int firstId = thread * viewsPerThread + 1;
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                for (int id = firstId; id < firstId + viewsPerThread; id++) {
+                    historyManager.add(new Task(id, "task"));
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //Проверка: ни один просмотр не потерян, порядок просмотров каждого потока сохранен
+        List<Task> history = historyManager.getHistory();
+        assertEquals(THREADS_COUNT * viewsPerThread, history.size(), "Просмотры потеряны");
+        int[] lastIdByThread = new int[THREADS_COUNT];
+        for (Task task : history) {
+            int thread = (task.getId() - 1) / viewsPerThread;
+            assertTrue(task.getId() > lastIdByThread[thread], "Нарушен порядок просмотров потока");
+            lastIdByThread[thread] = task.getId();
+        }
+    }
+
+    @Test
+    public void shouldNotReturnRemovedTasksWhenOtherThreadsViewConcurrently() throws Exception {
+        //Подготовка данных: потоков больше, чем буферов, поэтому потоки пишут в общие буферы
+        int threadsCount = THREADS_COUNT * 4;
+        int tasksPerThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //Тестируемая логика: каждый поток просматривает свою задачу и сразу удаляет ее из истории
+        for (int thread = 0; thread < threadsCount; thread++) {
+            int firstId = thread * tasksPerThread + 1;
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                for (int id = firstId; id < firstId + tasksPerThread; id++) {
+                    historyManager.add(new Task(id, "task"));
+                    historyManager.remove(id);
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //Проверка: просмотр, записанный до удаления, не возвращает задачу в историю
+        assertEquals(List.of(), historyManager.getHistory(), "Удаленные задачи вернулись в историю");
+    }
+
+    @Test
+    public void shouldIterateHistoryByPagesFromMostRecent() {
+        //Подготовка данных: записей больше, чем на одной странице обхода
+        List<Task> expectedHistory = new ArrayList<>();
+        for (int id = 1; id <= 1_000; id++) {
+            Task task = new Task(id, "task");
+            historyManager.add(task);
+            expectedHistory.add(0, task);
+        }
+        List<Task> iteratedHistory = new ArrayList<>();
+
+        //Тестируемая логика
+        historyManager.descendingIterator().forEachRemaining(iteratedHistory::add);
+
+        //Проверка обхода
+        assertEquals(expectedHistory, iteratedHistory, "Неверный порядок обхода истории");
+        assertEquals(expectedHistory.subList(11, 16), historyManager.getHistoryPage(990, 5),
+                "Неверная страница истории");
+    }
+}
@@ -0,0 +1,269 @@
+package managers;
+
+import exceptions.NoSuchTaskExistsException;
+import exceptions.TaskTimeIntersectionException;
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final int THREADS_COUNT = 8;
+
+    @Override
+    protected void setTaskManager() {
+        taskManager = (ConcurrentTaskManager) Managers.getConcurrent();
+    }
+
+    //Запускает задачу одновременно в нескольких потоках и ждет их завершения
+    private void runConcurrently(int threadsCount, Callable<Void> action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < threadsCount; i++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                return action.call();
+            }));
+        }
+        startLatch.countDown();
+        try {
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldAssignUniqueIdsWhenTasksAreCreatedConcurrently() throws Exception {
+        //Подготовка данных
+        int tasksPerThread = 500;
+
+        //Тестируемая логика
+        runConcurrently(THREADS_COUNT, () -> {
+            for (int i = 0; i < tasksPerThread; i++) {
+                taskManager.createItem(new Task("Test_task"));
+            }
+            return null;
+        });
+
+        //Проверка уникальности id
+        List<Task> createdTasks = taskManager.getAllItemsByType(ItemType.TASK);
+        assertEquals(THREADS_COUNT * tasksPerThread, createdTasks.size(), "Неверное количество задач");
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : createdTasks) {
+            ids.add(task.getId());
+        }
+        assertEquals(THREADS_COUNT * tasksPerThread, ids.size(), "Id задач повторяются");
+        assertEquals(THREADS_COUNT * tasksPerThread, taskManager.getPrioritizedTasks().size(),
+                "Неверное количество задач в списке приоритетов");
+    }
+
+    @Test
+    public void shouldCreateOnlyOneTaskForContestedInterval() throws Exception {
+        //Подготовка данных
+        int slotsCount = 50;
+        LocalDateTime firstSlotStart = LocalDateTime.of(2023, 1, 1, 10, 0);
+        AtomicInteger rejectedCount = new AtomicInteger();
+
+        //Тестируемая логика: все потоки пытаются занять одни и те же интервалы
+        runConcurrently(THREADS_COUNT, () -> {
+            for (int i = 0; i < slotsCount; i++) {
+                Task task = new Task(0, "Test_task", "Test_description", Status.NEW, ItemType.TASK,
+                        Duration.ofMinutes(30), firstSlotStart.plusMinutes(30L * i));
+                try {
+                    taskManager.createItem(task);
+                } catch (TaskTimeIntersectionException e) {
+                    rejectedCount.incrementAndGet();
+                }
+            }
+            return null;
+        });
+
+        //Проверка, что каждый интервал занят ровно одной задачей
+        List<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
+        assertEquals(slotsCount, prioritizedTasks.size(), "Интервал занят несколькими задачами");
+        assertEquals(slotsCount * (THREADS_COUNT - 1), rejectedCount.get(), "Неверное количество отклоненных задач");
+        for (int i = 1; i < prioritizedTasks.size(); i++) {
+            assertFalse(prioritizedTasks.get(i).getStartTime()
+                            .isBefore(prioritizedTasks.get(i - 1).getEndTime().get()),
+                    "Задачи пересекаются по времени");
+        }
+    }
+
+    @Test
+    public void shouldKeepEpicConsistentWhenSubtasksAreUpdatedConcurrently() throws Exception {
+        //Подготовка данных
+        Epic testEpic = new Epic("Test_epic");
+        int epicId = taskManager.createItem(testEpic);
+        int subtasksPerThread = 20;
+        LocalDateTime firstSlotStart = LocalDateTime.of(2023, 1, 1, 10, 0);
+        AtomicInteger slotCounter = new AtomicInteger();
+
+        //Тестируемая логика: потоки создают подзадачи, меняют их статус и удаляют часть из них
+        runConcurrently(THREADS_COUNT, () -> {
+            for (int i = 0; i < subtasksPerThread; i++) {
+                Subtask subtask = new Subtask(0, "Test_subtask", "Test_description", Status.NEW, ItemType.SUBTASK,
+                        Duration.ofMinutes(10), firstSlotStart.plusMinutes(10L * slotCounter.getAndIncrement()),
+                        epicId);
+                int subtaskId = taskManager.createItem(subtask);
+                subtask.setStatus(Status.DONE);
+                taskManager.updateItem(subtask, subtaskId);
+                if (i % 2 == 1) {
+                    taskManager.removeItemById(subtaskId);
+                }
+            }
+            return null;
+        });
+
+        //Проверка показателей эпика
+        List<Subtask> epicSubtasks = taskManager.getEpicSubtasks(epicId);
+        assertEquals(THREADS_COUNT * subtasksPerThread / 2, epicSubtasks.size(),
+                "Неверное количество подзадач эпика");
+        assertEquals(taskManager.getAllItemsByType(ItemType.SUBTASK).size(), epicSubtasks.size(),
+                "В эпике есть удаленные подзадачи");
+        assertEquals(Status.DONE, testEpic.getStatus(), "Неверный статус эпика");
+        assertEquals(Duration.ofMinutes(10L * epicSubtasks.size()), testEpic.getDurationMinutes(),
+                "Неверная продолжительность эпика");
+        LocalDateTime expectedStartTime = null;
+        for (Subtask subtask : epicSubtasks) {
+            if (expectedStartTime == null || subtask.getStartTime().isBefore(expectedStartTime)) {
+                expectedStartTime = subtask.getStartTime();
+            }
+        }
+        assertEquals(expectedStartTime, testEpic.getStartTime(), "Неверное время старта эпика");
+    }
+
+    @Test
+    public void shouldRemoveEpicWithSubtasksCreatedConcurrently() throws Exception {
+        //Подготовка данных
+        Epic testEpic1 = new Epic("Test_epic1");
+        Epic testEpic2 = new Epic("Test_epic2");
+        int epicId1 = taskManager.createItem(testEpic1);
+        int epicId2 = taskManager.createItem(testEpic2);
+
+        //Тестируемая логика: потоки добавляют подзадачи в оба эпика и перепривязывают их
+        runConcurrently(THREADS_COUNT, () -> {
+            for (int i = 0; i < 50; i++) {
+                Subtask subtask = new Subtask(0, "Test_subtask", "Test_description", Status.IN_PROGRESS,
+                        ItemType.SUBTASK, null, null, epicId1);
+                taskManager.createItem(subtask);
+                taskManager.linkSubtaskToEpic(subtask, i % 2 == 0 ? testEpic2 : testEpic1);
+            }
+            return null;
+        });
+        taskManager.removeItemById(epicId1);
+
+        //Проверка, что удалены только подзадачи первого эпика
+        assertEquals(THREADS_COUNT * 25, taskManager.getEpicSubtasks(epicId2).size(),
+                "Неверное количество подзадач второго эпика");
+        assertEquals(THREADS_COUNT * 25, taskManager.getAllItemsByType(ItemType.SUBTASK).size(),
+                "Неверное количество подзадач");
+        assertEquals(Status.IN_PROGRESS, testEpic2.getStatus(), "Неверный статус эпика");
+    }
+
+    @Test
+    public void shouldNotKeepTasksInHistoryWhenTheyAreRemovedWhileViewed() throws Exception {
+        //Подготовка данных
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            tasks.add(new Task("Test_task"));
+        }
+        taskManager.createItems(tasks);
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        //Тестируемая логика: половина потоков просматривает задачи, половина их удаляет
+        runConcurrently(THREADS_COUNT, () -> {
+            boolean isRemover = threadNumber.getAndIncrement() % 2 == 0;
+            for (Task task : tasks) {
+                try {
+                    if (isRemover) {
+                        taskManager.removeItemById(task.getId());
+                    } else {
+                        taskManager.getItemById(task.getId());
+                    }
+                } catch (NoSuchTaskExistsException e) {
+                    //Задачу уже удалил другой поток
+                }
+            }
+            return null;
+        });
+
+        //Проверка, что в истории не осталось удаленных задач
+        assertTrue(taskManager.getAllItemsByType(ItemType.TASK).isEmpty(), "Удалены не все задачи");
+        assertEquals(List.of(), taskManager.getHistoryManager().getHistory(), "В истории остались удаленные задачи");
+    }
+
+    @Test
+    public void shouldReturnHotTasksViewedConcurrently() throws Exception {
+        //Подготовка данных
+        taskManager = (ConcurrentTaskManager) Managers.getConcurrent(
+                Managers.getFrequencyTrackingHistory(InMemoryHistoryManager.UNLIMITED_CAPACITY));
+        Task hotTask = new Task("hotTask");
+        Task coldTask = new Task("coldTask");
+        taskManager.createItems(List.of(hotTask, coldTask));
+
+        //Тестируемая логика
+        runConcurrently(THREADS_COUNT, () -> {
+            for (int i = 0; i < 1_000; i++) {
+                taskManager.getItemById(hotTask.getId());
+            }
+            taskManager.getItemById(coldTask.getId());
+            return null;
+        });
+
+        //Проверка горячих задач
+        assertEquals(List.of(hotTask, coldTask), taskManager.getHotTasks(10), "Неверный список горячих задач");
+    }
+
+    @Test
+    public void shouldApplyConcurrentIntersectingBatchesWholly() throws Exception {
+        //Подготовка данных
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        //Тестируемая логика: пакеты разных потоков сдвинуты на час и пересекаются лишь частично
+        runConcurrently(THREADS_COUNT, () -> {
+            int thread = threadNumber.getAndIncrement();
+            for (int k = 0; k < 20; k++) {
+                List<Task> batch = new ArrayList<>();
+                for (int hour = 0; hour < 2; hour++) {
+                    Task task = new Task("batch-" + thread + "-" + k);
+                    task.setStartTime(start.plusHours(2L * k + thread % 2 + hour));
+                    task.setDurationMinutes(Duration.ofHours(1));
+                    batch.add(task);
+                }
+                try {
+                    taskManager.createItems(batch);
+                } catch (TaskTimeIntersectionException e) {
+                    //Время уже занято пакетом другого потока
+                }
+            }
+            return null;
+        });
+
+        //Проверка, что пакеты созданы целиком, без пересечений и без потерянных id
+        List<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
+        Map<String, Integer> batchSizes = new HashMap<>();
+        for (int i = 0; i < prioritizedTasks.size(); i++) {
+            Task task = prioritizedTasks.get(i);
+            batchSizes.merge(task.getName(), 1, Integer::sum);
+            if (i > 0) {
+                assertFalse(task.getStartTime().isBefore(prioritizedTasks.get(i - 1).getEndTime().get()),
+                        "Задачи пересекаются по времени");
+            }
+        }
+        for (Map.Entry<String, Integer> batchSize : batchSizes.entrySet()) {
+            assertEquals(2, batchSize.getValue(), "Пакет " + batchSize.getKey() + " создан частично");
+        }
+        assertEquals(prioritizedTasks.size() + 1, taskManager.getIdCounter(), "Отклоненные пакеты заняли id");
+    }
+}
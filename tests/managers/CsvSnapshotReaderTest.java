@@ -0,0 +1,90 @@
+package managers;
+
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvSnapshotReaderTest {
+    private static final String HEADER = "id,type,name,status,description,startTime,duration,epic\n";
+    private final Function<String, Task> idParser = line -> new Task(Integer.parseInt(line.split(",")[0]),
+            line.split(",")[2]);
+    private Path snapshotFile;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        snapshotFile = Files.createTempFile("csvSnapshot", ".csv");
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Test
+    public void shouldReadTasksInFileOrderWhenSplitIntoChunks() throws IOException {
+        //Подготовка данных
+        StringBuilder content = new StringBuilder(HEADER);
+        for (int id = 1; id <= 100; id++) {
+            content.append(id).append(",TASK,задача ").append(id).append(",NEW,,,,\n");
+        }
+        content.append("\n").append("5,3,1");
+        Files.writeString(snapshotFile, content);
+
+        //Тестируемая логика
+        CsvSnapshotReader snapshot = CsvSnapshotReader.read(snapshotFile, idParser, 64);
+
+        //Проверка содержимого
+        assertEquals(100, snapshot.getTasks().size(), "Неверное количество задач");
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, snapshot.getTasks().get(i).getId(), "Нарушен порядок задач");
+        }
+        assertEquals("задача 100", snapshot.getTasks().get(99).getName(), "Неверное название");
+        assertEquals("5,3,1", snapshot.getHistoryLine(), "Неверная строка истории");
+    }
+
+    @Test
+    public void shouldReadFileWithoutHistory() throws IOException {
+        //Подготовка данных
+        Files.writeString(snapshotFile, HEADER + "1,TASK,task,NEW,,,,\n\n");
+
+        //Тестируемая логика
+        CsvSnapshotReader snapshot = CsvSnapshotReader.read(snapshotFile, idParser);
+
+        //Проверка содержимого
+        assertEquals(List.of(1), snapshot.getTasks().stream().map(Task::getId).collect(Collectors.toList()), "Неверный набор задач");
+        assertEquals("", snapshot.getHistoryLine(), "История должна быть пустой");
+    }
+
+    @Test
+    public void shouldReadHistoryWithTrailingLineBreak() throws IOException {
+        //Подготовка данных
+        Files.writeString(snapshotFile, HEADER + "1,TASK,task,NEW,,,,\r\n2,TASK,task,NEW,,,,\n\n2,1\n");
+
+        //Тестируемая логика
+        CsvSnapshotReader snapshot = CsvSnapshotReader.read(snapshotFile, idParser);
+
+        //Проверка содержимого
+        assertEquals(List.of(1, 2), snapshot.getTasks().stream().map(Task::getId).collect(Collectors.toList()), "Неверный набор задач");
+        assertEquals("2,1", snapshot.getHistoryLine(), "Неверная строка истории");
+    }
+
+    @Test
+    public void shouldReadEmptyFile() throws IOException {
+        //Тестируемая логика
+        CsvSnapshotReader snapshot = CsvSnapshotReader.read(snapshotFile, idParser);
+
+        //Проверка содержимого
+        assertTrue(snapshot.getTasks().isEmpty(), "В пустом файле найдены задачи");
+        assertEquals("", snapshot.getHistoryLine(), "История должна быть пустой");
+    }
+}
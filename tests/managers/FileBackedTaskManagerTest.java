@@ -3,8 +3,10 @@ package managers;
 import exceptions.ManagerSaveException;
 import model.Epic;
 import model.ItemType;
+import model.Status;
 import model.Subtask;
 import model.Task;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,12 +16,15 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -27,6 +32,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
 
     private final Path autosaveFile = Paths.get("project_files/autosaveTest.txt");
+    private final Path snapshotFile = Paths.get("project_files/snapshotTest.txt");
+    private final Path journalFile = Paths.get("project_files/journalTest.txt");
+    private final Path historyLogFile = Paths.get("project_files/autosaveTest.txt.history");
     private List<String> fileLines;
 
     @Override
@@ -57,6 +65,12 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
         }
     }
 
+    @AfterEach
+    public void afterEach() throws IOException {
+        deleteJournalFiles();
+        Files.deleteIfExists(historyLogFile);
+    }
+
     //Тесты на создание файла
     @Test
     public void shouldCreateHeaderInFile() {
@@ -156,6 +170,7 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
         //Тестируемая логика
         taskManager.getItemById(subtask1.getId());
         taskManager.getItemById(task1.getId());
+        taskManager.checkpoint();
 
         //Проверка заполнения файла
         readAutosaveFile();
@@ -164,6 +179,77 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
         assertEquals("1", historyLine[1], "Неверное отображение истории");
     }
 
+    @Test
+    public void shouldAppendViewsToHistoryLogWithoutRewritingSnapshot() throws IOException {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        Task task2 = new Task("task2");
+        taskManager.createItems(List.of(task1, task2));
+        List<String> snapshotLines = Files.readAllLines(autosaveFile);
+
+        //Тестируемая логика
+        taskManager.getItemById(task2.getId());
+        taskManager.getItemById(task1.getId());
+        taskManager.getItemById(task2.getId());
+
+        //Проверка файлов и восстановления
+        assertEquals(snapshotLines, Files.readAllLines(autosaveFile), "Просмотр перезаписал снимок");
+        assertEquals(List.of("2", "1", "2"), Files.readAllLines(historyLogFile), "Неверные записи файла истории");
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(autosaveFile);
+        assertEquals(List.of(task1.getId(), task2.getId()),
+                restoredManager.getHistoryManager().getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                "Неверная история");
+    }
+
+    @Test
+    public void shouldClearHistoryLogWhenSnapshotIsWritten() throws IOException {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        Task task2 = new Task("task2");
+        taskManager.createItems(List.of(task1, task2));
+        taskManager.getItemById(task1.getId());
+        taskManager.getItemById(task2.getId());
+
+        //Тестируемая логика
+        taskManager.removeItemById(task2.getId());
+
+        //Проверка файлов и восстановления
+        assertTrue(Files.notExists(historyLogFile), "Файл истории не очищен снимком");
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(autosaveFile);
+        assertEquals(List.of(task1.getId()),
+                restoredManager.getHistoryManager().getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                "Неверная история");
+    }
+
+    @Test
+    public void shouldCompactHistoryLogUnderManyViews() throws IOException {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        Task task2 = new Task("task2");
+        Task task3 = new Task("task3");
+        taskManager.createItems(List.of(task1, task2, task3));
+        int viewsCount = 10 * FileBackedTaskManager.MIN_HISTORY_LOG_COMPACTION_THRESHOLD;
+
+        //Тестируемая логика
+        taskManager.getItemById(task3.getId());
+        for (int i = 0; i < viewsCount; i++) {
+            taskManager.getItemById(i % 2 == 0 ? task1.getId() : task2.getId());
+        }
+
+        //Проверка размера файла истории и восстановления
+        assertTrue(Files.readAllLines(historyLogFile).size() <= FileBackedTaskManager.MIN_HISTORY_LOG_COMPACTION_THRESHOLD,
+                "Файл истории не сжимается");
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(autosaveFile);
+        assertEquals(taskManager.getHistoryManager().getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                restoredManager.getHistoryManager().getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                "Неверная история");
+        restoredManager.getItemById(task3.getId());
+        assertEquals(List.of(task1.getId(), task2.getId(), task3.getId()),
+                FileBackedTaskManager.loadFromFile(autosaveFile).getHistoryManager().getHistory().stream()
+                        .map(Task::getId).collect(Collectors.toList()),
+                "Просмотр после восстановления потерян");
+    }
+
     @Test
     public void shouldDeleteItemFromFileIfItemIsRemovedById() {
         //Подготовка данных
@@ -259,6 +345,74 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
                 "Не все задачи восстановлены");
     }
 
+    @Test
+    public void shouldLinkRestoredSubtasksOnlyToTheirEpics() {
+        //Подготовка данных
+        Epic epic1 = new Epic("epic1");
+        Epic epic2 = new Epic("epic2");
+        taskManager.createItems(List.of(epic1, epic2));
+        Subtask subtask1 = new Subtask(0, "subtask1", "", Status.DONE, ItemType.SUBTASK,
+                Duration.ofMinutes(30), LocalDateTime.parse("01-01-2023 10:00", formatter), epic1.getId());
+        Subtask subtask2 = new Subtask(0, "subtask2", "", Status.NEW, ItemType.SUBTASK,
+                Duration.ofMinutes(15), LocalDateTime.parse("01-01-2023 12:00", formatter), epic2.getId());
+        Subtask subtask3 = new Subtask(0, "subtask3", "", Status.DONE, ItemType.SUBTASK,
+                Duration.ofMinutes(45), LocalDateTime.parse("01-01-2023 08:00", formatter), epic1.getId());
+        taskManager.createItems(List.of(subtask1, subtask2, subtask3));
+
+        //Тестируемая логика
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(autosaveFile);
+
+        //Проверка связей и показателей эпиков
+        Epic restoredEpic1 = (Epic) restoredManager.getItemByIdWithoutSavingHistory(epic1.getId());
+        Epic restoredEpic2 = (Epic) restoredManager.getItemByIdWithoutSavingHistory(epic2.getId());
+        assertEquals(List.of(subtask1.getId(), subtask3.getId()), restoredEpic1.getEpicSubtaskIds(),
+                "Неверные подзадачи первого эпика");
+        assertEquals(List.of(subtask2.getId()), restoredEpic2.getEpicSubtaskIds(),
+                "Неверные подзадачи второго эпика");
+        assertEquals(Status.DONE, restoredEpic1.getStatus(), "Неверный статус первого эпика");
+        assertEquals(LocalDateTime.parse("01-01-2023 08:00", formatter), restoredEpic1.getStartTime(),
+                "Неверное время старта первого эпика");
+        assertEquals(Duration.ofMinutes(75), restoredEpic1.getDurationMinutes(),
+                "Неверная продолжительность первого эпика");
+        assertEquals(LocalDateTime.parse("01-01-2023 10:30", formatter), restoredEpic1.getEndTime().get(),
+                "Неверное время окончания первого эпика");
+        assertEquals(Status.NEW, restoredEpic2.getStatus(), "Неверный статус второго эпика");
+    }
+
+    @Test
+    public void shouldRestoreManyEpicsInLinearTime() throws IOException {
+        //Подготовка данных: в файле устаревшие статусы эпиков, показатели должны собраться по подзадачам
+        int epicsCount = 50_000;
+        StringBuilder content = new StringBuilder("id,type,name,status,description,startTime,duration,epic\n");
+        for (int epicId = 1; epicId <= epicsCount; epicId++) {
+            content.append(epicId).append(",EPIC,epic,NEW,,,, \n");
+        }
+        int subtaskId = epicsCount;
+        for (int epicId = 1; epicId <= epicsCount; epicId++) {
+            LocalDateTime startTime = LocalDateTime.parse("01-01-2023 00:00", formatter).plusMinutes(20L * epicId);
+            content.append(++subtaskId).append(",SUBTASK,subtask,DONE,,")
+                    .append(startTime.format(formatter)).append(",PT5M,").append(epicId).append("\n");
+            content.append(++subtaskId).append(",SUBTASK,subtask,IN_PROGRESS,,")
+                    .append(startTime.plusMinutes(10).format(formatter)).append(",PT5M,").append(epicId).append("\n");
+        }
+        content.append("\n");
+        Files.writeString(autosaveFile, content);
+
+        //Тестируемая логика: при O(S * E) восстановление не уложится в отведенное время
+        FileBackedTaskManager restoredManager = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(20),
+                () -> FileBackedTaskManager.loadFromFile(autosaveFile),
+                "Восстановление не линейно по числу задач");
+
+        //Проверка связей и показателей эпиков
+        for (int epicId = 1; epicId <= epicsCount; epicId++) {
+            Epic epic = (Epic) restoredManager.getItemByIdWithoutSavingHistory(epicId);
+            assertEquals(List.of(epicsCount + 2 * epicId - 1, epicsCount + 2 * epicId), epic.getEpicSubtaskIds(),
+                    "Неверные подзадачи эпика");
+            assertEquals(Status.IN_PROGRESS, epic.getStatus(), "Неверный статус эпика");
+            assertEquals(Duration.ofMinutes(10), epic.getDurationMinutes(), "Неверная продолжительность эпика");
+        }
+    }
+
     @Test
     public void shouldRestoreHistoryFromFile() {
         //Подготовка данных
@@ -281,6 +435,28 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
                 "Ошибка восстановления истории");
     }
 
+    @Test
+    public void shouldRestoreTasksNamedAsItemTypesAndHistory() {
+        //Подготовка данных
+        Task task = new Task("TASK");
+        taskManager.createItem(task);
+        Epic epic = new Epic("SUBTASK и EPIC");
+        taskManager.createItem(epic);
+        taskManager.getItemById(epic.getId());
+
+        //Тестируемая логика
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(autosaveFile);
+
+        //Проверка восстановления
+        assertEquals("TASK", restoredManager.getItemByIdWithoutSavingHistory(task.getId()).getName(),
+                "Неверное название задачи");
+        assertEquals("SUBTASK и EPIC", restoredManager.getItemByIdWithoutSavingHistory(epic.getId()).getName(),
+                "Неверное название эпика");
+        assertEquals(List.of(epic.getId()),
+                restoredManager.getHistoryManager().getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                "Неверная история");
+    }
+
     @Test
     public void shouldRestorePrioritizedListFromFile() {
         //Подготовка данных
@@ -306,4 +482,379 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
         assertEquals(task3.getId(), restoredPrioritizedList.get(2).getId(),
                 "Ошибка восстановления задач по приоритету");
     }
+    @Test
+    public void shouldWriteItemsBatchToFileAndRestore() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        Subtask subtask = new Subtask("subtask");
+        subtask.setStartTime(LocalDateTime.parse("05-01-2023 12:00", formatter));
+        subtask.setDurationMinutes(Duration.of(120, ChronoUnit.MINUTES));
+        subtask.setEpicId(1);
+        Task task = new Task("task");
+
+        //Тестируемая логика
+        taskManager.createItems(List.of(epic, subtask, task));
+
+        //Проверка заполнения файла и восстановления
+        readAutosaveFile();
+        assertEquals("2", fileLines.get(2).split(",")[0], "Задачи пакета не сохранены");
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(autosaveFile);
+        assertEquals(3, restoredManager.getAllItemsOfAllTypes().size(), "Задачи пакета не восстановлены");
+        assertEquals(List.of(2), restoredManager.getItemByIdWithoutSavingHistory(1) instanceof Epic
+                        ? ((Epic) restoredManager.getItemByIdWithoutSavingHistory(1)).getEpicSubtaskIds()
+                        : List.of(),
+                "Подзадача не связана с эпиком");
+    }
+
+    @Test
+    public void shouldNotRestoreEpicsToPrioritizedTasks() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        Task task = new Task("task");
+        taskManager.createItems(List.of(epic, task));
+
+        //Тестируемая логика
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(autosaveFile);
+
+        //Проверка списка приоритетов
+        assertEquals(List.of(task), restoredManager.getPrioritizedTasks(), "Эпик попал в список приоритетов");
+    }
+
+    @Test
+    public void shouldRestoreTasksWithEqualStartTime() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 11:50", formatter));
+        Task task2 = new Task("task2");
+        task2.setStartTime(LocalDateTime.parse("01-01-2023 11:50", formatter));
+        taskManager.createItems(List.of(task1, task2));
+
+        //Тестируемая логика
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(autosaveFile);
+        ArrayList<Task> restoredPrioritizedList = restoredManager.getPrioritizedTasks();
+
+        //Проверка списка приоритетных задач
+        assertEquals(2, restoredPrioritizedList.size(), "Задача с тем же временем старта потеряна");
+        assertEquals(task1.getId(), restoredPrioritizedList.get(0).getId(),
+                "Ошибка восстановления задач по приоритету");
+        assertEquals(task2.getId(), restoredPrioritizedList.get(1).getId(),
+                "Ошибка восстановления задач по приоритету");
+    }
+
+    //Журнал изменений
+    @Test
+    public void shouldAppendChangesToJournalWithoutRewritingSnapshot() throws IOException {
+        //Подготовка данных
+        deleteJournalFiles();
+        FileBackedTaskManager journaledManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile);
+        Task task = new Task("task");
+        List<String> emptySnapshotLines = Files.readAllLines(snapshotFile);
+
+        //Тестируемая логика
+        journaledManager.createItem(task);
+        journaledManager.getItemById(task.getId());
+        journaledManager.close();
+
+        //Проверка файлов
+        assertEquals(emptySnapshotLines, Files.readAllLines(snapshotFile), "Снимок перезаписан");
+        List<String> journalLines = Files.readAllLines(journalFile);
+        assertEquals(2, journalLines.size(), "Неверное количество записей журнала");
+        assertTrue(journalLines.get(0).startsWith("P,1,TASK,task"), "Неверная запись о создании задачи");
+        assertEquals("V,1", journalLines.get(1), "Неверная запись о просмотре задачи");
+    }
+
+    @Test
+    public void shouldRestoreStateFromSnapshotAndJournal() {
+        //Подготовка данных
+        deleteJournalFiles();
+        FileBackedTaskManager journaledManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile);
+        Epic epic = new Epic("epic");
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("02-01-2023 12:00", formatter));
+        Task task2 = new Task("task2");
+        journaledManager.createItems(List.of(epic, task1, task2));
+        journaledManager.getItemById(task1.getId());
+        journaledManager.checkpoint();
+        Subtask subtask = new Subtask("subtask");
+        journaledManager.createItem(subtask);
+        journaledManager.linkSubtaskToEpic(subtask, epic);
+        Subtask doneSubtask = new Subtask(subtask.getId(), "subtask", "", Status.DONE, ItemType.SUBTASK,
+                null, null, epic.getId());
+        journaledManager.updateItem(doneSubtask, subtask.getId());
+        journaledManager.getItemById(task2.getId());
+        journaledManager.getItemById(task1.getId());
+        journaledManager.removeItemById(task2.getId());
+        journaledManager.close();
+
+        //Тестируемая логика
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+
+        //Проверка восстановления
+        assertEquals(List.of(epic.getId(), task1.getId(), subtask.getId()),
+                restoredManager.getAllItemsOfAllTypes().stream().map(Task::getId).sorted().collect(Collectors.toList()),
+                "Неверный набор задач");
+        Epic restoredEpic = (Epic) restoredManager.getItemByIdWithoutSavingHistory(epic.getId());
+        assertEquals(Status.DONE, restoredEpic.getStatus(), "Не восстановлен статус эпика");
+        assertEquals(List.of(subtask.getId()), restoredEpic.getEpicSubtaskIds(), "Подзадача не связана с эпиком");
+        assertEquals(List.of(task1.getId()),
+                restoredManager.getHistoryManager().getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                "Неверная история");
+        assertEquals(task1.getId(), restoredManager.getPrioritizedTasks().get(0).getId(),
+                "Неверный список приоритетов");
+        restoredManager.close();
+    }
+
+    @Test
+    public void shouldContinueJournalAfterRestore() {
+        //Подготовка данных
+        deleteJournalFiles();
+        FileBackedTaskManager journaledManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile);
+        journaledManager.createItem(new Task("task1"));
+        journaledManager.close();
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+
+        //Тестируемая логика
+        int newTaskId = restoredManager.createItem(new Task("task2"));
+        restoredManager.close();
+
+        //Проверка восстановления
+        assertEquals(2, newTaskId, "Id новой задачи совпадает с восстановленной");
+        FileBackedTaskManager secondRestoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+        assertEquals(2, secondRestoredManager.getAllItemsOfAllTypes().size(), "Изменения после восстановления потеряны");
+        secondRestoredManager.close();
+    }
+
+    @Test
+    public void shouldSkipTornLastJournalRecord() throws IOException {
+        //Подготовка данных
+        deleteJournalFiles();
+        FileBackedTaskManager journaledManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile);
+        journaledManager.createItem(new Task("task1"));
+        journaledManager.close();
+        Files.writeString(journalFile, "P,2,TASK,tas", StandardOpenOption.APPEND);
+
+        //Тестируемая логика
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+
+        //Проверка восстановления
+        assertEquals(1, restoredManager.getAllItemsOfAllTypes().size(), "Оборванная запись применена");
+        restoredManager.close();
+    }
+
+    @Test
+    public void shouldRestoreJournalWrittenWithGroupCommit() throws Exception {
+        //Подготовка данных
+        deleteJournalFiles();
+        FileBackedTaskManager syncManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile,
+                TaskJournal.Durability.SYNC_PER_BATCH);
+        Task task1 = new Task("task1");
+        syncManager.createItem(task1);
+        syncManager.close();
+        FileBackedTaskManager asyncManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile,
+                TaskJournal.Durability.ASYNC_INTERVAL);
+        Task task2 = new Task("task2");
+        asyncManager.createItem(task2);
+        asyncManager.getItemById(task1.getId());
+
+        //Тестируемая логика
+        asyncManager.syncJournal().get(10, TimeUnit.SECONDS);
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+
+        //Проверка восстановления
+        assertEquals(2, restoredManager.getAllItemsOfAllTypes().size(), "Изменения журнала потеряны");
+        assertEquals(List.of(task1.getId()),
+                restoredManager.getHistoryManager().getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                "Неверная история");
+        asyncManager.close();
+        restoredManager.close();
+    }
+
+    @Test
+    public void shouldRestoreJournalWrittenWithoutWaitingForEachCommit() throws Exception {
+        //Подготовка данных
+        deleteJournalFiles();
+        FileBackedTaskManager syncManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile,
+                TaskJournal.Durability.SYNC_PER_BATCH);
+        syncManager.setWaitingForJournalCommit(false);
+
+        //Тестируемая логика: операции не ждут force, сохранность всех подтверждает syncJournal
+        for (int i = 0; i < 500; i++) {
+            syncManager.createItem(new Task("task" + i));
+        }
+        syncManager.syncJournal().get(10, TimeUnit.SECONDS);
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+
+        //Проверка восстановления
+        assertEquals(500, restoredManager.getAllItemsOfAllTypes().size(), "Изменения журнала потеряны");
+        syncManager.close();
+        restoredManager.close();
+    }
+
+    @Test
+    public void shouldCompactJournalWithBackgroundSnapshots() throws IOException {
+        //Подготовка данных
+        deleteJournalFiles();
+        FileBackedTaskManager journaledManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile);
+        journaledManager.setSnapshotThreshold(10);
+
+        //Тестируемая логика: снимки пишутся в фоне, пока менеджер принимает изменения
+        for (int i = 0; i < 300; i++) {
+            int id = journaledManager.createItem(new Task("task" + i));
+            if (i % 3 == 0) {
+                journaledManager.updateItem(new Task(id, "updated" + i, "", Status.DONE, ItemType.TASK, null, null), id);
+            }
+            if (i % 5 == 0) {
+                journaledManager.getItemById(id);
+            }
+            if (i % 7 == 0) {
+                journaledManager.removeItemById(id);
+            }
+        }
+        journaledManager.close();
+
+        //Проверка сжатия журнала и восстановления
+        assertEquals(List.of(journalFile), TaskJournal.getSegments(journalFile), "Покрытые снимком сегменты не удалены");
+        assertTrue(Files.readAllLines(snapshotFile).size() > 2, "Снимок не записан в фоне");
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+        assertEquals(journaledManager.getAllItemsOfAllTypes().stream().map(Task::toString).sorted().collect(Collectors.toList()),
+                restoredManager.getAllItemsOfAllTypes().stream().map(Task::toString).sorted().collect(Collectors.toList()),
+                "Восстановленные задачи отличаются");
+        assertEquals(journaledManager.getHistoryManager().getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                restoredManager.getHistoryManager().getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                "Восстановленная история отличается");
+        restoredManager.close();
+    }
+
+    @Test
+    public void shouldReportFailedBackgroundSnapshotOnce() throws Exception {
+        //Подготовка данных: временный файл снимка не создать - на его месте каталог
+        deleteJournalFiles();
+        FileBackedTaskManager journaledManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile);
+        Path tempSnapshotPath = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        Files.createDirectory(tempSnapshotPath);
+        journaledManager.setSnapshotThreshold(1);
+
+        try {
+            //Тестируемая логика: операции запускают фоновые снимки, пока ошибка снимка не будет сообщена
+            Assertions.assertThrows(ManagerSaveException.class, () -> {
+                for (int i = 0; i < 10_000; i++) {
+                    journaledManager.createItem(new Task("task" + i));
+                    Thread.sleep(1);
+                }
+            }, "Ошибка фонового снимка не сообщена");
+            Files.delete(tempSnapshotPath);
+            journaledManager.setSnapshotThreshold(FileBackedTaskManager.DEFAULT_SNAPSHOT_THRESHOLD);
+            Task task = new Task("task");
+            journaledManager.createItem(task);
+            journaledManager.close();
+
+            //Проверка: ошибка сообщена один раз, изменения остались в журнале
+            FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+            assertEquals(journaledManager.getAllItemsOfAllTypes().size(), restoredManager.getAllItemsOfAllTypes().size(),
+                    "Изменения из журнала потеряны");
+            assertEquals(task, restoredManager.getItemByIdWithoutSavingHistory(task.getId()), "Задача не восстановлена");
+            restoredManager.close();
+        } finally {
+            Files.deleteIfExists(tempSnapshotPath);
+        }
+    }
+
+    @Test
+    public void shouldReplaySealedSegmentNotCoveredBySnapshot() throws IOException {
+        //Подготовка данных: сбой после закрытия сегмента, но до записи снимка
+        deleteJournalFiles();
+        FileBackedTaskManager journaledManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile);
+        journaledManager.createItem(new Task("task1"));
+        journaledManager.close();
+        Files.move(journalFile, journalFile.resolveSibling(journalFile.getFileName() + ".1"));
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+        restoredManager.createItem(new Task("task2"));
+
+        //Тестируемая логика
+        restoredManager.checkpoint();
+        restoredManager.close();
+
+        //Проверка восстановления
+        assertEquals(List.of(journalFile), TaskJournal.getSegments(journalFile), "Покрытые снимком сегменты не удалены");
+        FileBackedTaskManager secondRestoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+        assertEquals(2, secondRestoredManager.getAllItemsOfAllTypes().size(), "Изменения из сегмента потеряны");
+        secondRestoredManager.close();
+    }
+
+    @Test
+    public void shouldRestoreStateFromBinarySnapshotAndJournal() throws IOException {
+        //Подготовка данных
+        deleteJournalFiles();
+        FileBackedTaskManager journaledManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile);
+        journaledManager.setSnapshotFormat(FileBackedTaskManager.SnapshotFormat.BINARY);
+        Epic epic = new Epic("epic");
+        Task task = new Task(0, "task", "описание", Status.IN_PROGRESS, ItemType.TASK,
+                Duration.ofMinutes(45), LocalDateTime.parse("02-01-2023 12:00", formatter));
+        journaledManager.createItems(List.of(epic, task));
+        Subtask subtask = new Subtask("subtask");
+        journaledManager.createItem(subtask);
+        journaledManager.linkSubtaskToEpic(subtask, epic);
+        journaledManager.getItemById(task.getId());
+        journaledManager.checkpoint();
+        journaledManager.removeItemById(subtask.getId());
+        journaledManager.close();
+
+        //Тестируемая логика
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+
+        //Проверка восстановления
+        assertTrue(BinaryTaskSnapshot.isBinarySnapshot(snapshotFile), "Снимок записан не в двоичном формате");
+        assertEquals(List.of(epic.getId(), task.getId()),
+                restoredManager.getAllItemsOfAllTypes().stream().map(Task::getId).sorted().collect(Collectors.toList()),
+                "Неверный набор задач");
+        Task restoredTask = restoredManager.getItemByIdWithoutSavingHistory(task.getId());
+        assertEquals("описание", restoredTask.getDescription(), "Неверное описание");
+        assertEquals(Duration.ofMinutes(45), restoredTask.getDurationMinutes(), "Неверная продолжительность");
+        assertEquals(task.getStartTime(), restoredTask.getStartTime(), "Неверное время старта");
+        assertTrue(((Epic) restoredManager.getItemByIdWithoutSavingHistory(epic.getId())).getEpicSubtaskIds().isEmpty(),
+                "Удаленная подзадача осталась в эпике");
+        assertEquals(List.of(task.getId()),
+                restoredManager.getHistoryManager().getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                "Неверная история");
+        assertEquals(4, restoredManager.createItem(new Task("task2")), "Id новой задачи совпадает с прежней");
+        restoredManager.close();
+    }
+
+    @Test
+    public void shouldReplaceBinarySnapshotTaskInScheduleWhenJournalMovesIt() throws IOException {
+        //Подготовка данных
+        deleteJournalFiles();
+        FileBackedTaskManager journaledManager = (FileBackedTaskManager) Managers.getJournaled(snapshotFile, journalFile);
+        journaledManager.setSnapshotFormat(FileBackedTaskManager.SnapshotFormat.BINARY);
+        Task task = new Task(0, "task", "описание", Status.NEW, ItemType.TASK,
+                Duration.ofMinutes(60), LocalDateTime.parse("02-01-2023 12:00", formatter));
+        journaledManager.createItem(task);
+        journaledManager.checkpoint();
+        Task movedTask = new Task(task.getId(), "task", "описание", Status.NEW, ItemType.TASK,
+                Duration.ofMinutes(60), LocalDateTime.parse("02-01-2023 15:00", formatter));
+        journaledManager.updateItem(movedTask, task.getId());
+        journaledManager.close();
+
+        //Тестируемая логика
+        FileBackedTaskManager restoredManager = FileBackedTaskManager.loadFromFile(snapshotFile, journalFile);
+
+        //Проверка, что версия из снимка убрана из списка приоритетов и индекса интервалов
+        assertEquals(List.of(movedTask.getStartTime()),
+                restoredManager.getPrioritizedTasks().stream().map(Task::getStartTime).collect(Collectors.toList()),
+                "Неверный список приоритетов");
+        assertEquals(task.getStartTime(), restoredManager.findFreeSlot(Duration.ofMinutes(60), task.getStartTime()),
+                "Интервал прежней версии задачи остался занят");
+        restoredManager.close();
+    }
+
+    private void deleteJournalFiles() {
+        try {
+            Files.deleteIfExists(snapshotFile);
+            for (Path segment : TaskJournal.getSegments(journalFile)) {
+                Files.deleteIfExists(segment);
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка при удалении файлов журнала");
+        }
+    }
 }
@@ -4,6 +4,8 @@ import adapters.DurationAdapter;
 import adapters.LocalDateTimeAdapter;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import exceptions.IncorrectLoadFromServerRequestException;
+import exceptions.ManagerSaveException;
 import model.Epic;
 import model.ItemType;
 import model.Subtask;
@@ -22,6 +24,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -55,6 +58,7 @@ public class HttpTaskManagerTest extends TaskManagerTest<HttpTaskManager> {
 
     @AfterEach
     public void afterEach() {
+        taskManager.close();
         kvServer.stop();
     }
 
@@ -280,6 +284,7 @@ public class HttpTaskManagerTest extends TaskManagerTest<HttpTaskManager> {
         taskManager.getItemById(subtask.getId());
         taskManager.getItemById(task.getId());
         taskManager.getItemById(epic.getId());
+        taskManager.flushHistory();
 
         JsonElement jsonElement = JsonParser.parseString(taskManager.getKvTaskClient().load(KVTaskClient.Key.HISTORY));
         JsonArray jsonArray = jsonElement.getAsJsonArray();
@@ -398,8 +403,13 @@ public class HttpTaskManagerTest extends TaskManagerTest<HttpTaskManager> {
         taskManager.createItem(task2);
 
         TaskManager loadedTaskManager = HttpTaskManager.loadFromServer(host);
+        Task task3 = new Task("task3");
+        loadedTaskManager.createItem(task3);
 
-        assertEquals(2, loadedTaskManager.getIdCounter());
+        assertEquals(4, loadedTaskManager.getIdCounter());
+        assertEquals(3, task3.getId(), "Новая задача заняла id восстановленной");
+        assertEquals(task2, loadedTaskManager.getItemByIdWithoutSavingHistory(task2.getId()),
+                "Восстановленная задача перезаписана");
     }
 
     @Test
@@ -414,6 +424,7 @@ public class HttpTaskManagerTest extends TaskManagerTest<HttpTaskManager> {
         taskManager.getItemById(epic.getId());
         taskManager.getItemById(subtask.getId());
         taskManager.getItemById(task.getId());
+        taskManager.flushHistory();
 
         InMemoryTaskManager loadedTaskManager = HttpTaskManager.loadFromServer(host);
 
@@ -424,6 +435,70 @@ public class HttpTaskManagerTest extends TaskManagerTest<HttpTaskManager> {
         assertEquals(loadedHistory.get(2), task);
     }
 
+    @Test
+    public void shouldDeferHistoryUploadUntilFlush() throws IOException, InterruptedException {
+        //Подготовка данных
+        taskManager.close();
+        taskManager = new HttpTaskManager(host, TimeUnit.HOURS.toMillis(1));
+        Task task1 = new Task("task1");
+        Task task2 = new Task("task2");
+        taskManager.createItems(List.of(task1, task2));
+
+        //Тестируемая логика
+        for (int i = 0; i < 100; i++) {
+            taskManager.getItemById(i % 2 == 0 ? task2.getId() : task1.getId());
+        }
+
+        //Проверка, что история отправлена только при flushHistory
+        assertThrows(IncorrectLoadFromServerRequestException.class,
+                () -> taskManager.getKvTaskClient().load(KVTaskClient.Key.HISTORY),
+                "История отправлена до flushHistory");
+        taskManager.flushHistory();
+        List<Task> loadedHistory = HttpTaskManager.loadFromServer(host).getHistoryManager().getHistory();
+        assertEquals(List.of(task2, task1), loadedHistory, "Неверная история на сервере");
+    }
+
+    @Test
+    public void shouldUploadHistoryAfterFlushDelay() throws IOException, InterruptedException {
+        //Подготовка данных
+        Task task = new Task("task");
+        taskManager.createItem(task);
+
+        //Тестируемая логика
+        taskManager.getItemById(task.getId());
+
+        //Проверка, что отложенная отправка выполнена без явного flushHistory
+        List<Task> loadedHistory = List.of();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (loadedHistory.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(HttpTaskManager.DEFAULT_HISTORY_FLUSH_DELAY_MILLIS);
+            loadedHistory = HttpTaskManager.loadFromServer(host).getHistoryManager().getHistory();
+        }
+        assertEquals(List.of(task), loadedHistory, "История не отправлена на сервер");
+    }
+
+    @Test
+    public void shouldReportHistoryThatFailedToUploadInBackgroundOnClose() throws IOException, InterruptedException {
+        //Подготовка данных
+        Task task = new Task("task");
+        taskManager.createItem(task);
+        kvServer.stop();
+
+        //Тестируемая логика
+        taskManager.getItemById(task.getId());
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (taskManager.getHistoryFlushFailure() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(HttpTaskManager.DEFAULT_HISTORY_FLUSH_DELAY_MILLIS);
+        }
+
+        //Проверка, что ошибка фоновой отправки не потеряна
+        assertNotNull(taskManager.getHistoryFlushFailure(), "Ошибка фоновой отправки не сохранена");
+        assertThrows(ManagerSaveException.class, () -> taskManager.close(), "Неотправленная история не сообщена");
+        kvServer = new KVServer();
+        kvServer.start();
+        taskManager = new HttpTaskManager(host);
+    }
+
     @Test
     public void shouldRestorePrioritizedListFromServer() throws IOException, InterruptedException {
         Epic epic = new Epic("epic");
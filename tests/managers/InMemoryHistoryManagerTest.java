@@ -1,5 +1,6 @@
 package managers;
 
+import exceptions.NoSuchTaskExistsException;
 import model.Epic;
 import model.Subtask;
 import model.Task;
@@ -7,8 +8,16 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class InMemoryHistoryManagerTest {
 
@@ -142,4 +151,103 @@ public class InMemoryHistoryManagerTest {
         assertEquals(task2, historyManager.getHistory().get(0));
         assertEquals(subtask2, historyManager.getHistory().get(1));
     }
+
+    @Test
+    public void shouldEvictLeastRecentlyViewedRecordWhenCapacityExceeded() {
+        //Подготовка данных
+        taskManager = (InMemoryTaskManager) Managers.getDefault(3);
+        historyManager = taskManager.getHistoryManager();
+        taskManager.createItems(List.of(task1, task2, subtask1, subtask2));
+        taskManager.getItemById(task1.getId());//[0]
+        taskManager.getItemById(task2.getId());//[1]
+        taskManager.getItemById(subtask1.getId());//[2]
+
+        //Тестируемая логика
+        taskManager.getItemById(task1.getId());//[0] -> [2]
+        taskManager.getItemById(subtask2.getId());//вытесняет task2
+
+        //Проверка записей
+        assertEquals(List.of(subtask1, task1, subtask2), historyManager.getHistory());
+    }
+
+    @Test
+    public void shouldAddRecordAfterRemoveWithoutEvictionInFullHistory() {
+        //Подготовка данных
+        HistoryManager boundedHistoryManager = Managers.getDefaultHistory(2);
+        boundedHistoryManager.add(task1);
+        boundedHistoryManager.add(task2);
+
+        //Тестируемая логика
+        boundedHistoryManager.remove(task1.getId());
+        boundedHistoryManager.add(subtask1);
+
+        //Проверка записей
+        assertEquals(List.of(task2, subtask1), boundedHistoryManager.getHistory());
+    }
+
+    @Test
+    public void shouldNotCreateHistoryWithoutCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> Managers.getDefaultHistory(0));
+    }
+
+    @Test
+    public void shouldMatchLinkedHashMapOnRandomOperations() {
+        //Подготовка данных
+        HistoryManager randomHistoryManager = Managers.getDefaultHistory();
+        LinkedHashMap<Integer, Task> expectedHistory = new LinkedHashMap<>();
+        Random random = new Random(42);
+
+        //Тестируемая логика: случайные просмотры и удаления, ячейки списка занимаются повторно
+        for (int i = 0; i < 50_000; i++) {
+            int id = random.nextInt(500) + 1;
+            if (random.nextInt(4) == 0) {
+                randomHistoryManager.remove(id);
+                expectedHistory.remove(id);
+            } else {
+                Task task = new Task(id, "task" + id);
+                randomHistoryManager.add(task);
+                expectedHistory.remove(id);
+                expectedHistory.put(id, task);
+            }
+        }
+
+        //Проверка записей
+        assertEquals(new ArrayList<>(expectedHistory.values()), randomHistoryManager.getHistory());
+    }
+
+    @Test
+    public void shouldReturnHistoryPagesFromMostRecent() {
+        //Подготовка данных
+        taskManager.getItemById(task1.getId());
+        taskManager.getItemById(task2.getId());
+        taskManager.getItemById(subtask1.getId());
+        taskManager.getItemById(task1.getId());//task1 переносится в конец
+
+        //Тестируемая логика
+        List<Task> firstPage = historyManager.getHistoryPage(0, 2);
+        List<Task> nextPage = historyManager.getHistoryPage(subtask1.getId(), 2);
+
+        //Проверка страниц
+        assertEquals(List.of(task1, subtask1), firstPage);
+        assertEquals(List.of(task2), nextPage);
+        assertThrows(NoSuchTaskExistsException.class, () -> historyManager.getHistoryPage(epic1.getId(), 2));
+    }
+
+    @Test
+    public void shouldIterateHistoryFromMostRecentAndFailOnModification() {
+        //Подготовка данных
+        taskManager.getItemById(task1.getId());
+        taskManager.getItemById(task2.getId());
+        List<Task> iteratedHistory = new ArrayList<>();
+
+        //Тестируемая логика
+        historyManager.descendingIterator().forEachRemaining(iteratedHistory::add);
+        Iterator<Task> iterator = historyManager.descendingIterator();
+        iterator.next();
+        taskManager.getItemById(subtask1.getId());
+
+        //Проверка обхода
+        assertEquals(List.of(task2, task1), iteratedHistory);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
 }
@@ -1,5 +1,13 @@
 package managers;
 
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
 
     @Override
@@ -7,4 +15,41 @@ public class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager
         taskManager = (InMemoryTaskManager) Managers.getDefault();
     }
 
+    @Test
+    public void shouldReturnHotTasksByViewFrequency() {
+        //Подготовка данных
+        taskManager = (InMemoryTaskManager) Managers.getDefault(
+                Managers.getFrequencyTrackingHistory(InMemoryHistoryManager.UNLIMITED_CAPACITY));
+        Task task1 = new Task("task1");
+        Task task2 = new Task("task2");
+        Task task3 = new Task("task3");
+        taskManager.createItems(List.of(task1, task2, task3));
+        for (int i = 0; i < 3; i++) {
+            taskManager.getItemById(task2.getId());
+        }
+        taskManager.getItemById(task1.getId());
+        taskManager.getItemById(task1.getId());
+        taskManager.getItemById(task3.getId());
+
+        //Тестируемая логика
+        taskManager.removeItemById(task3.getId());
+
+        //Проверка горячих задач
+        assertEquals(List.of(task2, task1), taskManager.getHotTasks(10), "Неверный список горячих задач");
+        assertEquals(List.of(task2), taskManager.getHotTasks(1), "Не учтено ограничение количества");
+    }
+
+    @Test
+    public void shouldNotTrackFrequencyByDefault() {
+        //Подготовка данных
+        Task task = new Task("task");
+        taskManager.createItem(task);
+
+        //Тестируемая логика
+        taskManager.getItemById(task.getId());
+
+        //Проверка горячих задач
+        assertTrue(taskManager.getHotTasks(10).isEmpty(), "Частота учитывается без FrequencyTrackingHistoryManager");
+    }
+
 }
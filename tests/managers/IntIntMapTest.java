@@ -0,0 +1,58 @@
+package managers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntIntMapTest {
+    private IntIntMap map;
+
+    @BeforeEach
+    public void beforeEach() {
+        map = new IntIntMap();
+    }
+
+    @Test
+    public void shouldPutGetAndReplaceValues() {
+        //Тестируемая логика
+        map.put(1, 10);
+        map.put(0, 0);
+        map.put(-5, -50);
+        map.put(1, 11);
+
+        //Проверка содержимого
+        assertEquals(11, map.get(1, -1), "Значение не заменено");
+        assertEquals(0, map.get(0, -1), "Значение не найдено");
+        assertEquals(-50, map.get(-5, -1), "Значение не найдено");
+        assertEquals(-1, map.get(2, -1), "Найдено отсутствующее значение");
+        assertEquals(3, map.size(), "Неверный размер таблицы");
+    }
+
+    @Test
+    public void shouldMatchHashMapOnRandomOperations() {
+        //Подготовка данных
+        HashMap<Integer, Integer> expectedMap = new HashMap<>();
+        Random random = new Random(42);
+
+        //Тестируемая логика: случайные вставки и удаления с ростом таблицы
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expectedMap.remove(key) != null, map.remove(key), "Неверный результат удаления");
+            } else {
+                expectedMap.put(key, i);
+                map.put(key, i);
+            }
+        }
+
+        //Проверка содержимого
+        assertEquals(expectedMap.size(), map.size(), "Неверный размер таблицы");
+        for (int key = 0; key < 5_000; key++) {
+            assertEquals(expectedMap.getOrDefault(key, -1), map.get(key, -1), "Значения не совпадают");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package managers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntObjectMapTest {
+    private IntObjectMap<String> map;
+
+    @BeforeEach
+    public void beforeEach() {
+        map = new IntObjectMap<>();
+    }
+
+    @Test
+    public void shouldPutGetAndReplaceValues() {
+        //Тестируемая логика
+        assertNull(map.put(1, "one"), "Ключ уже был в таблице");
+        assertNull(map.put(0, "zero"), "Ключ уже был в таблице");
+        assertNull(map.put(-5, "minus five"), "Ключ уже был в таблице");
+        String previousValue = map.put(1, "first");
+
+        //Проверка содержимого
+        assertEquals("one", previousValue, "Неверное предыдущее значение");
+        assertEquals("first", map.get(1), "Значение не заменено");
+        assertEquals("zero", map.get(0), "Значение не найдено");
+        assertEquals("minus five", map.get(-5), "Значение не найдено");
+        assertNull(map.get(2), "Найдено отсутствующее значение");
+        assertEquals(3, map.size(), "Неверный размер таблицы");
+    }
+
+    @Test
+    public void shouldKeepCollidingKeysAfterRemove() {
+        //Подготовка данных: ключи попадают в одну ячейку таблицы емкостью 16
+        map.put(1, "1");
+        map.put(17, "17");
+        map.put(33, "33");
+        map.put(2, "2");
+
+        //Тестируемая логика
+        assertEquals("1", map.remove(1), "Неверное удаленное значение");
+
+        //Проверка, что цепочка пробирования не разорвана
+        assertNull(map.get(1), "Значение не удалено");
+        assertEquals("17", map.get(17), "Значение потеряно после удаления");
+        assertEquals("33", map.get(33), "Значение потеряно после удаления");
+        assertEquals("2", map.get(2), "Значение потеряно после удаления");
+        assertEquals(3, map.size(), "Неверный размер таблицы");
+    }
+
+    @Test
+    public void shouldIterateSequentialIdsInAscendingOrder() {
+        //Подготовка данных
+        for (int id = 1; id <= 5; id++) {
+            map.put(id, String.valueOf(id));
+        }
+
+        //Проверка порядка обхода
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, map.keys(), "Неверный порядок ключей");
+        assertEquals(List.of("1", "2", "3", "4", "5"), map.values(), "Неверный порядок значений");
+    }
+
+    @Test
+    public void shouldMatchHashMapOnRandomOperations() {
+        //Подготовка данных
+        HashMap<Integer, String> expectedMap = new HashMap<>();
+        Random random = new Random(42);
+
+        //Тестируемая логика: случайные вставки и удаления с ростом таблицы
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expectedMap.remove(key), map.remove(key), "Неверное удаленное значение");
+            } else {
+                String value = String.valueOf(i);
+                assertEquals(expectedMap.put(key, value), map.put(key, value), "Неверное предыдущее значение");
+            }
+        }
+
+        //Проверка содержимого
+        assertEquals(expectedMap.size(), map.size(), "Неверный размер таблицы");
+        for (int key = 0; key < 5_000; key++) {
+            assertEquals(expectedMap.get(key), map.get(key), "Значения не совпадают");
+        }
+    }
+
+    @Test
+    public void shouldRemoveSequentialIdsFromLongProbeChain() {
+        //Подготовка данных: последовательные id занимают одну сплошную цепочку ячеек
+        for (int id = 1; id <= 200_000; id++) {
+            map.put(id, String.valueOf(id));
+        }
+
+        //Тестируемая логика
+        for (int id = 1; id <= 200_000; id += 2) {
+            assertEquals(String.valueOf(id), map.remove(id), "Неверное удаленное значение");
+        }
+
+        //Проверка содержимого
+        assertEquals(100_000, map.size(), "Неверный размер таблицы");
+        for (int id = 1; id <= 200_000; id++) {
+            assertEquals(id % 2 == 0 ? String.valueOf(id) : null, map.get(id), "Значения не совпадают");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package managers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskJournalTest {
+    private static final int THREADS_COUNT = 8;
+
+    private final Path journalFile = Paths.get("project_files/taskJournalTest.txt");
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Test
+    public void shouldWriteRecordsOnCommitWithoutSync() throws IOException {
+        //Подготовка данных
+        TaskJournal journal = new TaskJournal(journalFile, TaskJournal.Durability.NONE);
+        journal.appendView(1);
+        journal.appendRemove(2);
+
+        //Тестируемая логика
+        CompletableFuture<Void> commit = journal.commit();
+
+        //Проверка записи
+        assertTrue(commit.isDone(), "Запись без сброса на диск не завершена сразу");
+        assertEquals(List.of("V,1", "R,2"), Files.readAllLines(journalFile), "Неверные записи журнала");
+        journal.close();
+    }
+
+    @Test
+    public void shouldCommitConcurrentOperationsInSyncPerBatchMode() throws Exception {
+        //Подготовка данных
+        TaskJournal journal = new TaskJournal(journalFile, TaskJournal.Durability.SYNC_PER_BATCH);
+        int commitsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //Тестируемая логика: каждая операция ждет сброса на диск своей пачки
+        for (int thread = 0; thread < THREADS_COUNT; thread++) {
+            int firstId = thread * commitsPerThread + 1;
+            futures.add(executor.submit(() -> {
+                for (int id = firstId; id < firstId + commitsPerThread; id++) {
+                    CompletableFuture<Void> commit;
+                    synchronized (journal) {
+                        journal.appendView(id);
+                        commit = journal.commit();
+                    }
+                    commit.get(10, TimeUnit.SECONDS);
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //Проверка записи: ни одна операция не потеряна, операции разных потоков объединяются в пачки
+        Set<String> records = new HashSet<>(Files.readAllLines(journalFile));
+        assertEquals(THREADS_COUNT * commitsPerThread, records.size(), "Записи потеряны");
+        assertTrue(journal.getBatchCount() < THREADS_COUNT * commitsPerThread, "Каждая операция сброшена отдельно");
+        journal.close();
+    }
+
+    @Test
+    public void shouldGroupCommitsOfSingleThreadThatDoesNotWait() throws Exception {
+        //Подготовка данных
+        TaskJournal journal = new TaskJournal(journalFile, TaskJournal.Durability.SYNC_PER_BATCH);
+        int commitsCount = 1_000;
+        CompletableFuture<Void> lastCommit = null;
+
+        //Тестируемая логика: поток передает операции одну за другой и ждет только последнюю
+        for (int id = 1; id <= commitsCount; id++) {
+            journal.appendView(id);
+            lastCommit = journal.commit();
+        }
+        lastCommit.get(10, TimeUnit.SECONDS);
+
+        //Проверка записи: операции, переданные во время force, попали в общую пачку
+        assertEquals(commitsCount, Files.readAllLines(journalFile).size(), "Записи потеряны");
+        assertTrue(journal.getBatchCount() < commitsCount, "Каждая операция сброшена отдельно");
+        journal.close();
+    }
+
+    @Test
+    public void shouldWriteRecordsOnSyncInAsyncIntervalMode() throws Exception {
+        //Подготовка данных
+        TaskJournal journal = new TaskJournal(journalFile, TaskJournal.Durability.ASYNC_INTERVAL);
+        journal.appendView(1);
+        CompletableFuture<Void> commit = journal.commit();
+
+        //Тестируемая логика
+        journal.sync().get(10, TimeUnit.SECONDS);
+
+        //Проверка записи
+        assertTrue(commit.isDone(), "Операция до sync не сброшена на диск");
+        assertEquals(List.of("V,1"), Files.readAllLines(journalFile), "Неверные записи журнала");
+        journal.close();
+    }
+
+    @Test
+    public void shouldWriteQueuedRecordsOnClose() throws IOException {
+        //Подготовка данных
+        TaskJournal journal = new TaskJournal(journalFile, TaskJournal.Durability.ASYNC_INTERVAL);
+        journal.appendView(1);
+        CompletableFuture<Void> commit = journal.commit();
+
+        //Тестируемая логика
+        journal.close();
+
+        //Проверка записи
+        assertTrue(commit.isDone(), "Операция не завершена при закрытии журнала");
+        assertEquals(List.of("V,1"), Files.readAllLines(journalFile), "Записи потеряны при закрытии журнала");
+    }
+
+    @Test
+    public void shouldTruncateAfterWritingQueuedRecords() throws IOException {
+        //Подготовка данных
+        TaskJournal journal = new TaskJournal(journalFile, TaskJournal.Durability.ASYNC_INTERVAL);
+        journal.appendView(1);
+        journal.commit();
+
+        //Тестируемая логика
+        journal.truncate();
+        journal.close();
+
+        //Проверка записи: запись из очереди не дописана после очистки
+        assertEquals(List.of(), Files.readAllLines(journalFile), "Журнал не очищен");
+    }
+}
@@ -13,7 +13,10 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,7 +36,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
     @BeforeEach
     public void beforeEach() {
         setTaskManager();
-        ((InMemoryTaskManager) taskManager).setIdCounter(1);
+        taskManager.setIdCounter(1);
     }
 
     //Тесты создания задач
@@ -92,8 +95,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(1, createdSubtasks.size(), "Неверное количество элементов в списке подзадач");
         assertTrue(createdSubtasks.contains(testSubtask1), "Подзадача не найдена");
         //Проверяем, что создана нужная задача
-        Subtask savedSubtask = (Subtask) ((InMemoryTaskManager) taskManager)
-                .getItemByIdWithoutSavingHistory(testSubtask1.getId());
+        Subtask savedSubtask = (Subtask) taskManager.getItemByIdWithoutSavingHistory(testSubtask1.getId());
         assertNotNull(savedSubtask, "Подзадача не найдена");
         assertEquals(testSubtask1, savedSubtask, "Подзадачи не совпадают");
     }
@@ -115,8 +117,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertTrue(createdSubtasks.contains(testSubtask2), "Подзадача не найдена");
         assertTrue(createdSubtasks.contains(testSubtask1), "Подзадача не найдена");
         //Проверяем, что создана нужная задача
-        Subtask savedSubtask = (Subtask) ((InMemoryTaskManager) taskManager)
-                .getItemByIdWithoutSavingHistory(testSubtask2.getId());
+        Subtask savedSubtask = (Subtask) taskManager.getItemByIdWithoutSavingHistory(testSubtask2.getId());
         assertNotNull(savedSubtask, "Подзадача не найдена");
         assertEquals(testSubtask2, savedSubtask, "Подзадачи не совпадают");
     }
@@ -135,7 +136,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(1, createdEpics.size(), "Неверное количество элементов в списке эпиков");
         assertTrue(createdEpics.contains(testEpic1), "Эпик не найден");
         //Проверяем, что создана нужная задача
-        Epic savedEpic = (Epic) ((InMemoryTaskManager) taskManager).getItemByIdWithoutSavingHistory(testEpic1.getId());
+        Epic savedEpic = (Epic) taskManager.getItemByIdWithoutSavingHistory(testEpic1.getId());
         assertNotNull(savedEpic, "Эпик не найден");
         assertEquals(testEpic1, savedEpic, "Эпики не совпадают");
     }
@@ -158,7 +159,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertTrue(createdEpics.contains(testEpic1), "Эпик не найден");
 
         //Проверяем, что создана нужная задача
-        Epic savedEpic = (Epic) ((InMemoryTaskManager) taskManager).getItemByIdWithoutSavingHistory(testEpic2.getId());
+        Epic savedEpic = (Epic) taskManager.getItemByIdWithoutSavingHistory(testEpic2.getId());
         assertNotNull(savedEpic, "Эпик не найден");
         assertEquals(testEpic2, savedEpic, "Эпики не совпадают");
     }
@@ -189,6 +190,28 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(3, taskManager.getIdCounter(), "Неверный id задачи");
     }
 
+    @Test
+    public void shouldNotSpendIdOnTaskThatIntersects() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        task1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        taskManager.createItem(task1);
+        Task intersectingTask = new Task("intersectingTask");
+        intersectingTask.setStartTime(LocalDateTime.parse("01-01-2023 12:15", formatter));
+        intersectingTask.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Task task2 = new Task("task2");
+
+        //Тестируемые операции
+        assertThrows(TaskTimeIntersectionException.class, () -> taskManager.createItem(intersectingTask),
+                "Задача пересекается с существующей");
+        int task2Id = taskManager.createItem(task2);
+
+        //Проверка, что отклоненная задача не заняла id
+        assertEquals(2, task2Id, "Отклоненная задача заняла id");
+        assertEquals(3, taskManager.getIdCounter(), "Неверный счетчик id");
+    }
+
     @Test
     public void shouldNotCreateTaskOfNull() {
         Task task = null;
@@ -270,7 +293,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.updateItem(epic1, epic1.getId());
 
         //Проверка корректности обновления задачи
-        Task updatedEpic = ((InMemoryTaskManager) taskManager).getItemByIdWithoutSavingHistory(epic1.getId());
+        Task updatedEpic = taskManager.getItemByIdWithoutSavingHistory(epic1.getId());
         assertNotNull(updatedEpic, "Обновленный эпик не существует");
         assertEquals(updatedEpic, epic1, "Эпики не совпадают");
         assertEquals("Новое имя эпика", updatedEpic.getName(), "Эпик не изменен");
@@ -295,7 +318,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.updateItem(subtask1, subtask1.getId());
 
         //Проверка корректности обновления задачи
-        Task updatedSubtask = ((InMemoryTaskManager) taskManager).getItemByIdWithoutSavingHistory(subtask1.getId());
+        Task updatedSubtask = taskManager.getItemByIdWithoutSavingHistory(subtask1.getId());
         assertNotNull(updatedSubtask, "Обновленная подзадача не существует");
         assertEquals(updatedSubtask, subtask1, "Подзадачи не совпадают");
         assertEquals("Новое имя подзадачи", updatedSubtask.getName(), "Подзадача не изменена");
@@ -340,7 +363,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.removeItemById(task.getId());
 
         //Проверка наличия удаленной задачи
-        List<Task> allTasks = ((InMemoryTaskManager) taskManager).getAllItemsOfAllTypes();
+        List<Task> allTasks = taskManager.getAllItemsOfAllTypes();
         assertFalse(allTasks.contains(task), "Задача не удалена");
     }
 
@@ -351,13 +374,13 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.createItem(subtask1);
         Epic epicWithSubtasks = new Epic("epicWithSubtasks");
         taskManager.createItem(epicWithSubtasks);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask1, epicWithSubtasks);
+        taskManager.linkSubtaskToEpic(subtask1, epicWithSubtasks);
 
         //Тестируемая логика
         taskManager.removeItemById(subtask1.getId());
 
         //Проверка наличия удаленной задачи
-        List<Task> allTasks = ((InMemoryTaskManager) taskManager).getAllItemsOfAllTypes();
+        List<Task> allTasks = taskManager.getAllItemsOfAllTypes();
         assertFalse(allTasks.contains(subtask1), "Задача не удалена");
     }
 
@@ -371,7 +394,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.removeItemById(emptyEpic.getId());
 
         //Проверка наличия удаленной задачи
-        List<Task> allTasks = ((InMemoryTaskManager) taskManager).getAllItemsOfAllTypes();
+        List<Task> allTasks = taskManager.getAllItemsOfAllTypes();
         assertFalse(allTasks.contains(emptyEpic), "Задача не удалена");
     }
 
@@ -384,20 +407,64 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.createItem(subtask2);
         Epic epicWithSubtasks = new Epic("epicWithSubtasks");
         taskManager.createItem(epicWithSubtasks);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask1, epicWithSubtasks);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask2, epicWithSubtasks);
+        taskManager.linkSubtaskToEpic(subtask1, epicWithSubtasks);
+        taskManager.linkSubtaskToEpic(subtask2, epicWithSubtasks);
 
         //Тестируемая логика
         taskManager.removeItemById(epicWithSubtasks.getId());
 
         //Проверка наличия удаленной задачи
-        List<Task> allTasks = ((InMemoryTaskManager) taskManager).getAllItemsOfAllTypes();
+        List<Task> allTasks = taskManager.getAllItemsOfAllTypes();
         assertFalse(allTasks.contains(epicWithSubtasks), "Задача не удалена");
         //Проверка наличия привязанных подзадач
         assertFalse(allTasks.contains(subtask1), "Подзадача не удалена");
         assertFalse(allTasks.contains(subtask2), "Подзадача не удалена");
     }
 
+    @Test
+    public void shouldFindItemsOfAllTypesByIdAfterRemove() {
+        //Подготовка данных
+        Task task = new Task("task");
+        taskManager.createItem(task);
+        Epic epic = new Epic("epic");
+        taskManager.createItem(epic);
+        Subtask subtask = new Subtask("subtask");
+        taskManager.createItem(subtask);
+        taskManager.linkSubtaskToEpic(subtask, epic);
+
+        //Тестируемая логика
+        taskManager.removeItemById(task.getId());
+
+        //Проверка поиска по id
+        assertNull(taskManager.getItemByIdWithoutSavingHistory(task.getId()), "Удаленная задача найдена");
+        assertEquals(epic, taskManager.getItemByIdWithoutSavingHistory(epic.getId()), "Эпик не найден");
+        assertEquals(subtask, taskManager.getItemByIdWithoutSavingHistory(subtask.getId()), "Подзадача не найдена");
+    }
+
+    @Test
+    public void shouldRemoveOnlyOwnSubtasksWithEpic() {
+        //Подготовка данных
+        Epic epic1 = new Epic("epic1");
+        taskManager.createItem(epic1);
+        Epic epic2 = new Epic("epic2");
+        taskManager.createItem(epic2);
+        Subtask subtask1 = new Subtask("subtask1");
+        subtask1.setEpicId(epic1.getId());
+        taskManager.createItem(subtask1);
+        Subtask subtask2 = new Subtask("subtask2");
+        taskManager.createItem(subtask2);
+        taskManager.linkSubtaskToEpic(subtask2, epic2);
+
+        //Тестируемая логика
+        taskManager.removeItemById(epic1.getId());
+
+        //Проверка наличия подзадач
+        List<Task> allTasks = taskManager.getAllItemsOfAllTypes();
+        assertFalse(allTasks.contains(subtask1), "Подзадача удаленного эпика не удалена");
+        assertTrue(allTasks.contains(subtask2), "Удалена подзадача другого эпика");
+        assertEquals(List.of(subtask2), taskManager.getEpicSubtasks(epic2.getId()), "Неверный список подзадач");
+    }
+
     @Test
     public void shouldNotRemoveIfIdNotExist() {
         //Подготовка данных
@@ -464,7 +531,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.createItem(epicWithSubtasks);
         Subtask subtask1 = new Subtask("subtask1");
         taskManager.createItem(subtask1);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask1, epicWithSubtasks);
+        taskManager.linkSubtaskToEpic(subtask1, epicWithSubtasks);
 
         //Тестируемая логика
         taskManager.removeAllItemsByType(ItemType.EPIC);
@@ -479,6 +546,60 @@ public abstract class TaskManagerTest<T extends TaskManager> {
                 "Не все подзадачи удалены");
     }
 
+    @Test
+    public void shouldRecalculateEpicsWhenSubtasksRemovedByType() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        taskManager.createItem(epic);
+        Subtask subtask1 = new Subtask(0, "subtask1", "description", Status.DONE, ItemType.SUBTASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 12:00", formatter), epic.getId());
+        Subtask subtask2 = new Subtask(0, "subtask2", "description", Status.IN_PROGRESS, ItemType.SUBTASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 13:00", formatter), epic.getId());
+        Task task = new Task("task");
+        taskManager.createItems(List.of(subtask1, subtask2, task));
+        taskManager.getItemById(subtask1.getId());
+        taskManager.getItemById(task.getId());
+
+        //Тестируемая логика
+        taskManager.removeAllItemsByType(ItemType.SUBTASK);
+
+        //Проверка эпика, истории и списка приоритетов
+        assertEquals(Status.NEW, epic.getStatus(), "Статус эпика не пересчитан");
+        assertTrue(taskManager.getEpicSubtasks(epic.getId()).isEmpty(), "У эпика остались подзадачи");
+        assertEquals(List.of(task), taskManager.getHistoryManager().getHistory(),
+                "Удаленная подзадача осталась в истории");
+        assertEquals(List.of(task), taskManager.getPrioritizedTasks(), "Удаленные подзадачи остались в списке");
+    }
+
+    @Test
+    public void shouldFreeTimeOfTasksRemovedByType() {
+        //Подготовка данных
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new Task(0, "task" + i, "description", Status.NEW, ItemType.TASK,
+                    Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 12:00", formatter).plusHours(i)));
+        }
+        Subtask subtask = new Subtask(0, "subtask", "description", Status.NEW, ItemType.SUBTASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 12:30", formatter), 0);
+        taskManager.createItems(tasks);
+        taskManager.createItem(subtask);
+
+        //Тестируемая логика
+        taskManager.removeAllItemsByType(ItemType.TASK);
+
+        //Проверка списка приоритетов и занятых интервалов
+        assertEquals(List.of(subtask), taskManager.getPrioritizedTasks(), "Удаленные задачи остались в списке");
+        assertDoesNotThrow(() -> taskManager.createItem(new Task(0, "task", "description", Status.NEW,
+                        ItemType.TASK, Duration.of(30, ChronoUnit.MINUTES),
+                        LocalDateTime.parse("01-01-2023 12:00", formatter))),
+                "Время удаленной задачи осталось занятым");
+        Assertions.assertThrows(TaskTimeIntersectionException.class,
+                () -> taskManager.createItem(new Task(0, "task", "description", Status.NEW,
+                        ItemType.TASK, Duration.of(30, ChronoUnit.MINUTES),
+                        LocalDateTime.parse("01-01-2023 12:40", formatter))),
+                "Время оставшейся подзадачи освободилось");
+    }
+
     //Тесты приоритизации задач
     @Test
     public void shouldNotAddEpicToPrioritizedList() {
@@ -498,10 +619,10 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         Subtask subtask1 = new Subtask("subtask1");
         subtask1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
         taskManager.createItem(subtask1);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask1, epic);
+        taskManager.linkSubtaskToEpic(subtask1, epic);
         Subtask subtask2 = new Subtask("subtask2");
         taskManager.createItem(subtask2);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask2, epic);
+        taskManager.linkSubtaskToEpic(subtask2, epic);
 
         //Проверка сортировки
         assertEquals(subtask1, taskManager.getPrioritizedTasks().get(0), "Ошибка сортировки задач");
@@ -515,11 +636,11 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.createItem(epic);
         Subtask subtask1 = new Subtask("subtask1");
         taskManager.createItem(subtask1);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask1, epic);
+        taskManager.linkSubtaskToEpic(subtask1, epic);
         Subtask subtask2 = new Subtask("subtask2");
         subtask2.setStartTime(LocalDateTime.parse("03-02-2023 16:20", formatter));
         taskManager.createItem(subtask2);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask2, epic);
+        taskManager.linkSubtaskToEpic(subtask2, epic);
 
         //Проверка сортировки
         assertEquals(subtask2, taskManager.getPrioritizedTasks().get(0), "Ошибка сортировки задач");
@@ -534,7 +655,7 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         Subtask subtask1 = new Subtask("subtask1");
         subtask1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
         taskManager.createItem(subtask1);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask1, epic);
+        taskManager.linkSubtaskToEpic(subtask1, epic);
         Task task = new Task("task");
         task.setStartTime(LocalDateTime.parse("05-02-2023 12:20", formatter));
         taskManager.createItem(task);
@@ -611,10 +732,10 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.createItem(epic);
         Subtask subtask1 = new Subtask("subtask1");
         taskManager.createItem(subtask1);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask1, epic);
+        taskManager.linkSubtaskToEpic(subtask1, epic);
         Subtask subtask2 = new Subtask("subtask2");
         taskManager.createItem(subtask2);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask2, epic);
+        taskManager.linkSubtaskToEpic(subtask2, epic);
         subtask1.setStartTime(LocalDateTime.parse("01-01-2023 11:30", formatter));
         subtask1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
         taskManager.updateItem(subtask1, subtask1.getId());
@@ -634,10 +755,10 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.createItem(epic);
         Subtask subtask1 = new Subtask("subtask1");
         taskManager.createItem(subtask1);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask1, epic);
+        taskManager.linkSubtaskToEpic(subtask1, epic);
         Subtask subtask2 = new Subtask("subtask2");
         taskManager.createItem(subtask2);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask2, epic);
+        taskManager.linkSubtaskToEpic(subtask2, epic);
         subtask1.setStartTime(LocalDateTime.parse("01-01-2023 11:20", formatter));
         subtask1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
         taskManager.updateItem(subtask1, subtask1.getId());
@@ -657,10 +778,10 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.createItem(epic);
         Subtask subtask1 = new Subtask("subtask1");
         taskManager.createItem(subtask1);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask1, epic);
+        taskManager.linkSubtaskToEpic(subtask1, epic);
         Subtask subtask2 = new Subtask("subtask2");
         taskManager.createItem(subtask2);
-        ((InMemoryTaskManager) taskManager).linkSubtaskToEpic(subtask2, epic);
+        taskManager.linkSubtaskToEpic(subtask2, epic);
         subtask1.setStartTime(LocalDateTime.parse("01-01-2023 11:50", formatter));
         subtask1.setDurationMinutes(Duration.of(120, ChronoUnit.MINUTES));
         taskManager.updateItem(subtask1, subtask1.getId());
@@ -673,4 +794,465 @@ public abstract class TaskManagerTest<T extends TaskManager> {
                 "Задачи пересекаются");
     }
 
+    @Test
+    public void shouldThrowExceptionIfIntervalIsEqualToOtherTask() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        task1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        taskManager.createItem(task1);
+        Task task2 = new Task("task2");
+        task2.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        task2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+
+        //Проверка срабатывания исключения
+        Assertions.assertThrows(TaskTimeIntersectionException.class,
+                () -> taskManager.createItem(task2),
+                "Задачи пересекаются");
+    }
+
+    @Test
+    public void shouldThrowExceptionIfIntervalContainsOtherTask() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        task1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        taskManager.createItem(task1);
+        Task task2 = new Task("task2");
+        task2.setStartTime(LocalDateTime.parse("01-01-2023 11:00", formatter));
+        task2.setDurationMinutes(Duration.of(120, ChronoUnit.MINUTES));
+
+        //Проверка срабатывания исключения
+        Assertions.assertThrows(TaskTimeIntersectionException.class,
+                () -> taskManager.createItem(task2),
+                "Задачи пересекаются");
+    }
+
+    @Test
+    public void shouldCreateTaskThatStartsWhenOtherTaskEnds() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        task1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        taskManager.createItem(task1);
+        Task task2 = new Task("task2");
+        task2.setStartTime(LocalDateTime.parse("01-01-2023 12:30", formatter));
+        task2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+
+        //Тестируемая логика
+        taskManager.createItem(task2);
+
+        //Проверка создания задачи
+        assertEquals(2, taskManager.getPrioritizedTasks().size(), "Задача не создана");
+    }
+
+    @Test
+    public void shouldKeepTaskPrioritizedIfUpdateIntersectsOtherTask() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        task1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        taskManager.createItem(task1);
+        Task task2 = new Task("task2");
+        task2.setStartTime(LocalDateTime.parse("01-01-2023 13:00", formatter));
+        task2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        taskManager.createItem(task2);
+        Task updatedTask = new Task(task2.getId(), "task2");
+        updatedTask.setStartTime(LocalDateTime.parse("01-01-2023 12:10", formatter));
+        updatedTask.setDurationMinutes(Duration.of(10, ChronoUnit.MINUTES));
+
+        //Тестируемая логика
+        Assertions.assertThrows(TaskTimeIntersectionException.class,
+                () -> taskManager.updateItem(updatedTask, updatedTask.getId()),
+                "Задачи пересекаются");
+
+        //Проверка сохранности исходной задачи
+        assertEquals(task2, taskManager.getPrioritizedTasks().get(1), "Задача удалена из приоритетов");
+        Task task3 = new Task("task3");
+        task3.setStartTime(LocalDateTime.parse("01-01-2023 13:10", formatter));
+        task3.setDurationMinutes(Duration.of(10, ChronoUnit.MINUTES));
+        Assertions.assertThrows(TaskTimeIntersectionException.class,
+                () -> taskManager.createItem(task3),
+                "Задачи пересекаются");
+    }
+
+    //Тесты получения подзадач эпика
+    @Test
+    public void shouldReturnEpicSubtasksCreatedWithEpicId() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        taskManager.createItem(epic);
+        Subtask subtask1 = new Subtask("subtask1");
+        subtask1.setEpicId(epic.getId());
+        taskManager.createItem(subtask1);
+        Subtask subtask2 = new Subtask("subtask2");
+        taskManager.createItem(subtask2);
+
+        //Тестируемая логика
+        taskManager.linkSubtaskToEpic(subtask2, epic);
+
+        //Проверка списка подзадач
+        assertEquals(List.of(subtask1, subtask2), taskManager.getEpicSubtasks(epic.getId()),
+                "Неверный список подзадач");
+        assertEquals(List.of(subtask1.getId(), subtask2.getId()), epic.getEpicSubtaskIds(),
+                "Неверный список id подзадач");
+    }
+
+    @Test
+    public void shouldMoveSubtaskToOtherEpicWhenEpicIdIsUpdated() {
+        //Подготовка данных
+        Epic epic1 = new Epic("epic1");
+        taskManager.createItem(epic1);
+        Epic epic2 = new Epic("epic2");
+        taskManager.createItem(epic2);
+        Subtask subtask = new Subtask("subtask");
+        taskManager.createItem(subtask);
+        taskManager.linkSubtaskToEpic(subtask, epic1);
+
+        //Тестируемая логика
+        subtask.setEpicId(epic2.getId());
+        taskManager.updateItem(subtask, subtask.getId());
+
+        //Проверка списков подзадач
+        assertTrue(taskManager.getEpicSubtasks(epic1.getId()).isEmpty(), "Подзадача осталась у эпика");
+        assertTrue(epic1.getEpicSubtaskIds().isEmpty(), "Подзадача осталась у эпика");
+        assertEquals(List.of(subtask), taskManager.getEpicSubtasks(epic2.getId()), "Подзадача не перенесена");
+        assertEquals(List.of(subtask.getId()), epic2.getEpicSubtaskIds(), "Подзадача не перенесена");
+    }
+
+    @Test
+    public void shouldReturnEmptyEpicSubtasksIfEpicDoesNotExist() {
+        assertTrue(taskManager.getEpicSubtasks(1).isEmpty(), "Список подзадач не пустой");
+    }
+
+    //Тесты пакетных операций
+    @Test
+    public void shouldCreateItemsBatchAndRecalculateEpic() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        taskManager.createItem(epic);
+        Subtask subtask1 = new Subtask("subtask1");
+        subtask1.setEpicId(epic.getId());
+        subtask1.setStatus(Status.DONE);
+        subtask1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        subtask1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Subtask subtask2 = new Subtask("subtask2");
+        subtask2.setEpicId(epic.getId());
+        subtask2.setStatus(Status.DONE);
+        subtask2.setStartTime(LocalDateTime.parse("01-01-2023 10:00", formatter));
+        subtask2.setDurationMinutes(Duration.of(60, ChronoUnit.MINUTES));
+        Task task = new Task("task");
+
+        //Тестируемая логика
+        List<Integer> ids = taskManager.createItems(List.of(subtask1, subtask2, task));
+
+        //Проверка созданных задач и показателей эпика
+        assertEquals(List.of(2, 3, 4), ids, "Неверные id задач пакета");
+        assertEquals(subtask2, taskManager.getItemById(3), "Задача не найдена");
+        assertEquals(List.of(subtask1, subtask2), taskManager.getEpicSubtasks(epic.getId()),
+                "Неверный список подзадач эпика");
+        assertEquals(Status.DONE, epic.getStatus(), "Неверный статус эпика");
+        assertEquals(LocalDateTime.parse("01-01-2023 10:00", formatter), epic.getStartTime(),
+                "Неверное время старта эпика");
+        assertEquals(Duration.of(90, ChronoUnit.MINUTES), epic.getDurationMinutes(),
+                "Неверная продолжительность эпика");
+        assertEquals(3, taskManager.getPrioritizedTasks().size(), "Неверный список приоритетов");
+    }
+
+    @Test
+    public void shouldNotCreateAnyItemIfBatchItemsIntersect() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        task1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Task task2 = new Task("task2");
+        Task task3 = new Task("task3");
+        task3.setStartTime(LocalDateTime.parse("01-01-2023 11:00", formatter));
+        task3.setDurationMinutes(Duration.of(90, ChronoUnit.MINUTES));
+
+        //Проверка срабатывания исключения
+        Assertions.assertThrows(TaskTimeIntersectionException.class,
+                () -> taskManager.createItems(List.of(task1, task2, task3)),
+                "Задачи пакета пересекаются");
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty(), "Создана часть задач пакета");
+    }
+
+    @Test
+    public void shouldNotCreateAnyItemIfBatchItemIntersectsExistingTask() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        task1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        taskManager.createItem(task1);
+        Task task2 = new Task("task2");
+        task2.setStartTime(LocalDateTime.parse("01-01-2023 12:30", formatter));
+        task2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Task task3 = new Task("task3");
+        task3.setStartTime(LocalDateTime.parse("01-01-2023 12:15", formatter));
+        task3.setDurationMinutes(Duration.of(5, ChronoUnit.MINUTES));
+
+        //Проверка срабатывания исключения
+        Assertions.assertThrows(TaskTimeIntersectionException.class,
+                () -> taskManager.createItems(List.of(task2, task3)),
+                "Задача пакета пересекается с существующей");
+        assertEquals(List.of(task1), taskManager.getPrioritizedTasks(), "Создана часть задач пакета");
+    }
+
+    @Test
+    public void shouldLinkBatchSubtasksToEpicFromSameBatch() {
+        //Подготовка данных: эпик пакета получит id 2 и стоит между своими подзадачами
+        Subtask subtask1 = new Subtask("subtask1");
+        subtask1.setEpicId(2);
+        subtask1.setStatus(Status.DONE);
+        Epic epic = new Epic("epic");
+        Subtask subtask2 = new Subtask("subtask2");
+        subtask2.setEpicId(2);
+        subtask2.setStatus(Status.DONE);
+        subtask2.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        subtask2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+
+        //Тестируемая логика
+        List<Integer> ids = taskManager.createItems(List.of(subtask1, epic, subtask2));
+
+        //Проверка связей и показателей эпика
+        assertEquals(List.of(1, 2, 3), ids, "Неверные id задач пакета");
+        assertEquals(List.of(subtask1, subtask2), taskManager.getEpicSubtasks(epic.getId()),
+                "Подзадачи пакета не связаны с эпиком пакета");
+        assertEquals(Status.DONE, epic.getStatus(), "Неверный статус эпика");
+        assertEquals(LocalDateTime.parse("01-01-2023 12:00", formatter), epic.getStartTime(),
+                "Неверное время старта эпика");
+    }
+
+    @Test
+    public void shouldUpdateItemsBatch() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        taskManager.createItem(epic);
+        Task task = new Task("task");
+        task.setStartTime(LocalDateTime.parse("01-01-2023 12:30", formatter));
+        task.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Subtask subtask = new Subtask("subtask");
+        subtask.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        subtask.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        subtask.setEpicId(epic.getId());
+        taskManager.createItems(List.of(task, subtask));
+        Task updatedTask = new Task(task.getId(), "updatedTask", "description", Status.DONE, ItemType.TASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 13:00", formatter));
+        Subtask updatedSubtask = new Subtask(subtask.getId(), "updatedSubtask", "description", Status.IN_PROGRESS,
+                ItemType.SUBTASK, Duration.of(30, ChronoUnit.MINUTES),
+                LocalDateTime.parse("01-01-2023 13:30", formatter), epic.getId());
+
+        //Тестируемая логика
+        taskManager.updateItems(Map.of(task.getId(), updatedTask, subtask.getId(), updatedSubtask));
+
+        //Проверка обновленных задач
+        assertEquals("updatedTask", taskManager.getItemById(task.getId()).getName(), "Задача не обновлена");
+        assertEquals("updatedSubtask", taskManager.getItemById(subtask.getId()).getName(), "Подзадача не обновлена");
+        assertEquals(Status.IN_PROGRESS, epic.getStatus(), "Неверный статус эпика");
+        assertEquals(List.of(updatedTask, updatedSubtask), taskManager.getPrioritizedTasks(),
+                "Неверный список приоритетов");
+    }
+
+    @Test
+    public void shouldNotUpdateAnyItemIfBatchItemsIntersect() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        Task task2 = new Task("task2");
+        taskManager.createItems(List.of(task1, task2));
+        Task updatedTask1 = new Task(task1.getId(), "updatedTask1", "description", Status.NEW, ItemType.TASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 12:00", formatter));
+        Task updatedTask2 = new Task(task2.getId(), "updatedTask2", "description", Status.NEW, ItemType.TASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 12:10", formatter));
+
+        //Проверка срабатывания исключения
+        Assertions.assertThrows(TaskTimeIntersectionException.class,
+                () -> taskManager.updateItems(Map.of(task1.getId(), updatedTask1, task2.getId(), updatedTask2)),
+                "Задачи пакета пересекаются");
+        assertEquals("task1", taskManager.getItemById(task1.getId()).getName(), "Задача обновлена");
+        assertEquals("task2", taskManager.getItemById(task2.getId()).getName(), "Задача обновлена");
+    }
+
+    //Тесты выборки из списка приоритетов
+    @Test
+    public void shouldReturnPrioritizedTasksInWindow() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 10:00", formatter));
+        task1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Task task2 = new Task("task2");
+        task2.setStartTime(LocalDateTime.parse("02-01-2023 10:00", formatter));
+        task2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Task task3 = new Task("task3");
+        task3.setStartTime(LocalDateTime.parse("03-01-2023 10:00", formatter));
+        task3.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Task task4 = new Task("task4");
+        taskManager.createItems(List.of(task3, task1, task4, task2));
+
+        //Тестируемая логика
+        List<Task> window = taskManager.getPrioritizedTasks(LocalDateTime.parse("01-01-2023 10:00", formatter),
+                LocalDateTime.parse("03-01-2023 10:00", formatter));
+
+        //Проверка, что начало интервала включено, а конец - нет
+        assertEquals(List.of(task1, task2), window, "Неверный список задач в интервале");
+        assertTrue(taskManager.getPrioritizedTasks(LocalDateTime.parse("03-01-2023 10:00", formatter),
+                LocalDateTime.parse("01-01-2023 10:00", formatter)).isEmpty(), "Интервал должен быть пустым");
+    }
+
+    @Test
+    public void shouldReturnPrioritizedTasksPageByPage() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 10:00", formatter));
+        task1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Task task2 = new Task("task2");
+        task2.setStartTime(LocalDateTime.parse("02-01-2023 10:00", formatter));
+        task2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Task task3 = new Task("task3");
+        Task task4 = new Task("task4");
+        taskManager.createItems(List.of(task3, task2, task4, task1));
+
+        //Тестируемая логика
+        List<Task> page1 = taskManager.getPrioritizedTasksPage(0, 3);
+        List<Task> page2 = taskManager.getPrioritizedTasksPage(page1.get(2).getId(), 3);
+
+        //Проверка страниц
+        assertEquals(List.of(task1, task2, task3), page1, "Неверная первая страница");
+        assertEquals(List.of(task4), page2, "Неверная вторая страница");
+        assertTrue(taskManager.getPrioritizedTasksPage(task4.getId(), 3).isEmpty(), "Страница должна быть пустой");
+        Assertions.assertThrows(NoSuchTaskExistsException.class,
+                () -> taskManager.getPrioritizedTasksPage(100, 3),
+                "Курсор на несуществующую задачу");
+    }
+
+    //Тесты поиска свободного интервала
+    @Test
+    public void shouldFindFreeSlotBetweenTasks() {
+        //Подготовка данных: задачи 10:00-11:00, 11:30-12:00, 13:00-14:00
+        Task task1 = new Task("task1");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 10:00", formatter));
+        task1.setDurationMinutes(Duration.of(60, ChronoUnit.MINUTES));
+        Task task2 = new Task("task2");
+        task2.setStartTime(LocalDateTime.parse("01-01-2023 11:30", formatter));
+        task2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        Task task3 = new Task("task3");
+        task3.setStartTime(LocalDateTime.parse("01-01-2023 13:00", formatter));
+        task3.setDurationMinutes(Duration.of(60, ChronoUnit.MINUTES));
+        taskManager.createItems(List.of(task1, task2, task3));
+
+        //Проверка найденных интервалов
+        assertEquals(LocalDateTime.parse("01-01-2023 09:00", formatter),
+                taskManager.findFreeSlot(Duration.ofMinutes(60), LocalDateTime.parse("01-01-2023 09:00", formatter)),
+                "Свободное время до первой задачи не найдено");
+        assertEquals(LocalDateTime.parse("01-01-2023 11:00", formatter),
+                taskManager.findFreeSlot(Duration.ofMinutes(30), LocalDateTime.parse("01-01-2023 09:45", formatter)),
+                "Промежуток между задачами не найден");
+        assertEquals(LocalDateTime.parse("01-01-2023 12:00", formatter),
+                taskManager.findFreeSlot(Duration.ofMinutes(60), LocalDateTime.parse("01-01-2023 09:45", formatter)),
+                "Промежуток нужной длины не найден");
+        assertEquals(LocalDateTime.parse("01-01-2023 14:00", formatter),
+                taskManager.findFreeSlot(Duration.ofMinutes(90), LocalDateTime.parse("01-01-2023 09:45", formatter)),
+                "Свободное время после последней задачи не найдено");
+        assertEquals(LocalDateTime.parse("01-01-2023 12:10", formatter),
+                taskManager.findFreeSlot(Duration.ofMinutes(30), LocalDateTime.parse("01-01-2023 12:10", formatter)),
+                "Свободное время с заданного момента не найдено");
+    }
+
+    @Test
+    public void shouldCreateTaskInFoundFreeSlot() {
+        //Подготовка данных
+        Random random = new Random(7);
+        LocalDateTime dayStart = LocalDateTime.parse("01-01-2023 00:00", formatter);
+
+        //Тестируемая логика: задачи создаются только в найденные свободные интервалы
+        for (int i = 0; i < 200; i++) {
+            Duration duration = Duration.ofMinutes(5 + random.nextInt(60));
+            LocalDateTime notBefore = dayStart.plusMinutes(random.nextInt(2000));
+            LocalDateTime slotStart = taskManager.findFreeSlot(duration, notBefore);
+            Task task = new Task("task" + i);
+            task.setStartTime(slotStart);
+            task.setDurationMinutes(duration);
+
+            //Проверка, что найденное время не раньше заданного и свободно
+            assertFalse(slotStart.isBefore(notBefore), "Найдено время раньше заданного");
+            taskManager.createItem(task);
+        }
+    }
+
+    //Тесты задач без времени старта в списке приоритетов
+    @Test
+    public void shouldRemoveTaskWithoutStartTimeFromPrioritizedTasks() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        Task task2 = new Task("task2");
+        taskManager.createItem(task1);
+        taskManager.createItem(task2);
+
+        //Тестируемая логика
+        taskManager.removeItemById(task1.getId());
+
+        //Проверка списка приоритетов
+        assertEquals(List.of(task2), taskManager.getPrioritizedTasks(), "Удаленная задача осталась в списке");
+    }
+
+    @Test
+    public void shouldMoveTaskToScheduledWhenStartTimeIsSetByUpdate() {
+        //Подготовка данных
+        Task task1 = new Task("task1");
+        Task task2 = new Task("task2");
+        taskManager.createItems(List.of(task1, task2));
+        Task updatedTask2 = new Task(task2.getId(), "task2", "description", Status.NEW, ItemType.TASK,
+                Duration.of(30, ChronoUnit.MINUTES), LocalDateTime.parse("01-01-2023 12:00", formatter));
+        Task updatedTask1 = new Task(task1.getId(), "task1", "description", Status.NEW, ItemType.TASK);
+
+        //Тестируемая логика
+        taskManager.updateItem(updatedTask2, task2.getId());
+        taskManager.updateItem(updatedTask1, task1.getId());
+
+        //Проверка списка приоритетов
+        List<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
+        assertEquals(2, prioritizedTasks.size(), "В списке приоритетов остались устаревшие записи");
+        assertSame(updatedTask2, prioritizedTasks.get(0), "Задача со временем старта должна быть первой");
+        assertSame(updatedTask1, prioritizedTasks.get(1), "Задача без времени старта должна быть последней");
+    }
+
+    @Test
+    public void shouldKeepTasksWithEqualStartTimeInPrioritizedTasks() {
+        //Подготовка данных: задачи без продолжительности не занимают интервал и могут стартовать одновременно
+        Task task1 = new Task("task1");
+        Task task2 = new Task("task2");
+        Task task3 = new Task("task3");
+        task1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        task2.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        task3.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+
+        //Тестируемая логика
+        taskManager.createItems(List.of(task1, task2, task3));
+        taskManager.removeItemById(task2.getId());
+
+        //Проверка списка приоритетов
+        assertEquals(List.of(task1, task3), taskManager.getPrioritizedTasks(),
+                "Задачи с одинаковым временем старта потеряны или не упорядочены по id");
+        assertEquals(List.of(task1, task3), taskManager.getPrioritizedTasks(
+                        LocalDateTime.parse("01-01-2023 12:00", formatter),
+                        LocalDateTime.parse("01-01-2023 12:01", formatter)),
+                "Неверный список задач в окне");
+        assertEquals(List.of(task3), taskManager.getPrioritizedTasksPage(task1.getId(), 10),
+                "Неверная страница после задачи с тем же временем старта");
+    }
+
+    @Test
+    public void shouldRemoveTaskFromPrioritizedTasksAfterStartTimeChangedInPlace() {
+        //Подготовка данных
+        Task task = new Task("task");
+        task.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        taskManager.createItem(task);
+
+        //Тестируемая логика
+        task.setStartTime(LocalDateTime.parse("01-01-2023 15:00", formatter));
+        taskManager.removeItemById(task.getId());
+
+        //Проверка списка приоритетов
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty(), "Удаленная задача осталась в списке");
+    }
+
 }
@@ -4,6 +4,7 @@ import adapters.DurationAdapter;
 import adapters.LocalDateTimeAdapter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import exceptions.TaskTimeIntersectionException;
 import managers.*;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
@@ -19,6 +20,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -413,7 +415,9 @@ public class EpicTest {
         taskManager.createItem(subtask2);
         taskManager.linkSubtaskToEpic(subtask2, epic);
         subtask1.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        taskManager.updateItem(subtask1, subtask1.getId());
         subtask2.setDurationMinutes(Duration.of(120, ChronoUnit.MINUTES));
+        taskManager.updateItem(subtask2, subtask2.getId());
 
         //Тестируемая логика
         taskManager.removeItemById(subtask2.getId());
@@ -576,6 +580,76 @@ public class EpicTest {
                 "Неверно расcчитан endTime для Epic");
     }
 
+    @Test
+    public void shouldUpdateBothEpicsWhenSubtaskMovesToOtherEpic() {
+        //Подготовка данных
+        setTaskManager(TaskManagerType.IN_MEMORY);
+        Epic epic1 = new Epic("epic1");
+        taskManager.createItem(epic1);
+        Epic epic2 = new Epic("epic2");
+        taskManager.createItem(epic2);
+        Subtask subtask1 = new Subtask("subtask1");
+        subtask1.setStatus(Status.NEW);
+        taskManager.createItem(subtask1);
+        taskManager.linkSubtaskToEpic(subtask1, epic1);
+        Subtask subtask2 = new Subtask("subtask2");
+        subtask2.setStatus(Status.DONE);
+        subtask2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        taskManager.createItem(subtask2);
+        taskManager.linkSubtaskToEpic(subtask2, epic1);
+
+        //Тестируемая логика
+        Subtask movedSubtask = new Subtask(subtask2.getId(),
+                "subtask2",
+                "",
+                Status.DONE,
+                ItemType.SUBTASK,
+                Duration.of(30, ChronoUnit.MINUTES),
+                null,
+                epic2.getId());
+        taskManager.updateItem(movedSubtask, movedSubtask.getId());
+
+        //Проверка показателей обоих эпиков
+        assertEquals(Status.NEW, epic1.getStatus(), "Неверный статус эпика, из которого ушла подзадача");
+        assertEquals(Duration.ZERO, epic1.getDurationMinutes(), "Неверная продолжительность эпика");
+        assertEquals(Status.DONE, epic2.getStatus(), "Неверный статус эпика, к которому перешла подзадача");
+        assertEquals(Duration.of(30, ChronoUnit.MINUTES), epic2.getDurationMinutes(),
+                "Неверная продолжительность эпика");
+    }
+
+    @Test
+    public void shouldIgnoreRejectedSubtaskWhenEpicIsRecalculated() {
+        //Подготовка данных
+        setTaskManager(TaskManagerType.IN_MEMORY);
+        Epic epic = new Epic("epic");
+        taskManager.createItem(epic);
+        Subtask subtask1 = new Subtask("subtask1");
+        subtask1.setStartTime(LocalDateTime.parse("01-01-2023 12:00", formatter));
+        subtask1.setDurationMinutes(Duration.of(60, ChronoUnit.MINUTES));
+        taskManager.createItem(subtask1);
+        taskManager.linkSubtaskToEpic(subtask1, epic);
+        Subtask subtask2 = new Subtask("subtask2");
+        subtask2.setStartTime(LocalDateTime.parse("01-01-2023 14:30", formatter));
+        subtask2.setDurationMinutes(Duration.of(30, ChronoUnit.MINUTES));
+        taskManager.createItem(subtask2);
+        taskManager.linkSubtaskToEpic(subtask2, epic);
+        Subtask subtask3 = new Subtask("subtask3");
+        subtask3.setStartTime(LocalDateTime.parse("01-01-2023 13:00", formatter));
+        subtask3.setDurationMinutes(Duration.of(120, ChronoUnit.MINUTES));
+        subtask3.setEpicId(epic.getId());
+
+        //Тестируемая логика
+        Assertions.assertThrows(TaskTimeIntersectionException.class,
+                () -> taskManager.createItem(subtask3));
+        taskManager.removeItemById(subtask1.getId());
+
+        //Проверка расчета времени
+        assertEquals(LocalDateTime.parse("01-01-2023 14:30", formatter), epic.getStartTime(),
+                "startTime неверно для Epic");
+        assertEquals(LocalDateTime.parse("01-01-2023 15:00", formatter), epic.getEndTime().get(),
+                "Неверно расcчитан endTime для Epic");
+    }
+
     @Test
     public void shouldRestoreInfoAboutEpicsForSubtasks() {
         setTaskManager(TaskManagerType.FILE);
@@ -715,4 +789,44 @@ public class EpicTest {
         assertEquals(2, epic.getEpicSubtaskIds().size());
     }
 
+    @Test
+    public void shouldKeepSubtaskIdsInAddOrderWithoutDuplicates() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+
+        //Тестируемая логика
+        for (int id = 1; id <= 5; id++) {
+            epic.addSubtask(new Subtask(id, "subtask"));
+        }
+        epic.addSubtask(new Subtask(3, "subtask"));
+        epic.deleteSubtaskById(2);
+
+        //Проверка списка подзадач
+        assertEquals(List.of(1, 3, 4, 5), epic.getEpicSubtaskIds(), "Неверный список подзадач эпика");
+    }
+
+    @Test
+    public void shouldTakeSubtaskIdsFromSubtasksAggregate() {
+        //Подготовка данных
+        Epic epic = new Epic("epic");
+        Subtask subtask1 = new Subtask(1, "subtask1");
+        subtask1.setStatus(Status.DONE);
+        Subtask subtask2 = new Subtask(2, "subtask2");
+        subtask2.setStatus(Status.DONE);
+        Gson epicGson = new GsonBuilder()
+                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+                .registerTypeAdapter(Duration.class, new DurationAdapter())
+                .create();
+
+        //Тестируемая логика
+        epic.addSubtask(subtask1);
+        epic.addSubtask(subtask2);
+        epic.getSubtasksAggregate().remove(subtask1.getId());
+        Epic jsonEpic = epicGson.fromJson(epicGson.toJson(epic), Epic.class);
+
+        //Проверка, что список подзадач и показатели эпика не расходятся
+        assertEquals(List.of(2), epic.getEpicSubtaskIds(), "Список подзадач разошелся с показателями");
+        assertEquals(Status.DONE, epic.getSubtasksAggregate().getStatus(), "Неверный статус по показателям");
+        assertEquals(List.of(2), jsonEpic.getEpicSubtaskIds(), "Список подзадач не попал в JSON");
+    }
 }